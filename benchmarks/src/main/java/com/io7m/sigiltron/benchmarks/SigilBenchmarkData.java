@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron.benchmarks;
+
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.sigiltron.SigilFontFunctionRandom;
+import com.io7m.sigiltron.SigilFontSet;
+import com.io7m.sigiltron.SigilGeneratorRequest;
+import com.io7m.sigiltron.SigilRandomSourceSplittable;
+import com.io7m.sigiltron.SigilRotationFunctionRandom;
+import com.io7m.sigiltron.SigilSpreadFunctionRandom;
+import com.io7m.sigiltron.SigilTextFunctionIdentity;
+
+import java.util.List;
+
+/**
+ * Inputs shared by the benchmarks.
+ */
+
+public final class SigilBenchmarkData
+{
+  /**
+   * The seed used by all benchmarks.
+   */
+
+  public static final long SEED = 0x5eedL;
+
+  private SigilBenchmarkData()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * @param length The number of characters
+   *
+   * @return An intent of the given length
+   */
+
+  public static String intent(
+    final int length)
+  {
+    final StringBuilder text = new StringBuilder(length);
+    for (int index = 0; index < length; ++index) {
+      text.appendCodePoint('a' + (index % 26));
+    }
+    return text.toString();
+  }
+
+  /**
+   * @return A font set consisting of the logical fonts
+   */
+
+  public static SigilFontSet fonts()
+  {
+    return new SigilFontSet(List.of("SansSerif", "Serif", "Monospaced"), 0);
+  }
+
+  /**
+   * @param length The number of characters
+   *
+   * @return A request for an intent of the given length
+   */
+
+  public static SigilGeneratorRequest request(
+    final int length)
+  {
+    return new SigilGeneratorRequest(
+      intent(length),
+      fonts(),
+      new SigilTextFunctionIdentity(),
+      new SigilFontFunctionRandom(),
+      new SigilRotationFunctionRandom(),
+      new SigilSpreadFunctionRandom(),
+      64,
+      new SigilRandomSourceSplittable(),
+      SEED,
+      512,
+      512
+    );
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron.benchmarks;
+
+import com.io7m.sigiltron.SigilGenerator;
+import com.io7m.sigiltron.SigilGeneratorRequest;
+import org.apache.batik.dom.util.DOMUtilities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.svg.SVGDocument;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the two halves of the Batik path separately: building an SVG
+ * document through {@code SVGGraphics2D}, and serializing an existing
+ * document with {@link DOMUtilities#writeDocument}.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class SigilDocumentBenchmark
+{
+  @Param({"10", "100", "1000", "10000", "100000"})
+  public int length;
+
+  private SigilGenerator generator;
+  private SigilGeneratorRequest request;
+  private SVGDocument document;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public SigilDocumentBenchmark()
+  {
+
+  }
+
+  /**
+   * Set up the generator, request and a pre-built document.
+   */
+
+  @Setup
+  public void setup()
+  {
+    this.generator = new SigilGenerator();
+    this.request = SigilBenchmarkData.request(this.length);
+    this.document = this.generator.generate(this.request);
+  }
+
+  /**
+   * @return A document built with {@code SVGGraphics2D}
+   */
+
+  @Benchmark
+  public SVGDocument construct()
+  {
+    return this.generator.generate(this.request);
+  }
+
+  /**
+   * Serialize the pre-built document.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Benchmark
+  public void serialize()
+    throws IOException
+  {
+    DOMUtilities.writeDocument(this.document, Writer.nullWriter());
+  }
+}
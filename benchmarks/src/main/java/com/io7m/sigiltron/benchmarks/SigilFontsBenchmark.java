@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Font;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare decoding a font from a "Family size" string, as the generator
+ * originally did for every glyph, against deriving a sized font from a
+ * decoded base font, as the font cache does on a miss.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class SigilFontsBenchmark
+{
+  private Font base;
+  private int size;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public SigilFontsBenchmark()
+  {
+
+  }
+
+  /**
+   * Set up the base font.
+   */
+
+  @Setup
+  public void setup()
+  {
+    this.base = Font.decode("SansSerif");
+    this.size = 100;
+  }
+
+  private int nextSize()
+  {
+    this.size = this.size == 199 ? 100 : this.size + 1;
+    return this.size;
+  }
+
+  /**
+   * @return A decoded font
+   */
+
+  @Benchmark
+  public Font decode()
+  {
+    return Font.decode(String.format("%s %d", "SansSerif", Integer.valueOf(this.nextSize())));
+  }
+
+  /**
+   * @return A derived font
+   */
+
+  @Benchmark
+  public Font derive()
+  {
+    return this.base.deriveFont((float) this.nextSize());
+  }
+}
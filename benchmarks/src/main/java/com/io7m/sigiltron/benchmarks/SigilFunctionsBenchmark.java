@@ -0,0 +1,315 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron.benchmarks;
+
+import com.io7m.sigiltron.SigilFontFunctionRandom;
+import com.io7m.sigiltron.SigilFontFunctionRandomCovering;
+import com.io7m.sigiltron.SigilFontFunctionSelected;
+import com.io7m.sigiltron.SigilFontFunctionType;
+import com.io7m.sigiltron.SigilFontSet;
+import com.io7m.sigiltron.SigilRotationFunctionRandom;
+import com.io7m.sigiltron.SigilRotationFunctionRandom45;
+import com.io7m.sigiltron.SigilRotationFunctionType;
+import com.io7m.sigiltron.SigilSpreadFunctionExact;
+import com.io7m.sigiltron.SigilSpreadFunctionNonOverlapping;
+import com.io7m.sigiltron.SigilSpreadFunctionRandom;
+import com.io7m.sigiltron.SigilSpreadFunctionRelaxingType;
+import com.io7m.sigiltron.SigilSpreadFunctionType;
+import com.io7m.sigiltron.SigilTextFunctionIdentity;
+import com.io7m.sigiltron.SigilTextFunctionPipeline;
+import com.io7m.sigiltron.SigilTextFunctionRemoveDuplicates;
+import com.io7m.sigiltron.SigilTextFunctionType;
+import com.io7m.sigiltron.SigilTextStage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.Font;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.random.RandomGenerator;
+
+/**
+ * Benchmarks for each text, font, rotation and spread function, applied to
+ * every character of an intent.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class SigilFunctionsBenchmark
+{
+  private static final SigilTextFunctionType TEXT_IDENTITY =
+    new SigilTextFunctionIdentity();
+  private static final SigilTextFunctionType TEXT_REMOVE_DUPLICATES =
+    new SigilTextFunctionRemoveDuplicates();
+  private static final SigilTextFunctionType TEXT_PIPELINE_REMOVE_DUPLICATES =
+    new SigilTextFunctionPipeline(List.of(SigilTextStage.REMOVE_DUPLICATES));
+  private static final SigilTextFunctionType TEXT_PIPELINE_ALL =
+    new SigilTextFunctionPipeline(List.of(SigilTextStage.values()));
+  private static final SigilFontFunctionType FONT_SELECTED =
+    new SigilFontFunctionSelected();
+  private static final SigilFontFunctionType FONT_RANDOM =
+    new SigilFontFunctionRandom();
+  private static final SigilFontFunctionType FONT_RANDOM_COVERING =
+    new SigilFontFunctionRandomCovering();
+  private static final SigilRotationFunctionType ROTATION_RANDOM =
+    new SigilRotationFunctionRandom();
+  private static final SigilRotationFunctionType ROTATION_RANDOM45 =
+    new SigilRotationFunctionRandom45();
+  private static final SigilSpreadFunctionType SPREAD_EXACT =
+    new SigilSpreadFunctionExact();
+  private static final SigilSpreadFunctionType SPREAD_RANDOM =
+    new SigilSpreadFunctionRandom();
+  private static final SigilSpreadFunctionRelaxingType SPREAD_NON_OVERLAPPING =
+    new SigilSpreadFunctionNonOverlapping();
+
+  @Param({"10", "100", "1000", "10000", "100000"})
+  public int length;
+
+  private int[] codepoints;
+  private List<Character> characters;
+  private int[] scratch;
+  private double[] rotations;
+  private int[] spreads;
+  private int[] initial_spreads;
+  private double[] angles;
+  private Font[] glyph_fonts;
+  private SigilFontSet fonts;
+  private RandomGenerator random;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public SigilFunctionsBenchmark()
+  {
+
+  }
+
+  /**
+   * Set up the inputs.
+   */
+
+  @Setup
+  public void setup()
+  {
+    this.codepoints =
+      SigilBenchmarkData.intent(this.length).codePoints().toArray();
+    this.characters =
+      SigilBenchmarkData.intent(this.length)
+        .chars()
+        .mapToObj(c -> Character.valueOf((char) c))
+        .collect(Collectors.toList());
+    this.scratch = new int[this.codepoints.length];
+    this.rotations = new double[this.codepoints.length];
+    this.spreads = new int[this.codepoints.length];
+    this.fonts = SigilBenchmarkData.fonts();
+    this.random = new SplittableRandom(SigilBenchmarkData.SEED);
+
+    final int count = this.codepoints.length;
+    final List<String> families = this.fonts.families();
+    this.initial_spreads = new int[count];
+    this.angles = new double[count];
+    this.glyph_fonts = new Font[count];
+    SPREAD_RANDOM.spreadsOf(this.random, 250, 0, count, this.initial_spreads);
+    ROTATION_RANDOM.rotationsOf(this.random, this.codepoints, 0, count, this.angles);
+    double angle = 0.0;
+    for (int index = 0; index < count; ++index) {
+      angle += this.angles[index];
+      this.angles[index] = angle;
+      this.glyph_fonts[index] = new Font(
+        families.get(this.random.nextInt(families.size())),
+        Font.PLAIN,
+        this.random.nextInt(100) + 100);
+    }
+  }
+
+  private int text(
+    final SigilTextFunctionType function)
+  {
+    System.arraycopy(this.codepoints, 0, this.scratch, 0, this.length);
+    return function.processCodePoints(this.scratch, this.length);
+  }
+
+  private void font(
+    final SigilFontFunctionType function,
+    final Blackhole blackhole)
+  {
+    for (int index = 0; index < this.length; ++index) {
+      blackhole.consume(
+        function.familyOf(this.random, this.fonts, this.codepoints[index], 100));
+    }
+  }
+
+  /**
+   * @return The processed length
+   */
+
+  @Benchmark
+  public int textIdentity()
+  {
+    return this.text(TEXT_IDENTITY);
+  }
+
+  /**
+   * @return The processed length
+   */
+
+  @Benchmark
+  public int textRemoveDuplicates()
+  {
+    return this.text(TEXT_REMOVE_DUPLICATES);
+  }
+
+  /**
+   * @return The processed characters
+   */
+
+  @Benchmark
+  public List<Character> textRemoveDuplicatesBoxed()
+  {
+    return TEXT_REMOVE_DUPLICATES.process(this.characters);
+  }
+
+  /**
+   * @return The processed length
+   */
+
+  @Benchmark
+  public int textPipelineRemoveDuplicates()
+  {
+    return this.text(TEXT_PIPELINE_REMOVE_DUPLICATES);
+  }
+
+  /**
+   * @return The processed length
+   */
+
+  @Benchmark
+  public int textPipelineAll()
+  {
+    return this.text(TEXT_PIPELINE_ALL);
+  }
+
+  /**
+   * @param blackhole A blackhole
+   */
+
+  @Benchmark
+  public void fontSelected(
+    final Blackhole blackhole)
+  {
+    this.font(FONT_SELECTED, blackhole);
+  }
+
+  /**
+   * @param blackhole A blackhole
+   */
+
+  @Benchmark
+  public void fontRandom(
+    final Blackhole blackhole)
+  {
+    this.font(FONT_RANDOM, blackhole);
+  }
+
+  /**
+   * @param blackhole A blackhole
+   */
+
+  @Benchmark
+  public void fontRandomCovering(
+    final Blackhole blackhole)
+  {
+    this.font(FONT_RANDOM_COVERING, blackhole);
+  }
+
+  /**
+   * @return The rotations
+   */
+
+  @Benchmark
+  public double[] rotationRandom()
+  {
+    ROTATION_RANDOM.rotationsOf(
+      this.random, this.codepoints, 0, this.length, this.rotations);
+    return this.rotations;
+  }
+
+  /**
+   * @return The rotations
+   */
+
+  @Benchmark
+  public double[] rotationRandom45()
+  {
+    ROTATION_RANDOM45.rotationsOf(
+      this.random, this.codepoints, 0, this.length, this.rotations);
+    return this.rotations;
+  }
+
+  /**
+   * @return The spreads
+   */
+
+  @Benchmark
+  public int[] spreadExact()
+  {
+    SPREAD_EXACT.spreadsOf(this.random, 250, 0, this.length, this.spreads);
+    return this.spreads;
+  }
+
+  /**
+   * @return The spreads
+   */
+
+  @Benchmark
+  public int[] spreadRandom()
+  {
+    SPREAD_RANDOM.spreadsOf(this.random, 250, 0, this.length, this.spreads);
+    return this.spreads;
+  }
+
+  /**
+   * @return The spreads
+   */
+
+  @Benchmark
+  public int[] spreadNonOverlapping()
+  {
+    System.arraycopy(
+      this.initial_spreads, 0, this.spreads, 0, this.length);
+    SPREAD_NON_OVERLAPPING.relax(
+      this.glyph_fonts, this.codepoints, this.angles, this.spreads, this.length);
+    return this.spreads;
+  }
+}
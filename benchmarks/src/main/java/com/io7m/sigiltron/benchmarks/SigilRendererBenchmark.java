@@ -0,0 +1,173 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron.benchmarks;
+
+import com.io7m.sigiltron.SigilGenerator;
+import com.io7m.sigiltron.SigilGeneratorRequest;
+import com.io7m.sigiltron.SigilGlyphCache;
+import com.io7m.sigiltron.SigilLayout;
+import com.io7m.sigiltron.SigilRendererBatik;
+import com.io7m.sigiltron.SigilRendererSVGStream;
+import com.io7m.sigiltron.SigilRendererSVGSymbols;
+import org.apache.batik.dom.util.DOMUtilities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the Batik DOM rendering path against the streaming SVG renderers,
+ * and measure the layout phase on its own. All paths serialize to a null
+ * writer so that only the cost of building and serializing the document is
+ * measured.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class SigilRendererBenchmark
+{
+  @Param({"10", "100", "1000", "10000", "100000"})
+  public int length;
+
+  private SigilGenerator generator;
+  private SigilGlyphCache glyphs;
+  private SigilGeneratorRequest request;
+  private SigilLayout layout;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public SigilRendererBenchmark()
+  {
+
+  }
+
+  /**
+   * Set up the generator and request.
+   */
+
+  @Setup
+  public void setup()
+  {
+    this.generator = new SigilGenerator();
+    this.glyphs = new SigilGlyphCache();
+    this.request = SigilBenchmarkData.request(this.length);
+    this.layout = this.generator.layout(this.request);
+  }
+
+  /**
+   * Build a Batik DOM with a pooled graphics context and serialize it.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Benchmark
+  public void batik()
+    throws IOException
+  {
+    DOMUtilities.writeDocument(
+      this.generator.generate(this.request), Writer.nullWriter());
+  }
+
+  /**
+   * Build a Batik DOM with a new graphics context and serialize it, for
+   * comparison with {@link #batik()}.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Benchmark
+  public void batikUnpooled()
+    throws IOException
+  {
+    final SigilRendererBatik renderer = new SigilRendererBatik();
+    this.generator.generate(this.request, renderer);
+    DOMUtilities.writeDocument(renderer.document(), Writer.nullWriter());
+  }
+
+  /**
+   * Stream the SVG directly.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Benchmark
+  public void stream()
+    throws IOException
+  {
+    this.generator.generate(
+      this.request, new SigilRendererSVGStream(Writer.nullWriter()));
+  }
+
+  /**
+   * Stream the SVG directly, referencing shared glyph outlines.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Benchmark
+  public void symbols()
+    throws IOException
+  {
+    this.generator.generate(
+      this.request,
+      new SigilRendererSVGSymbols(Writer.nullWriter(), this.glyphs));
+  }
+
+  /**
+   * Lay out the sigil without rendering it.
+   *
+   * @return The layout
+   */
+
+  @Benchmark
+  public SigilLayout layout()
+  {
+    return this.generator.layout(this.request);
+  }
+
+  /**
+   * Stream the SVG of a sigil that was laid out in advance, for comparison
+   * with {@link #stream()}.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Benchmark
+  public void streamLaidOut()
+    throws IOException
+  {
+    this.generator.render(
+      this.layout, new SigilRendererSVGStream(Writer.nullWriter()));
+  }
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import org.apache.batik.transcoder.TranscoderException;
+import org.apache.batik.transcoder.TranscoderInput;
+import org.apache.batik.transcoder.TranscoderOutput;
+import org.apache.batik.transcoder.image.PNGTranscoder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A contact sheet of the variants of a parameter sweep. The variants are
+ * generated in parallel, sharing one glyph outline cache. They are scaled
+ * by a common factor so that the largest fits in a square cell of a given
+ * size (so that differences in spread remain visible), packed with
+ * {@link SigilAtlasPacker}, and labelled with the parameters that vary
+ * across the sweep. Glyphs are drawn as {@code <use>} references to
+ * {@code <symbol>} outlines in a single {@code <defs>} element shared by
+ * every variant, so a glyph that appears in many variants is written once.
+ */
+
+final class SigilAtlas
+{
+  /**
+   * The default size of the largest variant.
+   */
+
+  static final int DEFAULT_CELL_SIZE = 256;
+
+  /**
+   * The largest number of variants on a sheet.
+   */
+
+  static final int MAXIMUM_VARIANTS = 1024;
+
+  private static final int PADDING = 8;
+  private static final int LABEL_LINE = 12;
+  private static final int LABEL_CHARACTER = 6;
+  private static final int DECIMALS = 3;
+  private static final int SCALE_DECIMALS = 6;
+
+  private final List<SigilSweepVariant> variants;
+  private final List<SigilAtlasCell> cells;
+  private final double scale;
+  private final List<Integer> widths;
+  private final List<Integer> heights;
+  private final SigilAtlasPacking packing;
+  private final Map<String, Integer> symbol_ids;
+  private final List<String> symbols;
+
+  private SigilAtlas(
+    final List<SigilSweepVariant> in_variants,
+    final List<SigilAtlasCell> in_cells,
+    final int cell_size)
+  {
+    this.variants = List.copyOf(in_variants);
+    this.cells = List.copyOf(in_cells);
+
+    double largest = 1.0;
+    for (final SigilAtlasCell cell : this.cells) {
+      largest = Math.max(largest, Math.max(cell.width(), cell.height()));
+    }
+    this.scale = (double) cell_size / largest;
+
+    this.widths = new ArrayList<>(this.cells.size());
+    this.heights = new ArrayList<>(this.cells.size());
+    this.symbol_ids = new HashMap<>(256);
+    this.symbols = new ArrayList<>(256);
+    for (int index = 0; index < this.cells.size(); ++index) {
+      this.measure(this.cells.get(index), this.variants.get(index).label());
+    }
+    this.packing = SigilAtlasPacker.pack(this.widths, this.heights);
+  }
+
+  /**
+   * Generate the variants of a sweep in parallel and lay them out on a
+   * sheet.
+   *
+   * @param generator The generator
+   * @param variants  The variants
+   * @param cell_size The size of the largest variant on the sheet
+   * @param executor  The executor used to generate variants
+   *
+   * @return A contact sheet
+   *
+   * @throws IOException          On errors
+   * @throws InterruptedException If generation is interrupted
+   */
+
+  static SigilAtlas generate(
+    final SigilGenerator generator,
+    final List<SigilSweepVariant> variants,
+    final int cell_size,
+    final ExecutorService executor)
+    throws IOException, InterruptedException
+  {
+    Objects.requireNonNull(generator, "Generator");
+    Objects.requireNonNull(variants, "Variants");
+    Objects.requireNonNull(executor, "Executor");
+    if (cell_size < 1) {
+      throw new IllegalArgumentException(
+        String.format("Cell size %d must be positive", Integer.valueOf(cell_size)));
+    }
+
+    final SigilGlyphCache glyphs = new SigilGlyphCache();
+    final List<Callable<SigilAtlasCell>> tasks = new ArrayList<>(variants.size());
+    for (final SigilSweepVariant variant : variants) {
+      tasks.add(() -> {
+        final SigilAtlasCell cell = new SigilAtlasCell(glyphs);
+        generator.generate(variant.request(), cell);
+        return cell;
+      });
+    }
+
+    final List<SigilAtlasCell> cells = new ArrayList<>(variants.size());
+    try {
+      for (final Future<SigilAtlasCell> future : executor.invokeAll(tasks)) {
+        cells.add(future.get());
+      }
+    } catch (final ExecutionException e) {
+      throw new IOException(e.getCause());
+    }
+    return new SigilAtlas(variants, cells, cell_size);
+  }
+
+  private void measure(
+    final SigilAtlasCell cell,
+    final List<String> label)
+  {
+    int longest = 0;
+    for (final String line : label) {
+      longest = Math.max(longest, line.length());
+    }
+
+    final int w = (int) Math.ceil(cell.width() * this.scale);
+    final int h = (int) Math.ceil(cell.height() * this.scale);
+    this.widths.add(Integer.valueOf(
+      Math.max(w, longest * LABEL_CHARACTER) + 2 * PADDING));
+    this.heights.add(Integer.valueOf(
+      h + 2 * PADDING + label.size() * LABEL_LINE));
+
+    for (int index = 0; index < cell.glyphCount(); ++index) {
+      final String outline = cell.outline(index);
+      if (!this.symbol_ids.containsKey(outline)) {
+        this.symbol_ids.put(outline, Integer.valueOf(this.symbols.size()));
+        this.symbols.add(outline);
+      }
+    }
+  }
+
+  /**
+   * @return The width of the sheet
+   */
+
+  int width()
+  {
+    return this.packing.width();
+  }
+
+  /**
+   * @return The height of the sheet
+   */
+
+  int height()
+  {
+    return this.packing.height();
+  }
+
+  /**
+   * @return The number of variants on the sheet
+   */
+
+  int variantCount()
+  {
+    return this.cells.size();
+  }
+
+  /**
+   * @return The number of distinct glyph outlines on the sheet
+   */
+
+  int symbolCount()
+  {
+    return this.symbols.size();
+  }
+
+  /**
+   * Write the sheet to a file, as a PNG image if the file name ends with
+   * {@code .png} and as an SVG document otherwise.
+   *
+   * @param file The file
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void write(
+    final Path file)
+    throws IOException
+  {
+    final String name = String.valueOf(file.getFileName());
+    if (name.toLowerCase(Locale.ROOT).endsWith(".png")) {
+      try (OutputStream stream = Files.newOutputStream(file)) {
+        this.writePNG(stream);
+      }
+      return;
+    }
+
+    try (BufferedWriter writer =
+           Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      this.writeSVG(writer);
+    }
+  }
+
+  /**
+   * Write the sheet as a PNG image, rasterizing the SVG document with
+   * Batik's transcoder.
+   *
+   * @param stream The output stream
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void writePNG(
+    final OutputStream stream)
+    throws IOException
+  {
+    final StringWriter svg = new StringWriter(1 << 16);
+    this.writeSVG(svg);
+
+    try {
+      new PNGTranscoder().transcode(
+        new TranscoderInput(new StringReader(svg.toString())),
+        new TranscoderOutput(stream));
+    } catch (final TranscoderException e) {
+      throw new IOException(e);
+    }
+    stream.flush();
+  }
+
+  /**
+   * Write the sheet as an SVG document.
+   *
+   * @param writer The output writer
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void writeSVG(
+    final Writer writer)
+    throws IOException
+  {
+    final StringBuilder b = new StringBuilder(256);
+    SigilSVGText.appendProlog(b);
+    b.append("<svg xmlns=\"http://www.w3.org/2000/svg\"");
+    b.append(" xmlns:xlink=\"http://www.w3.org/1999/xlink\" version=\"1.1\"");
+    b.append(" width=\"");
+    b.append(this.width());
+    b.append("\" height=\"");
+    b.append(this.height());
+    b.append("\">\n<defs>\n");
+    writer.append(b);
+
+    for (int index = 0; index < this.symbols.size(); ++index) {
+      b.setLength(0);
+      b.append("<symbol id=\"g");
+      b.append(index);
+      b.append("\" overflow=\"visible\"><path d=\"");
+      b.append(this.symbols.get(index));
+      b.append("\"/></symbol>\n");
+      writer.append(b);
+    }
+
+    b.setLength(0);
+    b.append("</defs>\n<rect width=\"100%\" height=\"100%\" fill=\"white\"/>\n");
+    writer.append(b);
+
+    for (int index = 0; index < this.cells.size(); ++index) {
+      this.writeCell(writer, b, index);
+    }
+
+    writer.append("</svg>\n");
+    writer.flush();
+  }
+
+  private void writeCell(
+    final Writer writer,
+    final StringBuilder b,
+    final int index)
+    throws IOException
+  {
+    final SigilAtlasCell cell = this.cells.get(index);
+    final int x = this.packing.x(index);
+    final int y = this.packing.y(index);
+    final int w = this.widths.get(index).intValue();
+    final int h = this.heights.get(index).intValue();
+    final double inner_w = cell.width() * this.scale;
+    final double origin_x =
+      (double) x + ((double) w - inner_w) / 2.0 - cell.minimumX() * this.scale;
+
+    b.setLength(0);
+    b.append("<rect x=\"");
+    b.append(x);
+    b.append("\" y=\"");
+    b.append(y);
+    b.append("\" width=\"");
+    b.append(w);
+    b.append("\" height=\"");
+    b.append(h);
+    b.append("\" fill=\"none\" stroke=\"#dddddd\"/>\n<g transform=\"translate(");
+    SigilSVGText.appendNumber(b, origin_x, DECIMALS);
+    b.append(' ');
+    SigilSVGText.appendNumber(
+      b, (double) (y + PADDING) - cell.minimumY() * this.scale, DECIMALS);
+    b.append(") scale(");
+    SigilSVGText.appendNumber(b, this.scale, SCALE_DECIMALS);
+    b.append(")\" fill=\"black\" stroke=\"none\">\n");
+    writer.append(b);
+
+    for (int glyph = 0; glyph < cell.glyphCount(); ++glyph) {
+      b.setLength(0);
+      b.append("<use xlink:href=\"#g");
+      b.append(this.symbol_ids.get(cell.outline(glyph)).intValue());
+      b.append("\" transform=\"rotate(");
+      SigilSVGText.appendDegrees(b, cell.angle(glyph), DECIMALS);
+      b.append(") translate(0 ");
+      b.append(cell.offset(glyph));
+      b.append(") scale(");
+      SigilSVGText.appendNumber(b, cell.scale(glyph), SCALE_DECIMALS);
+      b.append(")\"/>\n");
+      writer.append(b);
+    }
+    writer.append("</g>\n");
+
+    final List<String> label = this.variants.get(index).label();
+    final int label_top = y + h - PADDING / 2 - label.size() * LABEL_LINE;
+    for (int line = 0; line < label.size(); ++line) {
+      b.setLength(0);
+      b.append("<text x=\"");
+      b.append(x + w / 2);
+      b.append("\" y=\"");
+      b.append(label_top + (line + 1) * LABEL_LINE - 2);
+      b.append("\" font-family=\"sans-serif\" font-size=\"10\"");
+      b.append(" text-anchor=\"middle\" fill=\"#444444\">");
+      SigilSVGText.appendEscaped(b, label.get(line));
+      b.append("</text>\n");
+      writer.append(b);
+    }
+  }
+}
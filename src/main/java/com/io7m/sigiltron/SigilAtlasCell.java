@@ -0,0 +1,219 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.awt.Font;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A renderer that retains the glyphs of one sigil of a contact sheet in
+ * memory, as references to glyph outlines taken from a shared
+ * {@link SigilGlyphCache}, and tracks the bounds of the sigil so that it
+ * can be packed tightly. The bounds of each glyph are estimated from its
+ * font size rather than measured from its outline, which is cheap and
+ * errs on the side of slightly too much space.
+ */
+
+final class SigilAtlasCell implements SigilRendererType
+{
+  private static final double DESCENT = 0.3;
+
+  private final SigilGlyphCache glyphs;
+  private final List<Glyph> placed;
+  private double min_x;
+  private double min_y;
+  private double max_x;
+  private double max_y;
+
+  /**
+   * Construct a cell.
+   *
+   * @param in_glyphs The glyph outline cache
+   */
+
+  SigilAtlasCell(
+    final SigilGlyphCache in_glyphs)
+  {
+    this.glyphs = Objects.requireNonNull(in_glyphs, "Glyphs");
+    this.placed = new ArrayList<>(64);
+  }
+
+  @Override
+  public void begin(
+    final int width,
+    final int height)
+  {
+    this.placed.clear();
+    this.min_x = 0.0;
+    this.min_y = 0.0;
+    this.max_x = 0.0;
+    this.max_y = 0.0;
+  }
+
+  @Override
+  public void glyph(
+    final Font font,
+    final int codepoint,
+    final double angle,
+    final int offset)
+  {
+    final String outline = this.glyphs.outline(font, codepoint);
+    if (outline.isEmpty()) {
+      return;
+    }
+
+    final double size = font.getSize2D();
+    this.placed.add(new Glyph(
+      outline, angle, offset, size / (double) SigilGlyphCache.REFERENCE_SIZE));
+
+    final double cos = Math.cos(angle);
+    final double sin = Math.sin(angle);
+    final double top = (double) offset - size;
+    final double bottom = (double) offset + size * DESCENT;
+    this.include(0.0, top, cos, sin);
+    this.include(size, top, cos, sin);
+    this.include(0.0, bottom, cos, sin);
+    this.include(size, bottom, cos, sin);
+  }
+
+  private void include(
+    final double x,
+    final double y,
+    final double cos,
+    final double sin)
+  {
+    final double rx = x * cos - y * sin;
+    final double ry = x * sin + y * cos;
+    this.min_x = Math.min(this.min_x, rx);
+    this.min_y = Math.min(this.min_y, ry);
+    this.max_x = Math.max(this.max_x, rx);
+    this.max_y = Math.max(this.max_y, ry);
+  }
+
+  @Override
+  public void end()
+  {
+
+  }
+
+  /**
+   * @return The number of visible glyphs
+   */
+
+  int glyphCount()
+  {
+    return this.placed.size();
+  }
+
+  /**
+   * @param index The glyph index
+   *
+   * @return The outline of the glyph
+   */
+
+  String outline(
+    final int index)
+  {
+    return this.placed.get(index).outline();
+  }
+
+  /**
+   * @param index The glyph index
+   *
+   * @return The rotation of the glyph in radians
+   */
+
+  double angle(
+    final int index)
+  {
+    return this.placed.get(index).angle();
+  }
+
+  /**
+   * @param index The glyph index
+   *
+   * @return The offset of the glyph from the center
+   */
+
+  int offset(
+    final int index)
+  {
+    return this.placed.get(index).offset();
+  }
+
+  /**
+   * @param index The glyph index
+   *
+   * @return The scale applied to the reference-size outline of the glyph
+   */
+
+  double scale(
+    final int index)
+  {
+    return this.placed.get(index).scale();
+  }
+
+  /**
+   * @return The smallest x coordinate of the sigil relative to its center
+   */
+
+  double minimumX()
+  {
+    return this.min_x;
+  }
+
+  /**
+   * @return The smallest y coordinate of the sigil relative to its center
+   */
+
+  double minimumY()
+  {
+    return this.min_y;
+  }
+
+  /**
+   * @return The width of the sigil
+   */
+
+  double width()
+  {
+    return this.max_x - this.min_x;
+  }
+
+  /**
+   * @return The height of the sigil
+   */
+
+  double height()
+  {
+    return this.max_y - this.min_y;
+  }
+
+  private record Glyph(
+    String outline,
+    double angle,
+    int offset,
+    double scale)
+  {
+    private Glyph
+    {
+      Objects.requireNonNull(outline, "outline");
+    }
+  }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * A rectangle packer for contact sheets, using the skyline bottom-left
+ * heuristic. Rectangles are placed in order of decreasing height (ties are
+ * kept in their original order), each at the lowest position along the
+ * current skyline at which it fits, and leftmost among equally low
+ * positions. The sheet width is chosen so that the sheet is roughly
+ * square. For the similarly sized rectangles of a sweep this wastes far
+ * less space than a fixed grid sized for the largest rectangle, while
+ * still keeping rectangles of the same size together in their original
+ * order.
+ */
+
+final class SigilAtlasPacker
+{
+  private SigilAtlasPacker()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Pack rectangles.
+   *
+   * @param widths  The width of each rectangle
+   * @param heights The height of each rectangle
+   *
+   * @return The packing
+   */
+
+  static SigilAtlasPacking pack(
+    final List<Integer> widths,
+    final List<Integer> heights)
+  {
+    Objects.requireNonNull(widths, "Widths");
+    Objects.requireNonNull(heights, "Heights");
+    if (widths.size() != heights.size()) {
+      throw new IllegalArgumentException(
+        String.format(
+          "%d widths do not match %d heights",
+          Integer.valueOf(widths.size()),
+          Integer.valueOf(heights.size())));
+    }
+
+    final int count = widths.size();
+    long area = 0L;
+    int widest = 1;
+    for (int index = 0; index < count; ++index) {
+      final int w = widths.get(index).intValue();
+      area += (long) w * (long) heights.get(index).intValue();
+      widest = Math.max(widest, w);
+    }
+    final int sheet_width =
+      Math.max(widest, (int) Math.ceil(Math.sqrt((double) area * 1.05)));
+
+    final List<Integer> order =
+      IntStream.range(0, count)
+        .boxed()
+        .sorted(Comparator.comparing(
+          (Integer i) -> heights.get(i.intValue())).reversed())
+        .toList();
+
+    final Skyline skyline = new Skyline(sheet_width);
+    final int[] xs = new int[count];
+    final int[] ys = new int[count];
+    for (final Integer index : order) {
+      final int i = index.intValue();
+      skyline.place(widths.get(i).intValue(), heights.get(i).intValue());
+      xs[i] = skyline.placedX();
+      ys[i] = skyline.placedY();
+    }
+    return new SigilAtlasPacking(xs, ys, sheet_width, skyline.height());
+  }
+
+  /**
+   * The top edge of the rectangles placed so far, as a list of horizontal
+   * segments ordered from left to right that together span the sheet.
+   */
+
+  private static final class Skyline
+  {
+    private final int width;
+    private final List<Segment> segments;
+    private int placed_x;
+    private int placed_y;
+    private int height;
+
+    Skyline(
+      final int in_width)
+    {
+      this.width = in_width;
+      this.segments = new ArrayList<>(64);
+      this.segments.add(new Segment(0, 0, in_width));
+    }
+
+    int placedX()
+    {
+      return this.placed_x;
+    }
+
+    int placedY()
+    {
+      return this.placed_y;
+    }
+
+    int height()
+    {
+      return this.height;
+    }
+
+    /**
+     * @return The lowest y at which a rectangle of the given width fits
+     * with its left edge at the start of the given segment, or -1 if it
+     * would extend past the right edge of the sheet
+     */
+
+    private int fit(
+      final int index,
+      final int w)
+    {
+      final int x = this.segments.get(index).x();
+      if (x + w > this.width) {
+        return -1;
+      }
+
+      int y = 0;
+      int remaining = w;
+      for (int i = index; remaining > 0; ++i) {
+        final Segment segment = this.segments.get(i);
+        y = Math.max(y, segment.y());
+        remaining -= segment.width();
+      }
+      return y;
+    }
+
+    void place(
+      final int w,
+      final int h)
+    {
+      int best_index = -1;
+      int best_y = Integer.MAX_VALUE;
+      for (int index = 0; index < this.segments.size(); ++index) {
+        final int y = this.fit(index, w);
+        if (y >= 0 && y < best_y) {
+          best_y = y;
+          best_index = index;
+        }
+      }
+
+      final int x = this.segments.get(best_index).x();
+      this.placed_x = x;
+      this.placed_y = best_y;
+      this.height = Math.max(this.height, best_y + h);
+      this.raise(best_index, new Segment(x, best_y + h, w));
+    }
+
+    /**
+     * Replace the part of the skyline under a newly placed rectangle with
+     * the top edge of the rectangle.
+     */
+
+    private void raise(
+      final int index,
+      final Segment top)
+    {
+      this.segments.add(index, top);
+
+      final int end = top.end();
+      final int next = index + 1;
+      while (next < this.segments.size()) {
+        final Segment segment = this.segments.get(next);
+        if (segment.x() >= end) {
+          break;
+        }
+        if (segment.end() <= end) {
+          this.segments.remove(next);
+        } else {
+          segment.cutBefore(end);
+          break;
+        }
+      }
+
+      this.merge();
+    }
+
+    private void merge()
+    {
+      int index = 0;
+      while (index + 1 < this.segments.size()) {
+        final Segment a = this.segments.get(index);
+        final Segment b = this.segments.get(index + 1);
+        if (a.y() == b.y()) {
+          a.extendBy(b.width());
+          this.segments.remove(index + 1);
+        } else {
+          ++index;
+        }
+      }
+    }
+  }
+
+  private static final class Segment
+  {
+    private int x;
+    private final int y;
+    private int width;
+
+    Segment(
+      final int in_x,
+      final int in_y,
+      final int in_width)
+    {
+      this.x = in_x;
+      this.y = in_y;
+      this.width = in_width;
+    }
+
+    int x()
+    {
+      return this.x;
+    }
+
+    int y()
+    {
+      return this.y;
+    }
+
+    int width()
+    {
+      return this.width;
+    }
+
+    int end()
+    {
+      return this.x + this.width;
+    }
+
+    void cutBefore(
+      final int new_x)
+    {
+      this.width = this.end() - new_x;
+      this.x = new_x;
+    }
+
+    void extendBy(
+      final int extra)
+    {
+      this.width += extra;
+    }
+  }
+}
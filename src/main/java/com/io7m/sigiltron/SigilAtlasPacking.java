@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.util.Objects;
+
+/**
+ * The result of packing rectangles onto a sheet.
+ */
+
+final class SigilAtlasPacking
+{
+  private final int[] xs;
+  private final int[] ys;
+  private final int width;
+  private final int height;
+
+  /**
+   * Construct a packing.
+   *
+   * @param in_xs     The x position of the top left corner of each rectangle
+   * @param in_ys     The y position of the top left corner of each rectangle
+   * @param in_width  The width of the sheet
+   * @param in_height The height of the sheet
+   */
+
+  SigilAtlasPacking(
+    final int[] in_xs,
+    final int[] in_ys,
+    final int in_width,
+    final int in_height)
+  {
+    this.xs = Objects.requireNonNull(in_xs, "Xs").clone();
+    this.ys = Objects.requireNonNull(in_ys, "Ys").clone();
+    this.width = in_width;
+    this.height = in_height;
+  }
+
+  /**
+   * @param index The index of a rectangle
+   *
+   * @return The x position of the rectangle
+   */
+
+  int x(
+    final int index)
+  {
+    return this.xs[index];
+  }
+
+  /**
+   * @param index The index of a rectangle
+   *
+   * @return The y position of the rectangle
+   */
+
+  int y(
+    final int index)
+  {
+    return this.ys[index];
+  }
+
+  /**
+   * @return The width of the sheet
+   */
+
+  int width()
+  {
+    return this.width;
+  }
+
+  /**
+   * @return The height of the sheet
+   */
+
+  int height()
+  {
+    return this.height;
+  }
+}
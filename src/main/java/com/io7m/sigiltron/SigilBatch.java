@@ -0,0 +1,572 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.svg.SVGDocument;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A headless batch generator. Intents are read from a file, one per line,
+ * and one SVG file is written per intent. The intents are distributed over
+ * a configurable number of worker threads that share a single generator.
+ * The seed of each intent is derived from the seed of the run and the line
+ * number of the intent, so the output of a run does not depend on the
+ * number of workers or on the order in which intents are processed.
+ * Sigils are copied from a {@link SigilDiskCache}, if one is configured,
+ * rather than generated again.
+ *
+ * <p>A run may be split into {@link SigilShard shards} that run in
+ * separate processes or on separate machines. Each shard generates only
+ * the lines that it owns, but numbers and seeds them by their line number
+ * in the whole input, so the union of the outputs of the shards of a run
+ * is identical to the output of the same run on a single node. Each sigil
+ * is written to a temporary file and moved into place, and then recorded
+ * in the {@link SigilBatchJournal} of the shard, so a shard that is killed
+ * can be started again and will skip the sigils that it has already
+ * written. The input is streamed to the workers rather than read into
+ * memory, so each shard of a very large input holds only a bounded number
+ * of intents at a time.</p>
+ *
+ * <p>Documents produced by the batik and outlines renderers may be passed
+ * through a {@link SigilSVGOptimizer} before they are written, in which
+ * case the total sizes before and after optimization are logged at the end
+ * of the run.</p>
+ */
+
+final class SigilBatch
+{
+  private static final Logger LOG;
+  private static final int QUEUE_PER_WORKER = 64;
+  private static final SigilBatchIntent END = new SigilBatchIntent(0, "");
+
+  static {
+    LOG = LoggerFactory.getLogger(SigilBatch.class);
+  }
+
+  private final SigilBatchConfiguration configuration;
+  private final AtomicLong generated;
+  private final AtomicLong failed;
+  private final SigilGenerator generator;
+  private final SigilGlyphCache glyphs;
+  private final SigilTextFunctionType text_function;
+  private final SigilFontFunctionType font_function;
+  private final SigilRotationFunctionType rotation_function;
+  private final SigilSpreadFunctionType spread_function;
+  private final SigilRandomSourceType random_source;
+  private final Optional<SigilSVGOptimizer> optimizer;
+  private final AtomicLong optimized_before;
+  private final AtomicLong optimized_after;
+
+  SigilBatch(
+    final SigilBatchConfiguration in_configuration)
+  {
+    this.configuration =
+      Objects.requireNonNull(in_configuration, "Configuration");
+    this.generator = new SigilGenerator();
+    final SigilBatchConfiguration c = this.configuration;
+    this.glyphs =
+      new SigilGlyphCache(SigilGlyphCache.DEFAULT_CAPACITY, c.simplify());
+    this.text_function =
+      SigilFunctions.textFunction(c.textFunction()).orElseThrow();
+    this.font_function =
+      SigilFunctions.fontFunction(c.fontFunction()).orElseThrow();
+    this.rotation_function =
+      SigilFunctions.rotationFunction(c.rotationFunction()).orElseThrow();
+    this.spread_function =
+      SigilFunctions.spreadFunction(c.spreadFunction()).orElseThrow();
+    this.random_source =
+      SigilFunctions.randomSource(c.randomSource()).orElseThrow();
+    this.generated = new AtomicLong(0L);
+    this.failed = new AtomicLong(0L);
+    this.optimizer = c.optimize().isPresent()
+      ? Optional.of(new SigilSVGOptimizer(c.optimize().getAsInt()))
+      : Optional.empty();
+    this.optimized_before = new AtomicLong(0L);
+    this.optimized_after = new AtomicLong(0L);
+  }
+
+  /**
+   * Execute the batch run.
+   *
+   * @return The result of the run
+   *
+   * @throws IOException          On I/O errors
+   * @throws InterruptedException If the run is interrupted
+   */
+
+  SigilBatchResult run()
+    throws IOException, InterruptedException
+  {
+    final SigilBatchConfiguration c = this.configuration;
+    final SigilFontSet fonts =
+      SigilFontSet.selecting(SigilFonts.availableFamilies(), c.font());
+    Files.createDirectories(c.output());
+
+    LOG.info("processing shard {} of {} with {} workers (seed {})",
+             c.shard(),
+             c.input(),
+             Integer.valueOf(c.workers()),
+             Long.valueOf(c.seed()));
+
+    final String fonts_hash = familiesHash(fonts.families());
+    LOG.info("fonts: {} families (hash {})",
+             Integer.valueOf(fonts.families().size()),
+             fonts_hash);
+
+    final Path journal_file =
+      c.output().resolve(SigilBatchJournal.fileName(c.shard()));
+    final Optional<SigilDiskCache> cache =
+      SigilDiskCache.openIfEnabled(c.cache());
+
+    final String journal_configuration =
+      this.journalConfiguration(fonts_hash);
+
+    final long time_then = System.nanoTime();
+    try (SigilBatchJournal journal =
+           SigilBatchJournal.open(journal_file, journal_configuration)) {
+      if (journal.resumed() > 0) {
+        LOG.info("resuming: {} sigils were already written",
+                 Integer.valueOf(journal.resumed()));
+      }
+      this.execute(fonts, cache, journal);
+    } finally {
+      if (cache.isPresent()) {
+        closeCache(cache.get());
+      }
+    }
+
+    final long time_now = System.nanoTime();
+    final SigilCacheStatistics fonts_stats =
+      this.generator.fontCacheStatistics();
+    LOG.info("font cache: {} hits, {} misses, {} evictions ({}/{} entries)",
+             Long.valueOf(fonts_stats.hits()),
+             Long.valueOf(fonts_stats.misses()),
+             Long.valueOf(fonts_stats.evictions()),
+             Integer.valueOf(fonts_stats.size()),
+             Integer.valueOf(fonts_stats.capacity()));
+    final String renderer = this.configuration.renderer();
+    if (List.of("outlines", "paths", "symbols").contains(renderer)) {
+      final SigilCacheStatistics glyphs_stats = "paths".equals(renderer)
+        ? this.glyphs.shapeStatistics()
+        : this.glyphs.statistics();
+      LOG.info("glyph cache: {} hits, {} misses, {} evictions ({}/{} entries)",
+               Long.valueOf(glyphs_stats.hits()),
+               Long.valueOf(glyphs_stats.misses()),
+               Long.valueOf(glyphs_stats.evictions()),
+               Integer.valueOf(glyphs_stats.size()),
+               Integer.valueOf(glyphs_stats.capacity()));
+    }
+    if ("batik".equals(renderer)) {
+      final SigilCacheStatistics pool_stats =
+        this.generator.graphicsPoolStatistics();
+      LOG.info("graphics pool: {} reused, {} created, {} discarded ({}/{} idle)",
+               Long.valueOf(pool_stats.hits()),
+               Long.valueOf(pool_stats.misses()),
+               Long.valueOf(pool_stats.evictions()),
+               Integer.valueOf(pool_stats.size()),
+               Integer.valueOf(pool_stats.capacity()));
+    }
+    if (this.optimizer.isPresent()) {
+      final SigilSVGOptimization total =
+        new SigilSVGOptimization(
+          this.optimized_before.get(), this.optimized_after.get());
+      LOG.info("optimizer: {} bytes before, {} bytes after ({}%)",
+               Long.valueOf(total.sizeBefore()),
+               Long.valueOf(total.sizeAfter()),
+               String.format("%.1f", Double.valueOf(total.percentage())));
+    }
+
+    return new SigilBatchResult(
+      this.generated.get(),
+      this.failed.get(),
+      time_now - time_then);
+  }
+
+  /**
+   * @param fonts_hash The hash of the available font families
+   *
+   * @return A description of everything that determines the content of the
+   * files of the run, used to refuse to resume a journal written by a
+   * different run
+   */
+
+  private String journalConfiguration(
+    final String fonts_hash)
+  {
+    final SigilBatchConfiguration c = this.configuration;
+    return String.format(
+      "input=%s shard=%s seed=%d text-function=%s font-function=%s font=%s "
+        + "rotation-function=%s spread-function=%s spread=%d "
+        + "random-source=%s renderer=%s width=%d height=%d optimize=%s "
+        + "simplify=%s fonts=%s",
+      c.input().toAbsolutePath(),
+      c.shard(),
+      Long.valueOf(c.seed()),
+      c.textFunction(),
+      c.fontFunction(),
+      c.font().orElse(""),
+      c.rotationFunction(),
+      c.spreadFunction(),
+      Integer.valueOf(c.spread()),
+      c.randomSource(),
+      c.renderer(),
+      Integer.valueOf(c.width()),
+      Integer.valueOf(c.height()),
+      c.optimize().isPresent()
+        ? Integer.toString(c.optimize().getAsInt())
+        : "none",
+      Double.toString(c.simplify()),
+      fonts_hash);
+  }
+
+  /**
+   * The font families available differ between machines, and the font
+   * function chooses among all of them, so two runs only produce the same
+   * sigils if they see the same families in the same order.
+   *
+   * @param families The available font families
+   *
+   * @return A short hexadecimal hash of the families
+   */
+
+  private static String familiesHash(
+    final List<String> families)
+  {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+
+    for (final String family : families) {
+      digest.update(family.getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) '\n');
+    }
+    return HexFormat.of().formatHex(digest.digest(), 0, 8);
+  }
+
+  private static void closeCache(
+    final SigilDiskCache cache)
+  {
+    LOG.info("sigil cache: {} hits, {} misses",
+             Long.valueOf(cache.hits()),
+             Long.valueOf(cache.misses()));
+    try {
+      cache.close();
+    } catch (final IOException e) {
+      LOG.warn("could not close the sigil cache: {}", e.getMessage());
+    }
+  }
+
+  private void execute(
+    final SigilFontSet fonts,
+    final Optional<SigilDiskCache> cache,
+    final SigilBatchJournal journal)
+    throws IOException, InterruptedException
+  {
+    final int workers = this.configuration.workers();
+    final BlockingQueue<SigilBatchIntent> queue =
+      new ArrayBlockingQueue<>(workers * QUEUE_PER_WORKER);
+    final ExecutorService executor = Executors.newFixedThreadPool(workers);
+    try {
+      final List<Future<?>> futures = new ArrayList<>(workers);
+      for (int index = 0; index < workers; ++index) {
+        futures.add(executor.submit(() -> {
+          this.work(queue, fonts, cache, journal);
+          return null;
+        }));
+      }
+      this.feed(queue, journal, futures);
+      stop(queue, futures);
+      for (final Future<?> future : futures) {
+        future.get();
+      }
+    } catch (final ExecutionException e) {
+      throw new IOException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Stream the lines of the input that belong to this shard and that are
+   * not yet complete to the workers.
+   */
+
+  private void feed(
+    final BlockingQueue<SigilBatchIntent> queue,
+    final SigilBatchJournal journal,
+    final List<Future<?>> futures)
+    throws IOException, InterruptedException
+  {
+    final SigilBatchConfiguration c = this.configuration;
+    final SigilShard shard = c.shard();
+
+    try (BufferedReader reader =
+           Files.newBufferedReader(c.input(), StandardCharsets.UTF_8)) {
+      int line = 0;
+      while (true) {
+        final String text = reader.readLine();
+        if (text == null) {
+          return;
+        }
+        ++line;
+        if (text.isBlank() || !shard.owns(line) || journal.isComplete(line)) {
+          continue;
+        }
+        if (!offer(queue, new SigilBatchIntent(line, text), futures)) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Send one end marker to each worker.
+   */
+
+  private static void stop(
+    final BlockingQueue<SigilBatchIntent> queue,
+    final List<Future<?>> futures)
+    throws InterruptedException
+  {
+    for (int index = 0; index < futures.size(); ++index) {
+      if (!offer(queue, END, futures)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Add an intent to the queue, waiting for space as long as any worker is
+   * still running.
+   *
+   * @return {@code false} if every worker has stopped
+   */
+
+  private static boolean offer(
+    final BlockingQueue<SigilBatchIntent> queue,
+    final SigilBatchIntent intent,
+    final List<Future<?>> futures)
+    throws InterruptedException
+  {
+    while (!queue.offer(intent, 100L, TimeUnit.MILLISECONDS)) {
+      if (futures.stream().allMatch(Future::isDone)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void work(
+    final BlockingQueue<SigilBatchIntent> queue,
+    final SigilFontSet fonts,
+    final Optional<SigilDiskCache> cache,
+    final SigilBatchJournal journal)
+    throws InterruptedException
+  {
+    final SigilBatchConfiguration c = this.configuration;
+
+    while (true) {
+      final SigilBatchIntent intent = queue.take();
+      if (intent == END) {
+        return;
+      }
+
+      final int line = intent.line();
+      final String name = String.format("%08d.svg", Integer.valueOf(line));
+      final Path file = c.output().resolve(name);
+      final Path temporary = c.output().resolve(name + ".tmp");
+
+      try {
+        final SigilGeneratorRequest request =
+          new SigilGeneratorRequest(
+            intent.text(),
+            fonts,
+            this.text_function,
+            this.font_function,
+            this.rotation_function,
+            this.spread_function,
+            c.spread(),
+            this.random_source,
+            SigilSeeds.derive(c.seed(), line),
+            c.width(),
+            c.height());
+
+        this.generateTo(request, file, temporary, cache);
+        journal.complete(line);
+        this.generated.incrementAndGet();
+      } catch (final IOException e) {
+        LOG.error("line {}: {}", Integer.valueOf(line), e.getMessage());
+        this.failed.incrementAndGet();
+      } catch (final RuntimeException e) {
+        LOG.error("line {}: ", Integer.valueOf(line), e);
+        this.failed.incrementAndGet();
+      }
+    }
+  }
+
+  private void generateTo(
+    final SigilGeneratorRequest request,
+    final Path file,
+    final Path temporary,
+    final Optional<SigilDiskCache> cache)
+    throws IOException
+  {
+    final SigilEventOutput event = new SigilEventOutput();
+    event.begin();
+    try {
+      final boolean hit = this.generateOrCopyTo(request, temporary, cache);
+      final long size = Files.size(temporary);
+      Files.move(
+        temporary,
+        file,
+        StandardCopyOption.ATOMIC_MOVE,
+        StandardCopyOption.REPLACE_EXISTING);
+      event.finish(this.configuration.renderer(), size, hit);
+    } catch (final IOException | RuntimeException e) {
+      try {
+        Files.deleteIfExists(temporary);
+      } catch (final IOException x) {
+        e.addSuppressed(x);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * @return {@code true} if the sigil was copied from the cache
+   */
+
+  private boolean generateOrCopyTo(
+    final SigilGeneratorRequest request,
+    final Path file,
+    final Optional<SigilDiskCache> cache)
+    throws IOException
+  {
+    if (cache.isEmpty()) {
+      this.render(request, file);
+      return false;
+    }
+
+    final SigilDiskCache disk = cache.get();
+    final byte[] key = SigilDiskCache.keyOf(request, this.cacheRenderer());
+    final Optional<Path> cached = disk.find(key);
+    if (cached.isPresent()) {
+      Files.copy(cached.get(), file, StandardCopyOption.REPLACE_EXISTING);
+      return true;
+    }
+
+    this.render(request, file);
+    try {
+      disk.store(key, file);
+    } catch (final IOException e) {
+      LOG.warn("could not store a sigil in the sigil cache: {}",
+               e.getMessage());
+    }
+    return false;
+  }
+
+  /**
+   * @return The renderer name under which sigils are cached, which
+   * distinguishes optimized documents from unoptimized documents, and
+   * simplified outlines from exact outlines
+   */
+
+  private String cacheRenderer()
+  {
+    final StringBuilder name = new StringBuilder(this.configuration.renderer());
+    if (this.glyphs.tolerance() > 0.0) {
+      name.append("-simplified-");
+      name.append(this.glyphs.tolerance());
+    }
+    if (this.optimizer.isPresent()) {
+      name.append("-optimized-");
+      name.append(this.optimizer.get().precision());
+    }
+    return name.toString();
+  }
+
+  private SVGDocument document(
+    final SigilGeneratorRequest request)
+  {
+    if ("outlines".equals(this.configuration.renderer())) {
+      return this.generator.generateOutlines(
+        request, SigilLayoutCache.disabled(), this.glyphs);
+    }
+    return this.generator.generate(request);
+  }
+
+  private void render(
+    final SigilGeneratorRequest request,
+    final Path file)
+    throws IOException
+  {
+    if (this.optimizer.isPresent()) {
+      try (OutputStream stream =
+             new BufferedOutputStream(Files.newOutputStream(file))) {
+        final SigilSVGOptimization result =
+          SigilDocuments.writeOptimized(
+            this.document(request), this.optimizer.get(), stream);
+        this.optimized_before.addAndGet(result.sizeBefore());
+        this.optimized_after.addAndGet(result.sizeAfter());
+      }
+      return;
+    }
+
+    try (BufferedWriter writer =
+           Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      switch (this.configuration.renderer()) {
+        case "batik", "outlines" -> SigilDocuments.write(
+          this.document(request), writer);
+        case "symbols" -> this.generator.generate(
+          request, new SigilRendererSVGSymbols(writer, this.glyphs));
+        case "paths" -> this.generator.generate(
+          request, new SigilRendererSVGPaths(writer, this.glyphs));
+        default -> this.generator.generate(
+          request, new SigilRendererSVGStream(writer));
+      }
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+
+/**
+ * The configuration for a batch run.
+ *
+ * @param input            The file containing intents, one per line
+ * @param output           The directory that will contain generated sigils
+ * @param workers          The number of worker threads
+ * @param textFunction     The name of the text function
+ * @param fontFunction     The name of the font function
+ * @param font             The font used by font functions that use the
+ *                         selected font
+ * @param rotationFunction The name of the rotation function
+ * @param spreadFunction   The name of the spread function
+ * @param spread           The spread value
+ * @param randomSource     The name of the random source
+ * @param seed             The seed from which the seed of each intent is
+ *                         derived
+ * @param renderer         The name of the renderer
+ * @param width            The image width
+ * @param height           The image height
+ * @param cache            The directory of the persistent sigil cache, if
+ *                         the cache is enabled
+ * @param shard            The shard of the input processed by this run
+ * @param optimize         The precision passed to the
+ *                         {@link SigilSVGOptimizer}, if documents are
+ *                         optimized before they are written
+ * @param simplify         The tolerance used to simplify glyph outlines
+ *                         (see {@link SigilGlyphCache}), or {@code 0.0}
+ */
+
+record SigilBatchConfiguration(
+  Path input,
+  Path output,
+  int workers,
+  String textFunction,
+  String fontFunction,
+  Optional<String> font,
+  String rotationFunction,
+  String spreadFunction,
+  int spread,
+  String randomSource,
+  long seed,
+  String renderer,
+  int width,
+  int height,
+  Optional<Path> cache,
+  SigilShard shard,
+  OptionalInt optimize,
+  double simplify)
+{
+  SigilBatchConfiguration
+  {
+    Objects.requireNonNull(input, "input");
+    Objects.requireNonNull(output, "output");
+    Objects.requireNonNull(textFunction, "textFunction");
+    Objects.requireNonNull(fontFunction, "fontFunction");
+    Objects.requireNonNull(font, "font");
+    Objects.requireNonNull(rotationFunction, "rotationFunction");
+    Objects.requireNonNull(spreadFunction, "spreadFunction");
+    Objects.requireNonNull(randomSource, "randomSource");
+    Objects.requireNonNull(renderer, "renderer");
+    Objects.requireNonNull(cache, "cache");
+    Objects.requireNonNull(shard, "shard");
+    Objects.requireNonNull(optimize, "optimize");
+
+    if (workers < 1) {
+      throw new IllegalArgumentException(
+        String.format("Worker count %d must be positive", workers));
+    }
+    if (spread < 1) {
+      throw new IllegalArgumentException(
+        String.format("Spread %d must be positive", spread));
+    }
+    if (optimize.isPresent() && !Set.of("batik", "outlines").contains(renderer)) {
+      throw new IllegalArgumentException(
+        String.format(
+          "Optimization requires the batik or outlines renderer (the %s renderer writes compact output directly)",
+          renderer));
+    }
+    if (!(simplify >= 0.0 && simplify <= SigilGlyphCache.MAXIMUM_TOLERANCE)) {
+      throw new IllegalArgumentException(
+        String.format(
+          "Simplification tolerance %f must be in the range [0, %f]",
+          Double.valueOf(simplify),
+          Double.valueOf(SigilGlyphCache.MAXIMUM_TOLERANCE)));
+    }
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The checkpoint journal of one shard of a batch run. The journal is an
+ * append-only text file in the output directory: a magic line, a line
+ * describing the configuration of the run, and then the number of each
+ * input line whose sigil has been written, in completion order. A line is
+ * appended only after the sigil has been moved into place, so every line
+ * in the journal names a complete file, and a run that is killed can be
+ * started again with the same configuration and will skip those lines. A
+ * torn final line is discarded when the journal is opened. A journal
+ * written by a different configuration is discarded rather than resumed,
+ * since its files would not match the files that the current
+ * configuration produces.
+ */
+
+final class SigilBatchJournal implements AutoCloseable
+{
+  private static final Logger LOG;
+  private static final String MAGIC = "sigiltron-journal 1";
+
+  static {
+    LOG = LoggerFactory.getLogger(SigilBatchJournal.class);
+  }
+
+  private final BitSet complete;
+  private final BufferedWriter writer;
+  private final int resumed;
+
+  private SigilBatchJournal(
+    final BitSet in_complete,
+    final BufferedWriter in_writer)
+  {
+    this.complete = Objects.requireNonNull(in_complete, "Complete");
+    this.writer = Objects.requireNonNull(in_writer, "Writer");
+    this.resumed = in_complete.cardinality();
+  }
+
+  /**
+   * @param shard The shard
+   *
+   * @return The name of the journal file of the given shard
+   */
+
+  static String fileName(
+    final SigilShard shard)
+  {
+    return String.format(
+      ".sigiltron-journal-%d-of-%d",
+      Integer.valueOf(shard.index()),
+      Integer.valueOf(shard.count()));
+  }
+
+  /**
+   * Open a journal, resuming it if it exists and was written by the same
+   * configuration, and starting it again otherwise.
+   *
+   * @param file          The journal file
+   * @param configuration A single-line description of the configuration
+   *
+   * @return A journal
+   *
+   * @throws IOException On I/O errors
+   */
+
+  static SigilBatchJournal open(
+    final Path file,
+    final String configuration)
+    throws IOException
+  {
+    Objects.requireNonNull(file, "File");
+    Objects.requireNonNull(configuration, "Configuration");
+
+    final BitSet complete = new BitSet();
+    if (!(Files.isRegularFile(file) && resume(file, configuration, complete))) {
+      Files.write(
+        file,
+        List.of(MAGIC, configuration),
+        StandardCharsets.UTF_8);
+    }
+
+    return new SigilBatchJournal(
+      complete,
+      Files.newBufferedWriter(
+        file,
+        StandardCharsets.UTF_8,
+        StandardOpenOption.APPEND));
+  }
+
+  private static boolean resume(
+    final Path file,
+    final String configuration,
+    final BitSet complete)
+    throws IOException
+  {
+    discardTornEntry(file);
+
+    final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+    if (lines.size() < 2
+      || !MAGIC.equals(lines.get(0))
+      || !configuration.equals(lines.get(1))) {
+      LOG.warn("journal {} belongs to a different configuration; starting again",
+               file);
+      return false;
+    }
+
+    for (final String line : lines.subList(2, lines.size())) {
+      final int number = parseEntry(line);
+      if (number < 1) {
+        LOG.warn("journal {}: ignoring malformed entry {}", file, line);
+      } else {
+        complete.set(number);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return The line number recorded by the given entry, or {@code -1} if
+   * the entry is not a number
+   */
+
+  private static int parseEntry(
+    final String line)
+  {
+    try {
+      return Integer.parseInt(line);
+    } catch (final NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Truncate the journal after its last newline, so that a partially
+   * written entry is neither mistaken for a different line number nor
+   * joined to the next entry appended.
+   */
+
+  private static void discardTornEntry(
+    final Path file)
+    throws IOException
+  {
+    try (FileChannel channel =
+           FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      final long size = channel.size();
+      final ByteBuffer buffer = ByteBuffer.allocate(1);
+      long end = size;
+      while (end > 0L) {
+        buffer.clear();
+        channel.read(buffer, end - 1L);
+        if (buffer.get(0) == '\n') {
+          break;
+        }
+        --end;
+      }
+      if (end < size) {
+        LOG.warn("journal {}: discarding a torn final entry", file);
+        channel.truncate(end);
+      }
+    }
+  }
+
+  /**
+   * @return The number of lines that were already complete when the
+   * journal was opened
+   */
+
+  int resumed()
+  {
+    return this.resumed;
+  }
+
+  /**
+   * @param line The line number
+   *
+   * @return {@code true} if the sigil of the given line has been written
+   */
+
+  boolean isComplete(
+    final int line)
+  {
+    synchronized (this.complete) {
+      return this.complete.get(line);
+    }
+  }
+
+  /**
+   * Record that the sigil of the given line has been written.
+   *
+   * @param line The line number
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void complete(
+    final int line)
+    throws IOException
+  {
+    synchronized (this.complete) {
+      this.writer.write(Integer.toString(line));
+      this.writer.write('\n');
+      this.writer.flush();
+      this.complete.set(line);
+    }
+  }
+
+  @Override
+  public void close()
+    throws IOException
+  {
+    synchronized (this.complete) {
+      this.writer.close();
+    }
+  }
+}
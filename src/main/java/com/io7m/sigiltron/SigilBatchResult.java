@@ -0,0 +1,43 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+/**
+ * The result of a batch run.
+ *
+ * @param generated The number of sigils generated
+ * @param failed    The number of intents that could not be processed
+ * @param nanos     The elapsed time in nanoseconds
+ */
+
+record SigilBatchResult(
+  long generated,
+  long failed,
+  long nanos)
+{
+  /**
+   * @return The number of sigils generated per second
+   */
+
+  double sigilsPerSecond()
+  {
+    if (this.nanos == 0L) {
+      return 0.0;
+    }
+    return (double) this.generated / ((double) this.nanos / 1.0e9);
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import org.apache.batik.anim.dom.SVGDOMImplementation;
+import org.apache.batik.ext.awt.g2d.GraphicContext;
+import org.apache.batik.svggen.SVGGeneratorContext;
+import org.apache.batik.svggen.SVGGraphics2D;
+import org.w3c.dom.Document;
+
+import java.awt.geom.AffineTransform;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of {@link SVGGraphics2D} instances, shared by any number
+ * of threads. Constructing an {@code SVGGraphics2D} builds a generator
+ * context, a DOM tree manager with a full set of graphic context
+ * converters, and an offscreen graphics context used for font metrics,
+ * which costs more than drawing a short sigil. A pooled instance is
+ * retargeted at each new document by replacing the DOM factory of its
+ * generator context and its top level group. Its graphics state (transform,
+ * paint, stroke, composite, clip, rendering hints, font and background) is
+ * restored to the state of a new instance, so that no state set while
+ * drawing one sigil leaks into the next.
+ *
+ * <p>The converters of an {@code SVGGraphics2D} cache the definitions
+ * (gradients, patterns, clip paths) that they have created, and those
+ * definitions belong to the document for which they were created. An
+ * instance is therefore only returned to the pool if it has not created
+ * any definitions; sigils are drawn with a plain fill and never do.</p>
+ */
+
+final class SigilBatikGraphicsPool
+{
+  /**
+   * The default number of instances retained.
+   */
+
+  static final int DEFAULT_CAPACITY =
+    Runtime.getRuntime().availableProcessors();
+
+  private static final SigilBatikGraphicsPool DISABLED =
+    new SigilBatikGraphicsPool(0);
+
+  private final int capacity;
+  private final Deque<SVGGraphics2D> available;
+  private final AtomicInteger size;
+  private final AtomicLong hits;
+  private final AtomicLong misses;
+  private final AtomicLong discards;
+
+  /**
+   * Construct a pool.
+   *
+   * @param in_capacity The maximum number of idle instances retained
+   */
+
+  SigilBatikGraphicsPool(
+    final int in_capacity)
+  {
+    if (in_capacity < 0) {
+      throw new IllegalArgumentException(
+        String.format("Capacity %d must be non-negative", Integer.valueOf(in_capacity)));
+    }
+
+    this.capacity = in_capacity;
+    this.available = new ConcurrentLinkedDeque<>();
+    this.size = new AtomicInteger(0);
+    this.hits = new AtomicLong(0L);
+    this.misses = new AtomicLong(0L);
+    this.discards = new AtomicLong(0L);
+  }
+
+  /**
+   * @return A pool that never retains anything
+   */
+
+  static SigilBatikGraphicsPool disabled()
+  {
+    return DISABLED;
+  }
+
+  /**
+   * Take an instance from the pool, or create one if the pool is empty.
+   * The instance draws into the given document, with the graphics state
+   * of a new instance, and must be used by only one thread until it is
+   * released.
+   *
+   * @param document The document
+   *
+   * @return An instance
+   */
+
+  SVGGraphics2D acquire(
+    final Document document)
+  {
+    final SVGGraphics2D graphics = this.available.pollFirst();
+    if (graphics == null) {
+      this.misses.incrementAndGet();
+      return new SVGGraphics2D(SVGGeneratorContext.createDefault(document), false);
+    }
+
+    this.size.decrementAndGet();
+    this.hits.incrementAndGet();
+    graphics.getGeneratorContext().setDOMFactory(document);
+    graphics.setTopLevelGroup(
+      document.createElementNS(SVGDOMImplementation.SVG_NAMESPACE_URI, "g"));
+    resetState(graphics);
+    return graphics;
+  }
+
+  /*
+   * Mirror the state that SVGGraphics2D.setGeneratorContext() gives a new
+   * instance: that of a new graphic context, overridden by any defaults of
+   * the generator context.
+   */
+
+  private static void resetState(
+    final SVGGraphics2D graphics)
+  {
+    final GraphicContext state = new GraphicContext(new AffineTransform());
+    final SVGGeneratorContext.GraphicContextDefaults defaults =
+      graphics.getGeneratorContext().getGraphicContextDefaults();
+    if (defaults != null) {
+      applyDefaults(state, defaults);
+    }
+
+    graphics.setTransform(state.getTransform());
+    graphics.setPaint(state.getPaint());
+    graphics.setStroke(state.getStroke());
+    graphics.setComposite(state.getComposite());
+    graphics.setClip(state.getClip());
+    graphics.setRenderingHints(state.getRenderingHints());
+    graphics.setFont(state.getFont());
+    graphics.setBackground(state.getBackground());
+  }
+
+  private static void applyDefaults(
+    final GraphicContext state,
+    final SVGGeneratorContext.GraphicContextDefaults defaults)
+  {
+    if (defaults.getPaint() != null) {
+      state.setPaint(defaults.getPaint());
+    }
+    if (defaults.getStroke() != null) {
+      state.setStroke(defaults.getStroke());
+    }
+    if (defaults.getComposite() != null) {
+      state.setComposite(defaults.getComposite());
+    }
+    if (defaults.getClip() != null) {
+      state.setClip(defaults.getClip());
+    }
+    if (defaults.getRenderingHints() != null) {
+      state.setRenderingHints(defaults.getRenderingHints());
+    }
+    if (defaults.getFont() != null) {
+      state.setFont(defaults.getFont());
+    }
+    if (defaults.getBackground() != null) {
+      state.setBackground(defaults.getBackground());
+    }
+  }
+
+  /**
+   * Return an instance to the pool, once the document that it drew into
+   * is complete.
+   *
+   * @param graphics The instance
+   */
+
+  void release(
+    final SVGGraphics2D graphics)
+  {
+    if (!graphics.getDefinitionSet().isEmpty()) {
+      this.discards.incrementAndGet();
+      return;
+    }
+    if (this.size.incrementAndGet() > this.capacity) {
+      this.size.decrementAndGet();
+      this.discards.incrementAndGet();
+      return;
+    }
+    this.available.push(graphics);
+  }
+
+  /**
+   * @return A snapshot of the pool statistics, in which misses count the
+   * instances created and evictions count the instances discarded
+   */
+
+  SigilCacheStatistics statistics()
+  {
+    return new SigilCacheStatistics(
+      this.hits.get(),
+      this.misses.get(),
+      this.discards.get(),
+      this.size.get(),
+      this.capacity);
+  }
+}
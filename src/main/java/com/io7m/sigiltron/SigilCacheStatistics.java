@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+/**
+ * A snapshot of the statistics of a bounded cache.
+ *
+ * @param hits      The number of lookups that found a cached value
+ * @param misses    The number of lookups that had to compute a value
+ * @param evictions The number of values evicted to make room for others
+ * @param size      The current number of cached values
+ * @param capacity  The maximum number of cached values
+ */
+
+public record SigilCacheStatistics(
+  long hits,
+  long misses,
+  long evictions,
+  int size,
+  int capacity)
+{
+  /**
+   * A snapshot of the statistics of a bounded cache.
+   *
+   * @param hits      The number of lookups that found a cached value
+   * @param misses    The number of lookups that had to compute a value
+   * @param evictions The number of values evicted to make room for others
+   * @param size      The current number of cached values
+   * @param capacity  The maximum number of cached values
+   */
+
+  public SigilCacheStatistics
+  {
+
+  }
+
+  /**
+   * @return The fraction of lookups that found a cached value
+   */
+
+  public double hitRatio()
+  {
+    final long total = this.hits + this.misses;
+    if (total == 0L) {
+      return 0.0;
+    }
+    return (double) this.hits / (double) total;
+  }
+}
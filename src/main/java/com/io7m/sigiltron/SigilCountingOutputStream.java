@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream that counts the bytes written through it.
+ */
+
+final class SigilCountingOutputStream extends FilterOutputStream
+{
+  private long count;
+
+  /**
+   * Construct a stream.
+   *
+   * @param in_stream The underlying stream
+   */
+
+  SigilCountingOutputStream(
+    final OutputStream in_stream)
+  {
+    super(in_stream);
+  }
+
+  /**
+   * @return The number of bytes written so far
+   */
+
+  long count()
+  {
+    return this.count;
+  }
+
+  @Override
+  public void write(
+    final int b)
+    throws IOException
+  {
+    this.out.write(b);
+    ++this.count;
+  }
+
+  @Override
+  public void write(
+    final byte[] buffer,
+    final int offset,
+    final int length)
+    throws IOException
+  {
+    this.out.write(buffer, offset, length);
+    this.count += (long) length;
+  }
+}
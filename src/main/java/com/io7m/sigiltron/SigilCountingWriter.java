@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A writer that counts the characters written through it.
+ */
+
+final class SigilCountingWriter extends FilterWriter
+{
+  private long count;
+
+  /**
+   * Construct a writer.
+   *
+   * @param in_writer The underlying writer
+   */
+
+  SigilCountingWriter(
+    final Writer in_writer)
+  {
+    super(in_writer);
+  }
+
+  /**
+   * @return The number of characters written so far
+   */
+
+  long count()
+  {
+    return this.count;
+  }
+
+  @Override
+  public void write(
+    final int c)
+    throws IOException
+  {
+    super.write(c);
+    ++this.count;
+  }
+
+  @Override
+  public void write(
+    final char[] buffer,
+    final int offset,
+    final int length)
+    throws IOException
+  {
+    super.write(buffer, offset, length);
+    this.count += (long) length;
+  }
+
+  @Override
+  public void write(
+    final String text,
+    final int offset,
+    final int length)
+    throws IOException
+  {
+    super.write(text, offset, length);
+    this.count += (long) length;
+  }
+}
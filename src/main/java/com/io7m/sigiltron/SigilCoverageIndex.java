@@ -0,0 +1,352 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.Font;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+/**
+ * An index of which code points each font family can display.
+ *
+ * <p>Coverage is held per family as a sparse set of 256-code-point pages,
+ * each page being a 256-bit bitset, so a family that is only ever asked
+ * about Latin text costs a few dozen bytes. Pages are computed with
+ * {@link Font#canDisplay(int)} the first time they are requested, for all
+ * of the requested families at once and in parallel, because a single
+ * family can take hundreds of milliseconds to scan completely.</p>
+ *
+ * <p>Computed pages are appended to a log file so that later runs do not
+ * need to scan the fonts again. The log begins with the font configuration
+ * fingerprint from {@link SigilFontListCache#fingerprint()}, and is
+ * discarded if the fingerprint no longer matches. A partially written
+ * record at the end of the log (from a process that was killed while
+ * appending) is truncated away when the log is loaded.</p>
+ */
+
+final class SigilCoverageIndex
+{
+  private static final Logger LOG;
+
+  static {
+    LOG = LoggerFactory.getLogger(SigilCoverageIndex.class);
+  }
+
+  /**
+   * The number of code points in a page.
+   */
+
+  static final int PAGE_SIZE = 256;
+
+  private static final long MAGIC = 0x5349_4743_4F56_3031L;
+  private static final int PAGE_WORDS = PAGE_SIZE / Long.SIZE;
+  private static final long[] EMPTY = new long[PAGE_WORDS];
+  private static final int PARALLEL_THRESHOLD = 8;
+
+  private final Object lock;
+  private final Optional<Path> file;
+  private final Map<String, Family> families;
+
+  private SigilCoverageIndex(
+    final Optional<Path> in_file)
+  {
+    this.lock = new Object();
+    this.file = Objects.requireNonNull(in_file, "File");
+    this.families = new HashMap<>(64);
+  }
+
+  /**
+   * @return The default location of the coverage log
+   */
+
+  static Path defaultFile()
+  {
+    return SigilDiskCache.defaultDirectory().resolve("coverage.log");
+  }
+
+  /**
+   * Open an index, loading any previously computed coverage from the given
+   * log file.
+   *
+   * @param file The log file, or nothing to keep the index in memory only
+   *
+   * @return An index
+   */
+
+  static SigilCoverageIndex open(
+    final Optional<Path> file)
+  {
+    final SigilCoverageIndex index = new SigilCoverageIndex(file);
+    if (file.isPresent()) {
+      index.load(file.get(), SigilFontListCache.fingerprint());
+    }
+    return index;
+  }
+
+  /**
+   * Retrieve the coverage of a page of code points for each of the given
+   * families, computing any coverage that is not yet known.
+   *
+   * @param names The family names
+   * @param page  The page, that is, the code point divided by
+   *              {@link #PAGE_SIZE}
+   *
+   * @return A bitset per family, in the order of {@code names}
+   */
+
+  long[][] page(
+    final List<String> names,
+    final int page)
+  {
+    final Integer key = Integer.valueOf(page);
+    final long[][] result = new long[names.size()][];
+
+    synchronized (this.lock) {
+      final Family[] missing = new Family[names.size()];
+      int missing_count = 0;
+      for (int index = 0; index < result.length; ++index) {
+        final Family family =
+          this.families.computeIfAbsent(names.get(index), Family::new);
+        result[index] = family.page(key);
+        if (result[index] == null) {
+          missing[index] = family;
+          ++missing_count;
+        }
+      }
+
+      if (missing_count > 0) {
+        IntStream stream = IntStream.range(0, result.length);
+        if (missing_count >= PARALLEL_THRESHOLD) {
+          stream = stream.parallel();
+        }
+        stream.filter(index -> missing[index] != null)
+          .forEach(index -> result[index] = missing[index].scan(page));
+
+        final ByteBuffer log = ByteBuffer.allocate(missing_count * 256);
+        for (int index = 0; index < result.length; ++index) {
+          if (missing[index] != null) {
+            missing[index].put(result[index], key);
+            this.record(log, missing[index].name(), page, result[index]);
+          }
+        }
+        this.append(log);
+      }
+    }
+    return result;
+  }
+
+  private void record(
+    final ByteBuffer log,
+    final String name,
+    final int page,
+    final long[] bits)
+  {
+    if (this.file.isEmpty()) {
+      return;
+    }
+    final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+    if (log.remaining() < 8 + bytes.length + PAGE_WORDS * 8) {
+      return;
+    }
+    log.putInt(bytes.length);
+    log.put(bytes);
+    log.putInt(page);
+    for (final long word : bits) {
+      log.putLong(word);
+    }
+  }
+
+  private void append(
+    final ByteBuffer log)
+  {
+    if (this.file.isEmpty() || log.position() == 0) {
+      return;
+    }
+    log.flip();
+    try (FileChannel channel = FileChannel.open(
+      this.file.get(), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+      while (log.hasRemaining()) {
+        channel.write(log);
+      }
+    } catch (final IOException e) {
+      LOG.warn("could not append to coverage log {}: {}", this.file.get(), e.getMessage());
+    }
+  }
+
+  private void load(
+    final Path path,
+    final String fingerprint)
+  {
+    try {
+      final ByteBuffer data = ByteBuffer.wrap(
+        Files.isRegularFile(path) ? Files.readAllBytes(path) : new byte[0]);
+
+      if (!readHeader(data, fingerprint)) {
+        resetLog(path, fingerprint);
+        return;
+      }
+
+      int good = data.position();
+      int pages = 0;
+      while (data.hasRemaining()) {
+        try {
+          this.readRecord(data);
+        } catch (final BufferUnderflowException | IllegalArgumentException e) {
+          break;
+        }
+        good = data.position();
+        ++pages;
+      }
+
+      if (good < data.limit()) {
+        try (FileChannel channel =
+               FileChannel.open(path, StandardOpenOption.WRITE)) {
+          channel.truncate(good);
+        }
+      }
+      LOG.debug(
+        "loaded {} coverage pages for {} families",
+        Integer.valueOf(pages),
+        Integer.valueOf(this.families.size()));
+    } catch (final IOException e) {
+      LOG.warn("could not load coverage log {}: {}", path, e.getMessage());
+    }
+  }
+
+  private static boolean readHeader(
+    final ByteBuffer data,
+    final String fingerprint)
+  {
+    try {
+      if (data.getLong() != MAGIC) {
+        return false;
+      }
+      return fingerprint.equals(readString(data));
+    } catch (final BufferUnderflowException | IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  private void readRecord(
+    final ByteBuffer data)
+  {
+    final String name = readString(data);
+    final int page = data.getInt();
+    final long[] bits = new long[PAGE_WORDS];
+    boolean any = false;
+    for (int index = 0; index < PAGE_WORDS; ++index) {
+      bits[index] = data.getLong();
+      any |= bits[index] != 0L;
+    }
+    this.families.computeIfAbsent(name, Family::new)
+      .put(any ? bits : EMPTY, Integer.valueOf(page));
+  }
+
+  private static String readString(
+    final ByteBuffer data)
+  {
+    final int length = data.getInt();
+    if (length < 0 || length > data.remaining()) {
+      throw new IllegalArgumentException(
+        String.format("Bad string length %d", Integer.valueOf(length)));
+    }
+    final ByteBuffer bytes = data.slice(data.position(), length);
+    data.position(data.position() + length);
+    return StandardCharsets.UTF_8.decode(bytes).toString();
+  }
+
+  private static void resetLog(
+    final Path path,
+    final String fingerprint)
+    throws IOException
+  {
+    final Path parent = path.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+
+    final byte[] text = fingerprint.getBytes(StandardCharsets.UTF_8);
+    final ByteBuffer header = ByteBuffer.allocate(12 + text.length);
+    header.putLong(MAGIC);
+    header.putInt(text.length);
+    header.put(text);
+    Files.write(path, header.array());
+  }
+
+  private static final class Family
+  {
+    private final String name;
+    private final Font font;
+    private final Map<Integer, long[]> pages;
+
+    Family(
+      final String in_name)
+    {
+      this.name = in_name;
+      this.font = new Font(in_name, Font.PLAIN, 1);
+      this.pages = new HashMap<>(16);
+    }
+
+    String name()
+    {
+      return this.name;
+    }
+
+    long[] page(
+      final Integer page)
+    {
+      return this.pages.get(page);
+    }
+
+    void put(
+      final long[] bits,
+      final Integer page)
+    {
+      this.pages.put(page, bits);
+    }
+
+    long[] scan(
+      final int page)
+    {
+      final long[] bits = new long[PAGE_WORDS];
+      boolean any = false;
+      final int base = page * PAGE_SIZE;
+      for (int offset = 0; offset < PAGE_SIZE; ++offset) {
+        if (this.font.canDisplay(base + offset)) {
+          bits[offset >>> 6] |= 1L << offset;
+          any = true;
+        }
+      }
+      return any ? bits : EMPTY;
+    }
+  }
+}
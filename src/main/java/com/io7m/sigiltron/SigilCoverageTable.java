@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * For a fixed list of font families, the indices of the families that can
+ * display each code point. The candidates for a page of code points are
+ * computed from a {@link SigilCoverageIndex} the first time any code point
+ * in the page is requested; after that, finding the candidates for a code
+ * point is two array loads.
+ */
+
+final class SigilCoverageTable
+{
+  private static final int PAGES =
+    (Character.MAX_CODE_POINT + 1) / SigilCoverageIndex.PAGE_SIZE;
+  private static final int[] NONE = new int[0];
+
+  private final Object lock;
+  private final SigilCoverageIndex index;
+  private final List<String> families;
+  private final AtomicReferenceArray<int[][]> pages;
+
+  SigilCoverageTable(
+    final SigilCoverageIndex in_index,
+    final List<String> in_families)
+  {
+    this.lock = new Object();
+    this.index = Objects.requireNonNull(in_index, "Index");
+    this.families = List.copyOf(in_families);
+    this.pages = new AtomicReferenceArray<>(PAGES);
+  }
+
+  /**
+   * @param other A list of families
+   *
+   * @return {@code true} if this table was built for the given families
+   */
+
+  boolean isFor(
+    final List<String> other)
+  {
+    return this.families == other || this.families.equals(other);
+  }
+
+  /**
+   * @param codepoint A code point
+   *
+   * @return The indices of the families that can display the code point
+   */
+
+  int[] candidates(
+    final int codepoint)
+  {
+    if (codepoint < 0 || codepoint > Character.MAX_CODE_POINT) {
+      return NONE;
+    }
+
+    final int page = codepoint / SigilCoverageIndex.PAGE_SIZE;
+    int[][] candidates = this.pages.get(page);
+    if (candidates == null) {
+      synchronized (this.lock) {
+        candidates = this.pages.get(page);
+        if (candidates == null) {
+          candidates = this.build(page);
+          this.pages.set(page, candidates);
+        }
+      }
+    }
+    return candidates[codepoint % SigilCoverageIndex.PAGE_SIZE];
+  }
+
+  private int[][] build(
+    final int page)
+  {
+    final long[][] coverage = this.index.page(this.families, page);
+    final int[][] candidates = new int[SigilCoverageIndex.PAGE_SIZE][];
+    final int[] scratch = new int[coverage.length];
+
+    for (int offset = 0; offset < candidates.length; ++offset) {
+      final long bit = 1L << offset;
+      int count = 0;
+      for (int family = 0; family < coverage.length; ++family) {
+        if ((coverage[family][offset >>> 6] & bit) != 0L) {
+          scratch[count] = family;
+          ++count;
+        }
+      }
+      candidates[offset] = count == 0 ? NONE : Arrays.copyOf(scratch, count);
+    }
+    return candidates;
+  }
+}
@@ -0,0 +1,587 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * A persistent, content-addressed cache of generated sigils.
+ *
+ * <p>Each sigil is identified by a SHA-256 digest of everything that
+ * determines its content: the intent, the seed, the names of the functions
+ * and the random source, the spread, the image size, the font set, the
+ * renderer and the version of the program. Sigils are stored as
+ * {@code objects/ab/cdef...svg} beneath the cache directory, where
+ * {@code abcdef...} is the hexadecimal digest.</p>
+ *
+ * <p>The file {@code index} is a memory-mapped open-addressing hash table of
+ * digests and object sizes, so a lookup probes a handful of slots rather
+ * than touching the directory. An object is always written completely and
+ * moved into place before its digest is added to the index, and the index
+ * is rebuilt by scanning the objects directory if it is missing or
+ * damaged.</p>
+ *
+ * <p>The cache is safe to use from multiple threads, and from multiple
+ * processes that share a directory. Every lookup and insertion holds an
+ * exclusive lock on the index file, and re-reads the index header under
+ * that lock, so that a table grown or rebuilt by another process is mapped
+ * again before it is used. Two caches in one process that share a
+ * directory must not be used from concurrent threads, because file locks
+ * are held on behalf of the whole process.</p>
+ */
+
+final class SigilDiskCache implements AutoCloseable
+{
+  private static final Logger LOG;
+
+  static {
+    LOG = LoggerFactory.getLogger(SigilDiskCache.class);
+  }
+
+  private static final long MAGIC = 0x5349_474C_4958_3031L;
+  private static final int HEADER_SIZE = 16;
+  private static final int DIGEST_SIZE = 32;
+  private static final int SLOT_SIZE = DIGEST_SIZE + 8;
+  private static final int INITIAL_SLOTS = 4096;
+  private static final int MAXIMUM_SLOTS = 1 << 24;
+  private static final String SUFFIX = ".svg";
+
+  private final Object lock;
+  private final Path objects;
+  private final FileChannel channel;
+  private MappedByteBuffer index;
+  private int slots;
+  private int used;
+  private long hits;
+  private long misses;
+
+  private SigilDiskCache(
+    final Path in_objects,
+    final FileChannel in_channel)
+  {
+    this.lock = new Object();
+    this.objects = Objects.requireNonNull(in_objects, "Objects");
+    this.channel = Objects.requireNonNull(in_channel, "Channel");
+  }
+
+  /**
+   * @return The default cache directory: {@code $XDG_CACHE_HOME/sigiltron},
+   * or {@code ~/.cache/sigiltron} if the variable is not set
+   */
+
+  static Path defaultDirectory()
+  {
+    final String xdg = System.getenv("XDG_CACHE_HOME");
+    if (xdg != null && !xdg.isBlank()) {
+      return Path.of(xdg, "sigiltron");
+    }
+    return Path.of(System.getProperty("user.home"), ".cache", "sigiltron");
+  }
+
+  /**
+   * Open a cache, creating it if necessary.
+   *
+   * @param directory The cache directory
+   *
+   * @return A cache
+   *
+   * @throws IOException On I/O errors
+   */
+
+  static SigilDiskCache open(
+    final Path directory)
+    throws IOException
+  {
+    final Path objects = directory.resolve("objects");
+    Files.createDirectories(objects);
+
+    final FileChannel channel = FileChannel.open(
+      directory.resolve("index"),
+      StandardOpenOption.CREATE,
+      StandardOpenOption.READ,
+      StandardOpenOption.WRITE);
+
+    final SigilDiskCache cache = new SigilDiskCache(objects, channel);
+    try {
+      synchronized (cache.lock) {
+        try (FileLock ignored = channel.lock()) {
+          cache.load();
+        }
+      }
+    } catch (final IOException e) {
+      channel.close();
+      throw e;
+    }
+    return cache;
+  }
+
+  /**
+   * Open a cache if a directory is given. A cache that cannot be opened is
+   * logged and treated as if no cache had been requested, because the cache
+   * is never required for correct operation.
+   *
+   * @param directory The cache directory, if any
+   *
+   * @return A cache, if one was requested and could be opened
+   */
+
+  static Optional<SigilDiskCache> openIfEnabled(
+    final Optional<Path> directory)
+  {
+    if (directory.isEmpty()) {
+      return Optional.empty();
+    }
+
+    try {
+      return Optional.of(open(directory.get()));
+    } catch (final IOException e) {
+      LOG.warn("sigil cache {} is unavailable: {}",
+               directory.get(), e.getMessage());
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Compute the key of the sigil produced by the given request and renderer.
+   *
+   * @param request  The request
+   * @param renderer The name of the renderer
+   *
+   * @return A SHA-256 digest
+   */
+
+  static byte[] keyOf(
+    final SigilGeneratorRequest request,
+    final String renderer)
+  {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+
+    final ByteBuffer numbers = ByteBuffer.allocate(8 * 5);
+    numbers.putLong(request.seed());
+    numbers.putLong(request.spread());
+    numbers.putLong(request.width());
+    numbers.putLong(request.height());
+    numbers.putLong(request.fonts().selected());
+
+    update(digest, "sigiltron-cache-1");
+    update(digest, String.valueOf(
+      SigilDiskCache.class.getPackage().getImplementationVersion()));
+    update(digest, renderer);
+    update(digest, request.textFunction().toString());
+    update(digest, request.fontFunction().toString());
+    update(digest, request.rotationFunction().toString());
+    update(digest, request.spreadFunction().toString());
+    update(digest, request.random().toString());
+    digest.update(numbers.array());
+    for (final String family : request.fonts().families()) {
+      update(digest, family);
+    }
+    update(digest, request.text());
+    return digest.digest();
+  }
+
+  private static void update(
+    final MessageDigest digest,
+    final String text)
+  {
+    final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+    digest.update(bytes);
+  }
+
+  private Path objectFile(
+    final byte[] key)
+  {
+    final String hex = HexFormat.of().formatHex(key);
+    return this.objects
+      .resolve(hex.substring(0, 2))
+      .resolve(hex.substring(2) + SUFFIX);
+  }
+
+  /**
+   * Find a cached sigil.
+   *
+   * @param key A key produced by {@link #keyOf(SigilGeneratorRequest, String)}
+   *
+   * @return The file holding the sigil, if the sigil is cached
+   */
+
+  Optional<Path> find(
+    final byte[] key)
+  {
+    checkKey(key);
+
+    boolean indexed;
+    synchronized (this.lock) {
+      try (FileLock ignored = this.channel.lock()) {
+        this.refresh();
+        final int slot = this.probe(key);
+        indexed = slot >= 0 && this.sizeAt(slot) != 0L;
+      } catch (final IOException e) {
+        LOG.warn("cache index is unreadable: {}", e.getMessage());
+        indexed = false;
+      }
+    }
+
+    final Path file = this.objectFile(key);
+    final boolean present = indexed && Files.isRegularFile(file);
+    synchronized (this.lock) {
+      if (present) {
+        ++this.hits;
+        return Optional.of(file);
+      }
+      ++this.misses;
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Store a sigil. The given file is copied into the cache, and is not
+   * modified.
+   *
+   * @param key    A key produced by {@link #keyOf(SigilGeneratorRequest, String)}
+   * @param source The file holding the sigil
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void store(
+    final byte[] key,
+    final Path source)
+    throws IOException
+  {
+    checkKey(key);
+
+    final Path file = this.objectFile(key);
+    final Path temporary = this.temporaryFor(file);
+    try {
+      Files.copy(source, temporary, StandardCopyOption.REPLACE_EXISTING);
+      this.commit(key, temporary, file);
+    } catch (final IOException e) {
+      discard(temporary, e);
+      throw e;
+    }
+  }
+
+  /**
+   * Store a sigil.
+   *
+   * @param key     A key produced by {@link #keyOf(SigilGeneratorRequest, String)}
+   * @param content The sigil
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void store(
+    final byte[] key,
+    final byte[] content)
+    throws IOException
+  {
+    checkKey(key);
+
+    final Path file = this.objectFile(key);
+    final Path temporary = this.temporaryFor(file);
+    try {
+      Files.write(temporary, content);
+      this.commit(key, temporary, file);
+    } catch (final IOException e) {
+      discard(temporary, e);
+      throw e;
+    }
+  }
+
+  private static void discard(
+    final Path temporary,
+    final IOException failure)
+  {
+    try {
+      Files.deleteIfExists(temporary);
+    } catch (final IOException e) {
+      failure.addSuppressed(e);
+    }
+  }
+
+  private Path temporaryFor(
+    final Path file)
+    throws IOException
+  {
+    final Path parent = Objects.requireNonNullElse(file.getParent(), this.objects);
+    Files.createDirectories(parent);
+    return Files.createTempFile(parent, "object", ".tmp");
+  }
+
+  private void commit(
+    final byte[] key,
+    final Path temporary,
+    final Path file)
+    throws IOException
+  {
+    Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+
+    final long size = Math.max(1L, Files.size(file));
+    synchronized (this.lock) {
+      try (FileLock ignored = this.channel.lock()) {
+        this.refresh();
+        this.insert(key, size);
+      }
+    }
+  }
+
+  private static void checkKey(
+    final byte[] key)
+  {
+    if (key.length != DIGEST_SIZE) {
+      throw new IllegalArgumentException(
+        String.format("Keys must be %d bytes long (received %d)",
+                      Integer.valueOf(DIGEST_SIZE),
+                      Integer.valueOf(key.length)));
+    }
+  }
+
+  /**
+   * @return The number of lookups that found a cached sigil
+   */
+
+  long hits()
+  {
+    synchronized (this.lock) {
+      return this.hits;
+    }
+  }
+
+  /**
+   * @return The number of lookups that did not find a cached sigil
+   */
+
+  long misses()
+  {
+    synchronized (this.lock) {
+      return this.misses;
+    }
+  }
+
+  @Override
+  public void close()
+    throws IOException
+  {
+    synchronized (this.lock) {
+      this.index.force();
+      this.channel.close();
+    }
+  }
+
+  private void load()
+    throws IOException
+  {
+    final long file_size = this.channel.size();
+    if (file_size >= HEADER_SIZE) {
+      final MappedByteBuffer existing =
+        this.channel.map(FileChannel.MapMode.READ_WRITE, 0L, file_size);
+      final int existing_slots = existing.getInt(8);
+      if (isValidSize(file_size, existing_slots)
+        && existing.getLong(0) == MAGIC) {
+        this.index = existing;
+        this.slots = existing_slots;
+        this.used = existing.getInt(12);
+        return;
+      }
+      LOG.warn("cache index is damaged; rebuilding");
+    }
+
+    this.map(INITIAL_SLOTS);
+    this.rebuildFromObjects();
+  }
+
+  /*
+   * Another process may have grown or rebuilt the index since it was last
+   * read, so the header is the only authority on its size. Must be called
+   * with the file lock held.
+   */
+
+  private void refresh()
+    throws IOException
+  {
+    final int header_slots = this.index.getInt(8);
+    if (header_slots != this.slots || this.index.getLong(0) != MAGIC) {
+      this.load();
+    }
+    this.used = this.index.getInt(12);
+  }
+
+  private static boolean isValidSize(
+    final long file_size,
+    final int slot_count)
+  {
+    final boolean in_range = slot_count > 0 && slot_count <= MAXIMUM_SLOTS;
+    final long required = HEADER_SIZE + (long) slot_count * SLOT_SIZE;
+    return in_range
+      && file_size >= required
+      && Integer.bitCount(slot_count) == 1;
+  }
+
+  private void map(
+    final int slot_count)
+    throws IOException
+  {
+    final long size = HEADER_SIZE + (long) slot_count * SLOT_SIZE;
+    this.index = this.channel.map(FileChannel.MapMode.READ_WRITE, 0L, size);
+    for (long position = HEADER_SIZE; position < size; position += 8L) {
+      this.index.putLong((int) position, 0L);
+    }
+    this.index.putLong(0, MAGIC);
+    this.index.putInt(8, slot_count);
+    this.index.putInt(12, 0);
+    this.slots = slot_count;
+    this.used = 0;
+  }
+
+  private void rebuildFromObjects()
+    throws IOException
+  {
+    final HexFormat hex = HexFormat.of();
+    try (Stream<Path> files = Files.walk(this.objects, 2)) {
+      for (final Path file : (Iterable<Path>) files::iterator) {
+        final String name = String.valueOf(file.getFileName());
+        final Path parent = file.getParent();
+        final Path prefix = parent == null ? null : parent.getFileName();
+        if (prefix == null || !name.endsWith(SUFFIX)) {
+          continue;
+        }
+
+        final String digest =
+          prefix + name.substring(0, name.length() - SUFFIX.length());
+        if (digest.length() == DIGEST_SIZE * 2
+          && digest.chars().allMatch(HexFormat::isHexDigit)) {
+          this.insert(hex.parseHex(digest), Math.max(1L, Files.size(file)));
+        }
+      }
+    }
+  }
+
+  /*
+   * Return the slot holding the key, or the empty slot where it belongs,
+   * or -1 if every slot holds some other key.
+   */
+
+  private int probe(
+    final byte[] key)
+  {
+    final int mask = this.slots - 1;
+    int slot = (int) ByteBuffer.wrap(key).getLong() & mask;
+    for (int probes = 0; probes < this.slots; ++probes) {
+      if (this.sizeAt(slot) == 0L || this.keyMatches(slot, key)) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  private long sizeAt(
+    final int slot)
+  {
+    return this.index.getLong(
+      HEADER_SIZE + slot * SLOT_SIZE + DIGEST_SIZE);
+  }
+
+  private boolean keyMatches(
+    final int slot,
+    final byte[] key)
+  {
+    final int base = HEADER_SIZE + slot * SLOT_SIZE;
+    for (int offset = 0; offset < DIGEST_SIZE; ++offset) {
+      if (this.index.get(base + offset) != key[offset]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void insert(
+    final byte[] key,
+    final long size)
+    throws IOException
+  {
+    if (this.used + 1 > (this.slots / 4) * 3) {
+      this.grow();
+    }
+
+    int slot = this.probe(key);
+    if (slot < 0) {
+      this.grow();
+      slot = this.probe(key);
+    }
+    final int base = HEADER_SIZE + slot * SLOT_SIZE;
+    final boolean fresh = this.sizeAt(slot) == 0L;
+    this.index.put(base, key);
+    this.index.putLong(base + DIGEST_SIZE, size);
+    if (fresh) {
+      ++this.used;
+      this.index.putInt(12, this.used);
+    }
+  }
+
+  private void grow()
+    throws IOException
+  {
+    if (this.slots >= MAXIMUM_SLOTS) {
+      throw new IOException(
+        String.format("Cache index is full (%d entries)",
+                      Integer.valueOf(this.used)));
+    }
+
+    final int old_slots = this.slots;
+    final byte[] entries = new byte[old_slots * SLOT_SIZE];
+    this.index.get(HEADER_SIZE, entries);
+
+    this.map(old_slots * 2);
+
+    final ByteBuffer view = ByteBuffer.wrap(entries);
+    final byte[] key = new byte[DIGEST_SIZE];
+    for (int slot = 0; slot < old_slots; ++slot) {
+      final int base = slot * SLOT_SIZE;
+      final long size = view.getLong(base + DIGEST_SIZE);
+      if (size != 0L) {
+        view.get(base, key);
+        this.insert(key, size);
+      }
+    }
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import com.io7m.junreachable.UnreachableCodeException;
+import org.apache.batik.dom.GenericDOMImplementation;
+import org.apache.batik.dom.util.DOMUtilities;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.svg.SVGDocument;
+
+import javax.xml.XMLConstants;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Functions to serialize generated documents.
+ */
+
+final class SigilDocuments
+{
+  private SigilDocuments()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Serialize the given document, prefixed with an XML declaration and a
+   * comment naming the generating program.
+   *
+   * @param document The document
+   * @param writer   The output writer
+   *
+   * @throws IOException On I/O errors
+   */
+
+  static void write(
+    final SVGDocument document,
+    final Writer writer)
+    throws IOException
+  {
+    final SigilEventSerialize event = new SigilEventSerialize();
+    event.begin();
+    final SigilCountingWriter counted = new SigilCountingWriter(writer);
+    serialize(document, counted);
+    counted.flush();
+    event.finish(counted.count());
+  }
+
+  /**
+   * Serialize an optimized copy of the given document as UTF-8, as
+   * {@link #write(SVGDocument, Writer)} does. The document is copied into a
+   * generic DOM document before it is optimized, because Batik documents
+   * restore the default values of some attributes when those attributes
+   * are removed. The document itself is also serialized, and discarded, in
+   * order to measure the effect of the optimizer.
+   *
+   * @param document  The document
+   * @param optimizer The optimizer
+   * @param stream    The output stream
+   *
+   * @return The sizes of the document before and after optimization
+   *
+   * @throws IOException On I/O errors
+   */
+
+  static SigilSVGOptimization writeOptimized(
+    final SVGDocument document,
+    final SigilSVGOptimizer optimizer,
+    final OutputStream stream)
+    throws IOException
+  {
+    final SigilCountingOutputStream before =
+      new SigilCountingOutputStream(OutputStream.nullOutputStream());
+    try (Writer writer = new OutputStreamWriter(before, StandardCharsets.UTF_8)) {
+      serialize(document, writer);
+    }
+
+    final Document copy = plainCopyOf(document);
+    optimizer.optimize(copy);
+
+    final SigilEventSerialize event = new SigilEventSerialize();
+    event.begin();
+    final SigilCountingOutputStream after =
+      new SigilCountingOutputStream(stream);
+    final Writer writer = new OutputStreamWriter(after, StandardCharsets.UTF_8);
+    serialize(copy, writer);
+    writer.flush();
+    event.finish(after.count());
+    return new SigilSVGOptimization(before.count(), after.count());
+  }
+
+  private static Document plainCopyOf(
+    final SVGDocument document)
+  {
+    final Element root = document.getDocumentElement();
+    final Document copy =
+      GenericDOMImplementation.getDOMImplementation()
+        .createDocument(root.getNamespaceURI(), root.getTagName(), null);
+    final Element copy_root = (Element) copy.importNode(root, true);
+    copy.replaceChild(copy_root, copy.getDocumentElement());
+
+    /*
+     * Namespace declarations are default attributes of Batik documents, and
+     * so are not copied along with the element.
+     */
+
+    final NamedNodeMap attributes = root.getAttributes();
+    for (int index = 0; index < attributes.getLength(); ++index) {
+      final Attr attribute = (Attr) attributes.item(index);
+      if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attribute.getNamespaceURI())) {
+        copy_root.setAttributeNS(
+          XMLConstants.XMLNS_ATTRIBUTE_NS_URI,
+          attribute.getName(),
+          attribute.getValue());
+      }
+    }
+    return copy;
+  }
+
+  private static void serialize(
+    final Document document,
+    final Writer writer)
+    throws IOException
+  {
+    final Package p = SigilDocuments.class.getPackage();
+    writer.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+    final String p_impl = p.getImplementationTitle();
+    final String p_vers = p.getImplementationVersion();
+    writer.append(String.format("<!-- %s %s -->", p_impl, p_vers));
+    writer.append(System.lineSeparator());
+    DOMUtilities.writeDocument(document, writer);
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * An event recording the completion of a Batik document with
+ * {@code SVGGraphics2D.getRoot}.
+ */
+
+@Name("com.io7m.sigiltron.BatikRoot")
+@Label("Batik Root")
+@Category({"Sigiltron", "Generation"})
+@Description(
+  "The transfer of the DOM tree built by SVGGraphics2D into the "
+  + "document (getRoot)")
+@StackTrace(false)
+final class SigilEventBatikRoot extends Event
+{
+  @Label("Glyph Count")
+  @Description("The number of glyphs drawn")
+  private int glyph_count;
+
+  SigilEventBatikRoot()
+  {
+
+  }
+
+  /**
+   * End the event and commit it, if it is enabled and exceeds its
+   * threshold.
+   *
+   * @param in_glyph_count The number of glyphs drawn
+   */
+
+  void finish(
+    final int in_glyph_count)
+  {
+    this.end();
+    if (this.shouldCommit()) {
+      this.glyph_count = in_glyph_count;
+      this.commit();
+    }
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * An event recording the construction of the GVT tree by the canvas in the
+ * main window.
+ */
+
+@Name("com.io7m.sigiltron.CanvasBuild")
+@Label("Canvas Build")
+@Category({"Sigiltron", "Generation"})
+@Description(
+  "The construction of the Batik GVT tree for a document shown in the "
+  + "window")
+@StackTrace(false)
+final class SigilEventCanvasBuild extends Event
+{
+  @Label("Outcome")
+  @Description("Whether the build completed, failed or was cancelled")
+  private String outcome;
+
+  SigilEventCanvasBuild()
+  {
+
+  }
+
+  /**
+   * End the event and commit it, if it is enabled and exceeds its
+   * threshold.
+   *
+   * @param in_outcome The outcome
+   */
+
+  void finish(
+    final String in_outcome)
+  {
+    this.end();
+    if (this.shouldCommit()) {
+      this.outcome = in_outcome;
+      this.commit();
+    }
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * An event recording the lookup of the fonts of the glyphs of a sigil.
+ */
+
+@Name("com.io7m.sigiltron.FontResolution")
+@Label("Font Resolution")
+@Category({"Sigiltron", "Generation"})
+@Description(
+  "The lookup, and decoding on a cache miss, of the font used for "
+  + "every glyph")
+@StackTrace(false)
+final class SigilEventFontResolution extends Event
+{
+  @Label("Glyph Count")
+  @Description("The number of glyphs")
+  private int glyph_count;
+
+  @Label("Font Cache Hits")
+  @Description("The number of glyphs whose font was already in the font cache")
+  private int font_cache_hits;
+
+  @Label("Font Cache Misses")
+  @Description("The number of glyphs whose font had to be derived")
+  private int font_cache_misses;
+
+  SigilEventFontResolution()
+  {
+
+  }
+
+  /**
+   * End the event and commit it, if it is enabled and exceeds its
+   * threshold.
+   *
+   * @param in_glyph_count The number of glyphs
+   * @param in_misses      The number of font cache misses
+   */
+
+  void finish(
+    final int in_glyph_count,
+    final int in_misses)
+  {
+    this.end();
+    if (this.shouldCommit()) {
+      this.glyph_count = in_glyph_count;
+      this.font_cache_hits = in_glyph_count - in_misses;
+      this.font_cache_misses = in_misses;
+      this.commit();
+    }
+  }
+}
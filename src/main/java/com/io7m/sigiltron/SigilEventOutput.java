@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * An event recording the production of a complete sigil file or response.
+ */
+
+@Name("com.io7m.sigiltron.Output")
+@Label("Output")
+@Category({"Sigiltron", "Generation"})
+@Description(
+  "The production of a complete sigil, from the disk cache or by "
+  + "generating it")
+@StackTrace(false)
+final class SigilEventOutput extends Event
+{
+  @Label("Renderer")
+  @Description("The name of the renderer")
+  private String renderer;
+
+  @Label("Bytes")
+  @Description("The size of the sigil")
+  @DataAmount(DataAmount.BYTES)
+  private long bytes;
+
+  @Label("Disk Cache Hit")
+  @Description("True if the sigil was taken from the disk cache")
+  private boolean disk_cache_hit;
+
+  SigilEventOutput()
+  {
+
+  }
+
+  /**
+   * End the event and commit it, if it is enabled and exceeds its
+   * threshold.
+   *
+   * @param in_renderer       The name of the renderer
+   * @param in_bytes          The size of the sigil in bytes
+   * @param in_disk_cache_hit True if the sigil was taken from the disk cache
+   */
+
+  void finish(
+    final String in_renderer,
+    final long in_bytes,
+    final boolean in_disk_cache_hit)
+  {
+    this.end();
+    if (this.shouldCommit()) {
+      this.renderer = in_renderer;
+      this.bytes = in_bytes;
+      this.disk_cache_hit = in_disk_cache_hit;
+      this.commit();
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * An event recording the passing of the glyphs of a sigil to a renderer.
+ */
+
+@Name("com.io7m.sigiltron.Render")
+@Label("Render")
+@Category({"Sigiltron", "Generation"})
+@Description(
+  "The drawing of every glyph by a renderer; for the streaming "
+  + "renderers this includes writing the SVG text")
+@StackTrace(false)
+final class SigilEventRender extends Event
+{
+  @Label("Renderer")
+  @Description("The renderer")
+  private String renderer;
+
+  @Label("Glyph Count")
+  @Description("The number of glyphs")
+  private int glyph_count;
+
+  SigilEventRender()
+  {
+
+  }
+
+  /**
+   * End the event and commit it, if it is enabled and exceeds its
+   * threshold.
+   *
+   * @param in_renderer    The renderer
+   * @param in_glyph_count The number of glyphs
+   */
+
+  void finish(
+    final SigilRendererType in_renderer,
+    final int in_glyph_count)
+  {
+    this.end();
+    if (this.shouldCommit()) {
+      this.renderer = in_renderer.getClass().getSimpleName();
+      this.glyph_count = in_glyph_count;
+      this.commit();
+    }
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * An event recording the application of a text function to an intent.
+ */
+
+@Name("com.io7m.sigiltron.TextFunction")
+@Label("Text Function")
+@Category({"Sigiltron", "Generation"})
+@Description(
+  "The application of a text function to the code points of an intent")
+@StackTrace(false)
+final class SigilEventTextFunction extends Event
+{
+  @Label("Function")
+  @Description("The text function")
+  private String function;
+
+  @Label("Input Length")
+  @Description("The number of code points in the intent")
+  private int input_length;
+
+  @Label("Output Length")
+  @Description("The number of code points remaining after the text function")
+  private int output_length;
+
+  SigilEventTextFunction()
+  {
+
+  }
+
+  /**
+   * End the event and commit it, if it is enabled and exceeds its
+   * threshold.
+   *
+   * @param in_function      The text function
+   * @param in_input_length  The number of code points in the intent
+   * @param in_output_length The number of code points remaining
+   */
+
+  void finish(
+    final SigilTextFunctionType in_function,
+    final int in_input_length,
+    final int in_output_length)
+  {
+    this.end();
+    if (this.shouldCommit()) {
+      this.function = String.valueOf(in_function);
+      this.input_length = in_input_length;
+      this.output_length = in_output_length;
+      this.commit();
+    }
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.awt.Font;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongFunction;
+
+/**
+ * A bounded cache of fonts keyed by family and size. Each family is opened
+ * exactly once into a base font and assigned a small integer identifier;
+ * fonts of a particular size are derived from the base font and cached in a
+ * {@link SigilLongLRUCache} under the key {@code (family << 32) | size}.
+ * The set of families is bounded by the fonts installed on the system, so
+ * base fonts are never evicted.
+ */
+
+final class SigilFontCache
+{
+  /**
+   * The default number of derived fonts retained.
+   */
+
+  static final int DEFAULT_CAPACITY = 4096;
+
+  private final Map<String, Integer> family_ids;
+  private final SigilLongLRUCache<Font> fonts;
+  private final LongFunction<Font> loader;
+  private final List<Font> base_fonts;
+
+  /**
+   * Construct a cache.
+   *
+   * @param capacity The maximum number of derived fonts retained
+   */
+
+  SigilFontCache(
+    final int capacity)
+  {
+    this.family_ids = new HashMap<>(64);
+    this.fonts = new SigilLongLRUCache<>(capacity);
+    this.loader = this::derive;
+    this.base_fonts = new CopyOnWriteArrayList<>();
+  }
+
+  /**
+   * Resolve identifiers for the given families, registering any families
+   * that have not been seen before. The returned array is indexed in the
+   * same order as {@code families}.
+   *
+   * @param families The font families
+   *
+   * @return The family identifiers
+   */
+
+  int[] familyIds(
+    final List<String> families)
+  {
+    final int[] ids = new int[families.size()];
+    synchronized (this.family_ids) {
+      for (int index = 0; index < ids.length; ++index) {
+        ids[index] = this.familyIdLocked(families.get(index));
+      }
+    }
+    return ids;
+  }
+
+  private int familyIdLocked(
+    final String family)
+  {
+    final Integer existing = this.family_ids.get(family);
+    if (existing != null) {
+      return existing.intValue();
+    }
+
+    final int id = this.base_fonts.size();
+    this.base_fonts.add(new Font(family, Font.PLAIN, 1));
+    this.family_ids.put(family, Integer.valueOf(id));
+    return id;
+  }
+
+  /**
+   * Retrieve a font for the given family and size.
+   *
+   * @param family_id A family identifier returned by {@link #familyIds(List)}
+   * @param size      The font size
+   *
+   * @return A font
+   */
+
+  Font font(
+    final int family_id,
+    final int size)
+  {
+    final long key = ((long) family_id << 32) | (size & 0xffff_ffffL);
+    return this.fonts.get(key, this.loader);
+  }
+
+  /**
+   * Retrieve the fonts for a sequence of glyphs.
+   *
+   * @param ids      The family identifiers returned by
+   *                 {@link #familyIds(List)}
+   * @param families The index in {@code ids} of the family of each glyph
+   * @param sizes    The font size of each glyph
+   * @param output   The output array of fonts
+   * @param count    The number of glyphs
+   *
+   * @return The number of glyphs whose font was not in the cache
+   */
+
+  int resolve(
+    final int[] ids,
+    final int[] families,
+    final int[] sizes,
+    final Font[] output,
+    final int count)
+  {
+    final int[] misses = new int[1];
+    final LongFunction<Font> counting = key -> {
+      ++misses[0];
+      return this.derive(key);
+    };
+
+    for (int index = 0; index < count; ++index) {
+      final long key =
+        ((long) ids[families[index]] << 32)
+          | (sizes[index] & 0xffff_ffffL);
+      output[index] = this.fonts.get(key, counting);
+    }
+    return misses[0];
+  }
+
+  private Font derive(
+    final long key)
+  {
+    final Font base = this.base_fonts.get((int) (key >>> 32));
+    return base.deriveFont((float) (int) key);
+  }
+
+  /**
+   * @return A snapshot of the cache statistics
+   */
+
+  SigilCacheStatistics statistics()
+  {
+    return this.fonts.statistics();
+  }
+}
@@ -16,43 +16,44 @@
 
 package com.io7m.sigiltron;
 
-import javax.swing.JComboBox;
-import java.security.SecureRandom;
-import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 /**
- * A function that uses the currently selected font for all characters.
+ * A function that picks a random font for each character.
  */
 
 public final class SigilFontFunctionRandom implements SigilFontFunctionType
 {
-  private final JComboBox<String> box;
-  private final SecureRandom random;
-
   /**
    * Construct a font function.
-   *
-   * @param in_box The font selector.
    */
 
-  public SigilFontFunctionRandom(
-    final JComboBox<String> in_box)
+  public SigilFontFunctionRandom()
   {
-    this.box = Objects.requireNonNull(in_box, "Box");
-    this.random = new SecureRandom();
+
   }
 
-  @SuppressWarnings("boxing")
   @Override
   public String getFont(
+    final SigilFontSet fonts,
     final Character c,
     final int size)
   {
-    final int count = this.box.getItemCount();
-    final String name = this.box.getItemAt(this.random.nextInt(count));
-    final String r = String.format("%s %d", name, size);
-    assert r != null;
-    return r;
+    final int family =
+      this.familyOf(ThreadLocalRandom.current(), fonts, c.charValue(), size);
+    return String.format(
+      "%s %d", fonts.families().get(family), Integer.valueOf(size));
+  }
+
+  @Override
+  public int familyOf(
+    final RandomGenerator random,
+    final SigilFontSet fonts,
+    final int codepoint,
+    final int size)
+  {
+    return random.nextInt(fonts.families().size());
   }
 
   @Override
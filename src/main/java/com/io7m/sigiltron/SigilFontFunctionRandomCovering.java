@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * A function that picks a random font for each character from the fonts
+ * that can actually display the character, so that sigils do not contain
+ * missing-glyph boxes. If no font can display a character, any font is
+ * picked, as with {@link SigilFontFunctionRandom}.
+ *
+ * <p>Coverage is looked up in a {@link SigilCoverageIndex} that is loaded
+ * (from the cache directory) when the function is first used.</p>
+ */
+
+public final class SigilFontFunctionRandomCovering
+  implements SigilFontFunctionType
+{
+  private final Object lock;
+  private SigilCoverageIndex index;
+  private volatile SigilCoverageTable table;
+
+  /**
+   * Construct a font function.
+   */
+
+  public SigilFontFunctionRandomCovering()
+  {
+    this.lock = new Object();
+  }
+
+  @Override
+  public String getFont(
+    final SigilFontSet fonts,
+    final Character c,
+    final int size)
+  {
+    final int family =
+      this.familyOf(ThreadLocalRandom.current(), fonts, c.charValue(), size);
+    return String.format(
+      "%s %d", fonts.families().get(family), Integer.valueOf(size));
+  }
+
+  @Override
+  public int familyOf(
+    final RandomGenerator random,
+    final SigilFontSet fonts,
+    final int codepoint,
+    final int size)
+  {
+    final List<String> families = fonts.families();
+    final int[] candidates = this.tableFor(families).candidates(codepoint);
+    if (candidates.length == 0) {
+      return random.nextInt(families.size());
+    }
+    return candidates[random.nextInt(candidates.length)];
+  }
+
+  private SigilCoverageTable tableFor(
+    final List<String> families)
+  {
+    final SigilCoverageTable current = this.table;
+    if (current != null && current.isFor(families)) {
+      return current;
+    }
+
+    synchronized (this.lock) {
+      final SigilCoverageTable again = this.table;
+      if (again != null && again.isFor(families)) {
+        return again;
+      }
+      if (this.index == null) {
+        this.index =
+          SigilCoverageIndex.open(Optional.of(SigilCoverageIndex.defaultFile()));
+      }
+      final SigilCoverageTable created =
+        new SigilCoverageTable(this.index, families);
+      this.table = created;
+      return created;
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return "Use random font that can display each character";
+  }
+}
@@ -16,8 +16,8 @@
 
 package com.io7m.sigiltron;
 
-import javax.swing.JComboBox;
-import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * A function that uses the currently selected font for all characters.
@@ -25,29 +25,35 @@ import java.util.Objects;
 
 public final class SigilFontFunctionSelected implements SigilFontFunctionType
 {
-  private final JComboBox<String> box;
-
   /**
    * Construct a font function.
-   *
-   * @param in_box The font selector.
    */
 
-  public SigilFontFunctionSelected(
-    final JComboBox<String> in_box)
+  public SigilFontFunctionSelected()
   {
-    this.box = Objects.requireNonNull(in_box, "Box");
+
   }
 
-  @SuppressWarnings("boxing")
   @Override
   public String getFont(
+    final SigilFontSet fonts,
     final Character c,
     final int size)
   {
-    final String r = String.format("%s %d", this.box.getSelectedItem(), size);
-    assert r != null;
-    return r;
+    final int family =
+      this.familyOf(ThreadLocalRandom.current(), fonts, c.charValue(), size);
+    return String.format(
+      "%s %d", fonts.families().get(family), Integer.valueOf(size));
+  }
+
+  @Override
+  public int familyOf(
+    final RandomGenerator random,
+    final SigilFontSet fonts,
+    final int codepoint,
+    final int size)
+  {
+    return fonts.selected();
   }
 
   @Override
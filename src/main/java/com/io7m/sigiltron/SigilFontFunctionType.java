@@ -16,6 +16,8 @@
 
 package com.io7m.sigiltron;
 
+import java.util.random.RandomGenerator;
+
 /**
  * The type of functions that decide fonts for characters.
  */
@@ -23,13 +25,75 @@ package com.io7m.sigiltron;
 public interface SigilFontFunctionType
 {
   /**
-   * @param c    A character
-   * @param size The font size
+   * @param fonts The available fonts
+   * @param c     A character
+   * @param size  The font size
    *
    * @return A font string for the given character.
    */
 
   String getFont(
+    SigilFontSet fonts,
     Character c,
     int size);
+
+  /**
+   * @param random    The random generator
+   * @param fonts     The available fonts
+   * @param codepoint A character
+   * @param size      The font size
+   *
+   * @return A font string for the given character.
+   *
+   * @deprecated Use {@link #familyOf(RandomGenerator, SigilFontSet, int, int)},
+   * which returns an index into the font set rather than formatting a string
+   * that must be decoded again.
+   */
+
+  @Deprecated
+  @SuppressWarnings("boxing")
+  default String fontOf(
+    final RandomGenerator random,
+    final SigilFontSet fonts,
+    final int codepoint,
+    final int size)
+  {
+    final int family = this.familyOf(random, fonts, codepoint, size);
+    return String.format("%s %d", fonts.families().get(family), size);
+  }
+
+  /**
+   * A primitive variant of
+   * {@link #getFont(SigilFontSet, Character, int)} that draws its values
+   * from the given random generator, and so produces reproducible results.
+   * The default implementation adapts
+   * {@link #getFont(SigilFontSet, Character, int)}, which cannot use the
+   * given generator, and looks up the family that it names; code points
+   * outside of the Basic Multilingual Plane are truncated, and a family
+   * that is not in the font set is replaced with the selected family.
+   *
+   * @param random    The random generator
+   * @param fonts     The available fonts
+   * @param codepoint A character
+   * @param size      The font size
+   *
+   * @return The index in {@code fonts} of the font family to use for the
+   * given character
+   */
+
+  default int familyOf(
+    final RandomGenerator random,
+    final SigilFontSet fonts,
+    final int codepoint,
+    final int size)
+  {
+    final String font =
+      this.getFont(fonts, Character.valueOf((char) codepoint), size);
+    final String suffix = " " + size;
+    final String family = font.endsWith(suffix)
+      ? font.substring(0, font.length() - suffix.length())
+      : font;
+    final int index = fonts.families().indexOf(family);
+    return index >= 0 ? index : fonts.selected();
+  }
 }
@@ -0,0 +1,256 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import com.io7m.junreachable.UnreachableCodeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * A persistent copy of the enumerated font families.
+ *
+ * <p>Enumerating the installed fonts can take seconds on systems with many
+ * fonts, so the list is saved to {@code font-families.txt} in the cache
+ * directory along with a fingerprint of the font configuration. The
+ * fingerprint is a digest of the modification times of the font and
+ * fontconfig directories, which is the same test that fontconfig uses to
+ * decide whether its own caches are stale: installing, removing or
+ * replacing a font changes the modification time of the directory that
+ * contains it.</p>
+ */
+
+final class SigilFontListCache
+{
+  private static final Logger LOG;
+
+  static {
+    LOG = LoggerFactory.getLogger(SigilFontListCache.class);
+  }
+
+  private static final String HEADER = "sigiltron-font-families 1";
+  private static final int DEPTH = 3;
+
+  private SigilFontListCache()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * @return The default location of the font list
+   */
+
+  static Path defaultFile()
+  {
+    return SigilDiskCache.defaultDirectory().resolve("font-families.txt");
+  }
+
+  /**
+   * Load a saved font list. The fingerprint is not checked, so that the
+   * list can be shown before the (comparatively slow) fingerprint is
+   * computed.
+   *
+   * @param file The file
+   *
+   * @return The saved list, if the file exists and is valid
+   */
+
+  static Optional<SigilFontList> load(
+    final Path file)
+  {
+    try {
+      if (!Files.isRegularFile(file)) {
+        return Optional.empty();
+      }
+      final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+      if (lines.size() < 2 || !HEADER.equals(lines.get(0))) {
+        LOG.debug("ignoring malformed font list {}", file);
+        return Optional.empty();
+      }
+      return Optional.of(
+        new SigilFontList(lines.get(1), lines.subList(2, lines.size())));
+    } catch (final IOException e) {
+      LOG.debug("could not read font list {}: {}", file, e.getMessage());
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Save a font list. The list is written to a temporary file and then
+   * moved into place, so readers never see a partial list. Failures are
+   * logged and otherwise ignored; the list is only an optimization.
+   *
+   * @param file The file
+   * @param list The list
+   */
+
+  static void save(
+    final Path file,
+    final SigilFontList list)
+  {
+    final Path parent = file.toAbsolutePath().getParent();
+    if (parent == null) {
+      return;
+    }
+
+    final List<String> lines = new ArrayList<>(list.families().size() + 2);
+    lines.add(HEADER);
+    lines.add(list.fingerprint());
+    lines.addAll(list.families());
+
+    try {
+      Files.createDirectories(parent);
+      final Path temporary =
+        Files.createTempFile(parent, "font-families", ".tmp");
+      try {
+        Files.write(temporary, lines, StandardCharsets.UTF_8);
+        Files.move(
+          temporary,
+          file,
+          StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+      } catch (final IOException e) {
+        Files.deleteIfExists(temporary);
+        throw e;
+      }
+    } catch (final IOException e) {
+      LOG.warn("could not save font list {}: {}", file, e.getMessage());
+    }
+  }
+
+  /**
+   * @return A fingerprint of the current font configuration
+   */
+
+  static String fingerprint()
+  {
+    final MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+
+    update(digest, System.getProperty("java.vendor", ""));
+    update(digest, System.getProperty("java.version", ""));
+    update(digest, System.getProperty("os.name", ""));
+
+    for (final Path directory : fontDirectories()) {
+      updateTree(digest, directory);
+    }
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  private static List<Path> fontDirectories()
+  {
+    final String home = System.getProperty("user.home", "");
+    final List<Path> directories = new ArrayList<>(16);
+    directories.add(Path.of(System.getProperty("java.home", ""), "lib", "fonts"));
+
+    directories.add(Path.of("/etc/fonts"));
+    directories.add(Path.of("/usr/share/fonts"));
+    directories.add(Path.of("/usr/local/share/fonts"));
+    directories.add(Path.of("/var/cache/fontconfig"));
+    directories.add(Path.of(home, ".fonts"));
+    directories.add(
+      environmentOr("XDG_DATA_HOME", home, ".local/share").resolve("fonts"));
+    directories.add(
+      environmentOr("XDG_CACHE_HOME", home, ".cache").resolve("fontconfig"));
+
+    directories.add(Path.of("/Library/Fonts"));
+    directories.add(Path.of("/System/Library/Fonts"));
+    directories.add(Path.of(home, "Library", "Fonts"));
+
+    final String windows = System.getenv("WINDIR");
+    if (windows != null) {
+      directories.add(Path.of(windows, "Fonts"));
+    }
+    final String local = System.getenv("LOCALAPPDATA");
+    if (local != null) {
+      directories.add(Path.of(local, "Microsoft", "Windows", "Fonts"));
+    }
+    return directories;
+  }
+
+  private static Path environmentOr(
+    final String variable,
+    final String home,
+    final String fallback)
+  {
+    final String value = System.getenv(variable);
+    if (value != null && !value.isBlank()) {
+      return Path.of(value);
+    }
+    return Path.of(home, fallback);
+  }
+
+  private static void updateTree(
+    final MessageDigest digest,
+    final Path root)
+  {
+    update(digest, root.toString());
+    if (!Files.isDirectory(root)) {
+      update(digest, "absent");
+      return;
+    }
+
+    try (Stream<Path> paths = Files.walk(root, DEPTH)) {
+      paths.filter(Files::isDirectory)
+        .sorted()
+        .forEach(path -> updateModified(digest, path));
+    } catch (final IOException | RuntimeException e) {
+      update(digest, "unreadable");
+    }
+  }
+
+  private static void updateModified(
+    final MessageDigest digest,
+    final Path path)
+  {
+    update(digest, path.toString());
+    try {
+      digest.update(
+        ByteBuffer.allocate(8)
+          .putLong(Files.getLastModifiedTime(path).toMillis())
+          .array());
+    } catch (final IOException e) {
+      update(digest, "unreadable");
+    }
+  }
+
+  private static void update(
+    final MessageDigest digest,
+    final String text)
+  {
+    final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+    digest.update(bytes);
+  }
+}
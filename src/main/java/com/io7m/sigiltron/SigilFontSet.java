@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * An immutable snapshot of the font families available to font functions.
+ *
+ * @param families The font families
+ * @param selected The index of the selected font family
+ */
+
+public record SigilFontSet(
+  List<String> families,
+  int selected)
+{
+  /**
+   * An immutable snapshot of the font families available to font functions.
+   *
+   * @param families The font families
+   * @param selected The index of the selected font family
+   */
+
+  public SigilFontSet
+  {
+    families = List.copyOf(families);
+    Objects.checkIndex(selected, families.size());
+  }
+
+  /**
+   * Create a font set that selects the given family, or the first family
+   * if no family is given.
+   *
+   * @param families The font families
+   * @param font     The selected family
+   *
+   * @return A font set
+   *
+   * @throws IllegalArgumentException If the family is not available
+   */
+
+  static SigilFontSet selecting(
+    final List<String> families,
+    final Optional<String> font)
+  {
+    final int selected =
+      font.map(families::indexOf)
+        .orElse(Integer.valueOf(0))
+        .intValue();
+
+    if (selected < 0) {
+      throw new IllegalArgumentException(
+        String.format("Font %s is not available", font.get()));
+    }
+    return new SigilFontSet(families, selected);
+  }
+
+  /**
+   * @return The selected font family
+   */
+
+  public String selectedFamily()
+  {
+    return this.families.get(this.selected);
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.awt.Font;
+import java.awt.GraphicsEnvironment;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Functions to enumerate fonts.
+ */
+
+final class SigilFonts
+{
+  private SigilFonts()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * @return The names of the logical font families, which are always
+   * available and do not require enumerating the installed fonts
+   */
+
+  static List<String> logicalFamilies()
+  {
+    return List.of(
+      Font.DIALOG,
+      Font.DIALOG_INPUT,
+      Font.MONOSPACED,
+      Font.SANS_SERIF,
+      Font.SERIF
+    );
+  }
+
+  /**
+   * @return The names of the font families usable for sigils
+   */
+
+  static List<String> availableFamilies()
+  {
+    final GraphicsEnvironment ge =
+      GraphicsEnvironment.getLocalGraphicsEnvironment();
+
+    final String[] fontnames = ge.getAvailableFontFamilyNames();
+    final List<String> rs = new ArrayList<>(fontnames.length);
+
+    for (final String name : fontnames) {
+      assert name != null;
+
+      if (name.contains("'")) {
+        continue;
+      }
+
+      rs.add(name);
+    }
+
+    return rs;
+  }
+}
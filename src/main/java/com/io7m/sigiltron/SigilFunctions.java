@@ -0,0 +1,153 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * The functions available by name, for use by the non-graphical modes.
+ */
+
+final class SigilFunctions
+{
+  private static final Map<String, SigilTextFunctionType> TEXT;
+  private static final Map<String, SigilFontFunctionType> FONT;
+  private static final Map<String, SigilRotationFunctionType> ROTATION;
+  private static final Map<String, SigilSpreadFunctionType> SPREAD;
+  private static final Map<String, SigilRandomSourceType> RANDOM;
+
+  static {
+    TEXT = Map.of(
+      "identity", new SigilTextFunctionIdentity()
+    );
+    FONT = Map.of(
+      "selected", new SigilFontFunctionSelected(),
+      "random", new SigilFontFunctionRandom(),
+      "random-covering", new SigilFontFunctionRandomCovering()
+    );
+    ROTATION = Map.of(
+      "random", new SigilRotationFunctionRandom(),
+      "random45", new SigilRotationFunctionRandom45()
+    );
+    SPREAD = Map.of(
+      "exact", new SigilSpreadFunctionExact(),
+      "non-overlapping", new SigilSpreadFunctionNonOverlapping(),
+      "random", new SigilSpreadFunctionRandom()
+    );
+    RANDOM = Map.of(
+      "splittable", new SigilRandomSourceSplittable(),
+      "l64x128", new SigilRandomSourceL64X128()
+    );
+  }
+
+  private SigilFunctions()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Look up a text function. The name is either the name of a fixed
+   * function, or a comma-separated list of {@link SigilTextStage} names
+   * that are composed, in the given order, into a single pipeline.
+   */
+
+  static Optional<SigilTextFunctionType> textFunction(
+    final String name)
+  {
+    final SigilTextFunctionType fixed = TEXT.get(name);
+    if (fixed != null) {
+      return Optional.of(fixed);
+    }
+
+    final List<SigilTextStage> stages = new ArrayList<>(4);
+    for (final String stage_name : name.split(",", -1)) {
+      final Optional<SigilTextStage> stage =
+        SigilTextStage.ofName(stage_name.trim());
+      if (stage.isEmpty()) {
+        return Optional.empty();
+      }
+      stages.add(stage.get());
+    }
+    return Optional.of(new SigilTextFunctionPipeline(stages));
+  }
+
+  static Optional<SigilFontFunctionType> fontFunction(
+    final String name)
+  {
+    return Optional.ofNullable(FONT.get(name));
+  }
+
+  static Optional<SigilRotationFunctionType> rotationFunction(
+    final String name)
+  {
+    return Optional.ofNullable(ROTATION.get(name));
+  }
+
+  static Optional<SigilSpreadFunctionType> spreadFunction(
+    final String name)
+  {
+    return Optional.ofNullable(SPREAD.get(name));
+  }
+
+  static Optional<SigilRandomSourceType> randomSource(
+    final String name)
+  {
+    return Optional.ofNullable(RANDOM.get(name));
+  }
+
+  static SortedSet<String> textFunctionNames()
+  {
+    final SortedSet<String> names = new TreeSet<>(TEXT.keySet());
+    for (final SigilTextStage stage : SigilTextStage.values()) {
+      names.add(stage.stageName());
+    }
+    return names;
+  }
+
+  static SortedSet<String> fontFunctionNames()
+  {
+    return new TreeSet<>(FONT.keySet());
+  }
+
+  static SortedSet<String> rotationFunctionNames()
+  {
+    return new TreeSet<>(ROTATION.keySet());
+  }
+
+  static SortedSet<String> spreadFunctionNames()
+  {
+    return new TreeSet<>(SPREAD.keySet());
+  }
+
+  static SortedSet<String> rendererNames()
+  {
+    return new TreeSet<>(Set.of("batik", "outlines", "paths", "stream", "symbols"));
+  }
+
+  static SortedSet<String> randomSourceNames()
+  {
+    return new TreeSet<>(RANDOM.keySet());
+  }
+}
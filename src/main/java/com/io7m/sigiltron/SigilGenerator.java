@@ -0,0 +1,579 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import com.io7m.junreachable.UnreachableCodeException;
+import org.w3c.dom.svg.SVGDocument;
+
+import java.awt.Font;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+
+/**
+ * A sigil generator. Generators do not depend on any user interface state;
+ * everything required for generation is taken from an immutable
+ * {@link SigilGeneratorRequest}, and generators are safe to use from any
+ * number of threads concurrently. Generation has two phases: a layout
+ * phase that computes a {@link SigilLayout}, and a render phase that passes
+ * each glyph of the layout to a {@link SigilRendererType}, which decides
+ * the form of the output. The phases may also be used separately.
+ * Batik documents are drawn with graphics contexts taken from a pool owned
+ * by the generator, rather than with a new context for every sigil.
+ * Generation checks the interrupt status of the calling thread after every
+ * {@link #BLOCK_SIZE} glyphs and abandons the sigil with a
+ * {@link CancellationException} if the thread has been interrupted.
+ */
+
+public final class SigilGenerator
+{
+  /**
+   * The number of glyphs that share a random generator. Each block of
+   * glyphs draws its random values from a generator seeded with a seed
+   * derived from the request seed and the index of the block, so blocks are
+   * independent of each other and can be computed on any thread. Within a
+   * block, each glyph draws all of its values in turn, so the layout of a
+   * glyph does not depend on the glyphs that follow it.
+   */
+
+  static final int BLOCK_SIZE = 256;
+
+  /**
+   * The smallest number of blocks that are laid out in parallel.
+   */
+
+  static final int PARALLEL_BLOCKS = 8;
+
+  private final SigilFontCache font_cache;
+  private final SigilBatikGraphicsPool graphics_pool;
+  private final SigilLatencyHistogram generation_latencies;
+  private final SigilRateMeter generation_rate;
+
+  /**
+   * Construct a generator with a default font cache size.
+   */
+
+  public SigilGenerator()
+  {
+    this(SigilFontCache.DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Construct a generator.
+   *
+   * @param font_cache_capacity The maximum number of fonts retained in the
+   *                            font cache
+   */
+
+  public SigilGenerator(
+    final int font_cache_capacity)
+  {
+    this.font_cache = new SigilFontCache(font_cache_capacity);
+    this.graphics_pool =
+      new SigilBatikGraphicsPool(SigilBatikGraphicsPool.DEFAULT_CAPACITY);
+    this.generation_latencies = new SigilLatencyHistogram();
+    this.generation_rate = new SigilRateMeter();
+  }
+
+  /**
+   * @return A snapshot of the font cache statistics
+   */
+
+  public SigilCacheStatistics fontCacheStatistics()
+  {
+    return this.font_cache.statistics();
+  }
+
+  /**
+   * @return A snapshot of the statistics of the pool of Batik graphics
+   * contexts
+   */
+
+  SigilCacheStatistics graphicsPoolStatistics()
+  {
+    return this.graphics_pool.statistics();
+  }
+
+  /**
+   * @return A snapshot of the latencies of completed generations
+   */
+
+  SigilLatencySnapshot generationLatencies()
+  {
+    return this.generation_latencies.snapshot();
+  }
+
+  /**
+   * @return The number of completed generations per second, averaged over
+   * the last few seconds
+   */
+
+  double generationsPerSecond()
+  {
+    return this.generation_rate.perSecond();
+  }
+
+  /**
+   * Generate a sigil as a Batik SVG document.
+   *
+   * @param request The request
+   *
+   * @return A generated SVG document
+   *
+   * @throws CancellationException If the calling thread is interrupted
+   */
+
+  public SVGDocument generate(
+    final SigilGeneratorRequest request)
+  {
+    return this.generate(request, SigilLayoutCache.disabled());
+  }
+
+  /**
+   * Generate a sigil as a Batik SVG document, reusing the layout of the
+   * unchanged prefix of the previous sigil in the given cache.
+   *
+   * @param request The request
+   * @param layouts The layout cache
+   *
+   * @return A generated SVG document
+   *
+   * @throws CancellationException If the calling thread is interrupted
+   */
+
+  SVGDocument generate(
+    final SigilGeneratorRequest request,
+    final SigilLayoutCache layouts)
+  {
+    final SigilRendererBatik renderer =
+      new SigilRendererBatik(this.graphics_pool);
+    try {
+      this.generate(request, renderer, layouts);
+    } catch (final IOException e) {
+      throw new UnreachableCodeException(e);
+    }
+    return renderer.document();
+  }
+
+  /**
+   * Generate a sigil as a Batik SVG document holding one merged path per
+   * font (see {@link SigilRendererBatikPaths}), reusing the layout of the
+   * unchanged prefix of the previous sigil in the given cache.
+   *
+   * @param request The request
+   * @param layouts The layout cache
+   * @param glyphs  The glyph outline cache
+   *
+   * @return A generated SVG document
+   *
+   * @throws CancellationException If the calling thread is interrupted
+   */
+
+  SVGDocument generatePaths(
+    final SigilGeneratorRequest request,
+    final SigilLayoutCache layouts,
+    final SigilGlyphCache glyphs)
+  {
+    final SigilRendererBatikPaths renderer =
+      new SigilRendererBatikPaths(glyphs);
+    try {
+      this.generate(request, renderer, layouts);
+    } catch (final IOException e) {
+      throw new UnreachableCodeException(e);
+    }
+    return renderer.document();
+  }
+
+  /**
+   * Generate a sigil as a Batik SVG document holding one outline per glyph
+   * (see {@link SigilRendererBatikOutlines}), reusing the layout of the
+   * unchanged prefix of the previous sigil in the given cache.
+   *
+   * @param request The request
+   * @param layouts The layout cache
+   * @param glyphs  The glyph outline cache
+   *
+   * @return A generated SVG document
+   *
+   * @throws CancellationException If the calling thread is interrupted
+   */
+
+  SVGDocument generateOutlines(
+    final SigilGeneratorRequest request,
+    final SigilLayoutCache layouts,
+    final SigilGlyphCache glyphs)
+  {
+    final SigilRendererBatikOutlines renderer =
+      new SigilRendererBatikOutlines(glyphs);
+    try {
+      this.generate(request, renderer, layouts);
+    } catch (final IOException e) {
+      throw new UnreachableCodeException(e);
+    }
+    return renderer.document();
+  }
+
+  /**
+   * Generate a sigil, passing each glyph to the given renderer.
+   *
+   * @param request  The request
+   * @param renderer The renderer
+   *
+   * @throws IOException           On I/O errors raised by the renderer
+   * @throws CancellationException If the calling thread is interrupted
+   */
+
+  public void generate(
+    final SigilGeneratorRequest request,
+    final SigilRendererType renderer)
+    throws IOException
+  {
+    this.generate(request, renderer, SigilLayoutCache.disabled());
+  }
+
+  /**
+   * Generate a sigil, passing each glyph to the given renderer, and reusing
+   * the layout of the unchanged prefix of the previous sigil in the given
+   * cache.
+   *
+   * @param request  The request
+   * @param renderer The renderer
+   * @param layouts  The layout cache
+   *
+   * @throws IOException           On I/O errors raised by the renderer
+   * @throws CancellationException If the calling thread is interrupted
+   */
+
+  void generate(
+    final SigilGeneratorRequest request,
+    final SigilRendererType renderer,
+    final SigilLayoutCache layouts)
+    throws IOException
+  {
+    Objects.requireNonNull(renderer, "Renderer");
+
+    final long time_then = System.nanoTime();
+    this.render(this.layout(request, layouts), renderer);
+    this.generation_latencies.record(System.nanoTime() - time_then);
+    this.generation_rate.record();
+  }
+
+  /**
+   * Lay out a sigil without rendering it.
+   *
+   * @param request The request
+   *
+   * @return The layout
+   *
+   * @throws CancellationException If the calling thread is interrupted
+   */
+
+  public SigilLayout layout(
+    final SigilGeneratorRequest request)
+  {
+    return this.layout(request, SigilLayoutCache.disabled());
+  }
+
+  /**
+   * Lay out a sigil without rendering it, reusing the layout of the
+   * unchanged prefix of the previous sigil in the given cache. Intents of
+   * at least {@link #PARALLEL_BLOCKS} blocks are laid out in parallel in
+   * the common fork/join pool; the layout of each block depends only on
+   * its own random generator, so the result is the same either way.
+   * Relaxing spread functions see the whole sigil, and run afterwards on
+   * the calling thread.
+   *
+   * @param request The request
+   * @param layouts The layout cache
+   *
+   * @return The layout
+   *
+   * @throws CancellationException If the calling thread is interrupted
+   */
+
+  SigilLayout layout(
+    final SigilGeneratorRequest request,
+    final SigilLayoutCache layouts)
+  {
+    Objects.requireNonNull(request, "Request");
+    Objects.requireNonNull(layouts, "Layouts");
+
+    final SigilEventTextFunction text_event = new SigilEventTextFunction();
+    text_event.begin();
+    final int[] codepoints = request.text().codePoints().toArray();
+    final int count =
+      request.textFunction().processCodePoints(codepoints, codepoints.length);
+    text_event.finish(request.textFunction(), codepoints.length, count);
+
+    final SigilEventLayout layout_event = new SigilEventLayout();
+    layout_event.begin();
+    final LayoutBlocks blocks =
+      new LayoutBlocks(request, codepoints, count, Thread.currentThread());
+    blocks.layout(layouts);
+    layout_event.finish(request, count);
+
+    final double[] angles = blocks.angles();
+    if (!(request.spreadFunction()
+      instanceof final SigilSpreadFunctionRelaxingType relaxing)) {
+      return blocks.finish(angles, blocks.spreads());
+    }
+
+    final Font[] glyph_fonts = this.resolveFonts(
+      request.fonts(), blocks.fontFamilies(), blocks.fontSizes(), count);
+    return blocks.finish(angles, blocks.relaxed(relaxing, glyph_fonts, angles));
+  }
+
+  /**
+   * Render a sigil that has already been laid out, passing each glyph to
+   * the given renderer.
+   *
+   * @param layout   The layout
+   * @param renderer The renderer
+   *
+   * @throws IOException           On I/O errors raised by the renderer
+   * @throws CancellationException If the calling thread is interrupted
+   */
+
+  public void render(
+    final SigilLayout layout,
+    final SigilRendererType renderer)
+    throws IOException
+  {
+    Objects.requireNonNull(layout, "Layout");
+    Objects.requireNonNull(renderer, "Renderer");
+
+    final SigilGeneratorRequest request = layout.request();
+    final int count = layout.count();
+    final Font[] glyph_fonts = this.resolveFonts(
+      request.fonts(), layout.fontFamilies(), layout.fontSizes(), count);
+
+    final SigilEventRender render_event = new SigilEventRender();
+    render_event.begin();
+    renderer.begin(request.width(), request.height());
+
+    final Thread caller = Thread.currentThread();
+    for (int index = 0; index < count; ++index) {
+      if (index % BLOCK_SIZE == 0) {
+        checkCancelled(caller, index, count);
+      }
+      renderer.glyph(
+        glyph_fonts[index],
+        layout.codepoint(index),
+        layout.angle(index),
+        layout.offset(index));
+    }
+
+    renderer.end();
+    render_event.finish(renderer, count);
+  }
+
+  private Font[] resolveFonts(
+    final SigilFontSet fonts,
+    final int[] font_families,
+    final int[] font_sizes,
+    final int count)
+  {
+    final SigilEventFontResolution font_event = new SigilEventFontResolution();
+    font_event.begin();
+    final int[] family_ids = this.font_cache.familyIds(fonts.families());
+    final Font[] glyph_fonts = new Font[count];
+    final int misses = this.font_cache.resolve(
+      family_ids, font_families, font_sizes, glyph_fonts, count);
+    font_event.finish(count, misses);
+    return glyph_fonts;
+  }
+
+  private static void checkCancelled(
+    final Thread caller,
+    final int index,
+    final int count)
+  {
+    if (caller.isInterrupted()) {
+      throw new CancellationException(
+        String.format(
+          "Generation interrupted at glyph %d of %d",
+          Integer.valueOf(index),
+          Integer.valueOf(count)));
+    }
+  }
+
+  /**
+   * The arrays of a layout in progress. Each block writes only its own
+   * range of the arrays, so blocks may be laid out on any threads.
+   * Cancellation is checked against the thread that asked for the layout,
+   * since the blocks may run on threads of the fork/join pool.
+   */
+
+  private static final class LayoutBlocks
+  {
+    private final SigilGeneratorRequest request;
+    private final Thread caller;
+    private final int[] codepoints;
+    private final int count;
+    private final double[] rotations;
+    private final int[] spreads;
+    private final int[] font_families;
+    private final int[] font_sizes;
+
+    LayoutBlocks(
+      final SigilGeneratorRequest in_request,
+      final int[] in_codepoints,
+      final int in_count,
+      final Thread in_caller)
+    {
+      this.request = in_request;
+      this.caller = in_caller;
+      this.codepoints = in_codepoints;
+      this.count = in_count;
+      this.rotations = new double[in_count];
+      this.spreads = new int[in_count];
+      this.font_families = new int[in_count];
+      this.font_sizes = new int[in_count];
+    }
+
+    /**
+     * Lay out every block that cannot be copied from the given cache, and
+     * then store the layout in the cache.
+     */
+
+    void layout(
+      final SigilLayoutCache layouts)
+    {
+      final int reused = layouts.reuse(
+        this.request,
+        this.codepoints,
+        this.count,
+        this.rotations,
+        this.spreads,
+        this.font_families,
+        this.font_sizes);
+
+      final int blocks = (this.count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+      final int first = reused == this.count ? blocks : reused / BLOCK_SIZE;
+      IntStream stream = IntStream.range(first, blocks);
+      if (blocks - first >= PARALLEL_BLOCKS) {
+        stream = stream.parallel();
+      }
+      stream.forEach(this::layoutBlock);
+
+      layouts.store(
+        this.request,
+        this.codepoints,
+        this.count,
+        this.rotations,
+        this.spreads,
+        this.font_families,
+        this.font_sizes);
+    }
+
+    private void layoutBlock(
+      final int block)
+    {
+      final SigilGeneratorRequest r = this.request;
+      final SigilFontSet fonts = r.fonts();
+      final SigilRotationFunctionType rf = r.rotationFunction();
+      final SigilSpreadFunctionType sf = r.spreadFunction();
+      final SigilFontFunctionType ff = r.fontFunction();
+      final int spread = r.spread();
+      final int offset = block * BLOCK_SIZE;
+      checkCancelled(this.caller, offset, this.count);
+
+      final int length = Math.min(BLOCK_SIZE, this.count - offset);
+      final RandomGenerator random =
+        r.random().create(SigilSeeds.derive(r.seed(), block));
+
+      /*
+       * Each glyph draws all of its values before the next glyph draws any,
+       * so the layout of a glyph depends only on the glyphs before it in
+       * its block, and not on the length of the block.
+       */
+
+      for (int index = offset; index < offset + length; ++index) {
+        final int codepoint = this.codepoints[index];
+        this.rotations[index] = rf.rotationOf(random, codepoint);
+        this.spreads[index] = sf.spreadOf(random, spread);
+        final int font_size = random.nextInt(100) + 100;
+        this.font_sizes[index] = font_size;
+        this.font_families[index] =
+          ff.familyOf(random, fonts, codepoint, font_size);
+      }
+    }
+
+    /**
+     * @return The angle of each glyph, accumulated over the rotations of
+     * the preceding glyphs
+     */
+
+    double[] angles()
+    {
+      final double[] angles = new double[this.count];
+      double angle = 0.0;
+      for (int index = 0; index < this.count; ++index) {
+        angle += this.rotations[index];
+        angles[index] = angle;
+      }
+      return angles;
+    }
+
+    /*
+     * Relaxed spreads depend on every glyph in the sigil, so they are
+     * computed on a copy; the layout cache retains the original spreads.
+     */
+
+    int[] relaxed(
+      final SigilSpreadFunctionRelaxingType relaxing,
+      final Font[] glyph_fonts,
+      final double[] angles)
+    {
+      final int[] offsets = Arrays.copyOf(this.spreads, this.count);
+      relaxing.relax(glyph_fonts, this.codepoints, angles, offsets, this.count);
+      return offsets;
+    }
+
+    SigilLayout finish(
+      final double[] angles,
+      final int[] offsets)
+    {
+      return new SigilLayout(
+        this.request,
+        this.count,
+        this.codepoints,
+        this.font_families,
+        this.font_sizes,
+        angles,
+        offsets);
+    }
+
+    int[] spreads()
+    {
+      return this.spreads;
+    }
+
+    int[] fontFamilies()
+    {
+      return this.font_families;
+    }
+
+    int[] fontSizes()
+    {
+      return this.font_sizes;
+    }
+  }
+}
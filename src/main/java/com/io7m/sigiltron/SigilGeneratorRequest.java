@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.util.Objects;
+
+/**
+ * An immutable request to generate a sigil. A request captures everything
+ * that generation depends upon, so that generation can happen on any thread.
+ *
+ * @param text             The intent
+ * @param fonts            The available fonts
+ * @param textFunction     The text function
+ * @param fontFunction     The font function
+ * @param rotationFunction The rotation function
+ * @param spreadFunction   The spread function
+ * @param spread           The spread value
+ * @param random           The random source
+ * @param seed             The random seed
+ * @param width            The image width
+ * @param height           The image height
+ */
+
+public record SigilGeneratorRequest(
+  String text,
+  SigilFontSet fonts,
+  SigilTextFunctionType textFunction,
+  SigilFontFunctionType fontFunction,
+  SigilRotationFunctionType rotationFunction,
+  SigilSpreadFunctionType spreadFunction,
+  int spread,
+  SigilRandomSourceType random,
+  long seed,
+  int width,
+  int height)
+{
+  /**
+   * An immutable request to generate a sigil.
+   *
+   * @param text             The intent
+   * @param fonts            The available fonts
+   * @param textFunction     The text function
+   * @param fontFunction     The font function
+   * @param rotationFunction The rotation function
+   * @param spreadFunction   The spread function
+   * @param spread           The spread value
+   * @param random           The random source
+   * @param seed             The random seed
+   * @param width            The image width
+   * @param height           The image height
+   */
+
+  public SigilGeneratorRequest
+  {
+    Objects.requireNonNull(text, "text");
+    Objects.requireNonNull(fonts, "fonts");
+    Objects.requireNonNull(textFunction, "textFunction");
+    Objects.requireNonNull(fontFunction, "fontFunction");
+    Objects.requireNonNull(rotationFunction, "rotationFunction");
+    Objects.requireNonNull(spreadFunction, "spreadFunction");
+    Objects.requireNonNull(random, "random");
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+/**
+ * The visual bounds of a glyph at {@link SigilGlyphCache#REFERENCE_SIZE},
+ * relative to the origin of its baseline.
+ *
+ * @param minimumX The minimum X coordinate
+ * @param minimumY The minimum Y coordinate
+ * @param maximumX The maximum X coordinate
+ * @param maximumY The maximum Y coordinate
+ */
+
+record SigilGlyphBounds(
+  double minimumX,
+  double minimumY,
+  double maximumX,
+  double maximumY)
+{
+  /**
+   * @return {@code true} if the glyph has no visible extent
+   */
+
+  boolean isEmpty()
+  {
+    return this.maximumX <= this.minimumX || this.maximumY <= this.minimumY;
+  }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.awt.Font;
+import java.awt.Shape;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongFunction;
+
+/**
+ * A bounded cache of glyph outlines. Outlines are extracted from a
+ * {@link java.awt.font.GlyphVector} at {@link #REFERENCE_SIZE} and stored as
+ * SVG path data, so a single outline serves every size of a given font
+ * family and style; renderers scale the outline to the required size.
+ * Outlines are keyed by {@code (family << 32) | (style << 21) | codepoint}
+ * in a {@link SigilLongLRUCache}. The visual bounds and the shapes of
+ * glyphs are cached alongside the outlines under the same keys. A cache
+ * may be given a simplification tolerance, in which case outlines and
+ * shapes are passed through {@link SigilOutlineSimplifier} once, when they
+ * are first extracted.
+ */
+
+public final class SigilGlyphCache
+{
+  /**
+   * The font size at which outlines are extracted.
+   */
+
+  public static final int REFERENCE_SIZE = 1000;
+
+  /**
+   * The default number of outlines retained.
+   */
+
+  public static final int DEFAULT_CAPACITY = 8192;
+
+  /**
+   * The largest simplification tolerance, in units of
+   * {@link #REFERENCE_SIZE}.
+   */
+
+  public static final double MAXIMUM_TOLERANCE = 100.0;
+
+  private static final int DECIMALS = 1;
+  private static final int CODEPOINT_BITS = 21;
+  private static final FontRenderContext CONTEXT =
+    new FontRenderContext(null, true, true);
+
+  private final Object family_lock;
+  private final Map<String, Integer> family_ids;
+  private final List<String> family_names;
+  private final SigilLongLRUCache<String> outlines;
+  private final LongFunction<String> loader;
+  private final SigilLongLRUCache<SigilGlyphBounds> bounds;
+  private final LongFunction<SigilGlyphBounds> bounds_loader;
+  private final SigilLongLRUCache<Shape> shapes;
+  private final LongFunction<Shape> shapes_loader;
+  private final double tolerance;
+
+  /**
+   * Construct a cache with a default capacity.
+   */
+
+  public SigilGlyphCache()
+  {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Construct a cache that does not simplify outlines.
+   *
+   * @param capacity The maximum number of outlines retained
+   */
+
+  public SigilGlyphCache(
+    final int capacity)
+  {
+    this(capacity, 0.0);
+  }
+
+  /**
+   * Construct a cache.
+   *
+   * @param capacity     The maximum number of outlines retained
+   * @param in_tolerance The simplification tolerance in units of
+   *                     {@link #REFERENCE_SIZE}, or {@code 0.0} to keep
+   *                     outlines exactly as the font defines them
+   */
+
+  public SigilGlyphCache(
+    final int capacity,
+    final double in_tolerance)
+  {
+    if (!(in_tolerance >= 0.0 && in_tolerance <= MAXIMUM_TOLERANCE)) {
+      throw new IllegalArgumentException(
+        String.format(
+          "Tolerance %f must be in the range [0, %f]",
+          Double.valueOf(in_tolerance),
+          Double.valueOf(MAXIMUM_TOLERANCE)));
+    }
+
+    this.tolerance = in_tolerance;
+    this.family_lock = new Object();
+    this.family_ids = new ConcurrentHashMap<>(64);
+    this.family_names = new CopyOnWriteArrayList<>();
+    this.outlines = new SigilLongLRUCache<>(capacity);
+    this.loader = this::extract;
+    this.bounds = new SigilLongLRUCache<>(capacity);
+    this.bounds_loader = this::extractBounds;
+    this.shapes = new SigilLongLRUCache<>(capacity);
+    this.shapes_loader = this::extractShape;
+  }
+
+  /**
+   * @return The simplification tolerance in units of
+   * {@link #REFERENCE_SIZE}
+   */
+
+  public double tolerance()
+  {
+    return this.tolerance;
+  }
+
+  /**
+   * @return A snapshot of the cache statistics
+   */
+
+  public SigilCacheStatistics statistics()
+  {
+    return this.outlines.statistics();
+  }
+
+  /**
+   * @return A snapshot of the statistics of the cached glyph shapes
+   */
+
+  public SigilCacheStatistics shapeStatistics()
+  {
+    return this.shapes.statistics();
+  }
+
+  /**
+   * Retrieve the outline of a glyph at {@link #REFERENCE_SIZE}, with the
+   * baseline at the origin. The returned string is shared by every caller
+   * that asks for the same glyph while it remains cached, and is empty for
+   * glyphs that have no visible outline.
+   *
+   * @param font      The font
+   * @param codepoint The character
+   *
+   * @return The outline as SVG path data
+   */
+
+  String outline(
+    final Font font,
+    final int codepoint)
+  {
+    return this.outlines.get(this.keyOf(font, codepoint), this.loader);
+  }
+
+  /**
+   * Retrieve the visual bounds of a glyph at {@link #REFERENCE_SIZE}, with
+   * the baseline at the origin. Glyphs that have no visible outline have
+   * empty bounds.
+   *
+   * @param font      The font
+   * @param codepoint The character
+   *
+   * @return The bounds of the glyph
+   */
+
+  SigilGlyphBounds bounds(
+    final Font font,
+    final int codepoint)
+  {
+    return this.bounds.get(this.keyOf(font, codepoint), this.bounds_loader);
+  }
+
+  /**
+   * Retrieve the shape of a glyph at {@link #REFERENCE_SIZE}, with the
+   * baseline at the origin. The returned shape is shared by every caller
+   * that asks for the same glyph while it remains cached, and must not be
+   * modified.
+   *
+   * @param font      The font
+   * @param codepoint The character
+   *
+   * @return The shape of the glyph
+   */
+
+  Shape shape(
+    final Font font,
+    final int codepoint)
+  {
+    return this.shapes.get(this.keyOf(font, codepoint), this.shapes_loader);
+  }
+
+  private long keyOf(
+    final Font font,
+    final int codepoint)
+  {
+    final long family = this.familyId(font.getName());
+    return (family << 32)
+      | ((long) font.getStyle() << CODEPOINT_BITS)
+      | (long) codepoint;
+  }
+
+  private GlyphVector glyphVector(
+    final long key)
+  {
+    final String name = this.family_names.get((int) (key >>> 32));
+    final int style = (int) (key & 0xffff_ffffL) >>> CODEPOINT_BITS;
+    final int codepoint = (int) key & ((1 << CODEPOINT_BITS) - 1);
+
+    final Font font = new Font(name, style, REFERENCE_SIZE);
+    return font.createGlyphVector(CONTEXT, Character.toChars(codepoint));
+  }
+
+  private String extract(
+    final long key)
+  {
+    final StringBuilder path = new StringBuilder(256);
+    SigilSVGText.appendPath(path, this.extractShape(key), DECIMALS);
+    return path.toString();
+  }
+
+  private Shape extractShape(
+    final long key)
+  {
+    final Shape outline = this.glyphVector(key).getOutline();
+    if (this.tolerance > 0.0) {
+      return SigilOutlineSimplifier.simplify(outline, this.tolerance);
+    }
+    return new Path2D.Float(outline);
+  }
+
+  private SigilGlyphBounds extractBounds(
+    final long key)
+  {
+    final Rectangle2D visual = this.glyphVector(key).getVisualBounds();
+    if (visual.isEmpty()) {
+      return new SigilGlyphBounds(0.0, 0.0, 0.0, 0.0);
+    }
+    return new SigilGlyphBounds(
+      visual.getMinX(), visual.getMinY(), visual.getMaxX(), visual.getMaxY());
+  }
+
+  private int familyId(
+    final String name)
+  {
+    final Integer existing = this.family_ids.get(name);
+    if (existing != null) {
+      return existing.intValue();
+    }
+
+    synchronized (this.family_lock) {
+      return this.family_ids.computeIfAbsent(name, n -> {
+        this.family_names.add(n);
+        return Integer.valueOf(this.family_names.size() - 1);
+      }).intValue();
+    }
+  }
+}
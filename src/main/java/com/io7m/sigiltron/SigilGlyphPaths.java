@@ -0,0 +1,162 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.awt.Font;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Glyph outlines merged into one SVG path per font and style. Each glyph is
+ * appended to the path data of its group with its rotation, offset and
+ * scale already applied to the coordinates, so a sigil of any length
+ * becomes a handful of path elements, and memory use is proportional to the
+ * total length of the path data rather than to the number of glyphs.
+ * Glyphs are grouped by font because fonts do not agree on the winding
+ * direction of their outlines, and merging outlines of opposite windings
+ * under the nonzero fill rule would cut holes where glyphs overlap.
+ */
+
+final class SigilGlyphPaths
+{
+  private static final int DECIMALS = 1;
+  private static final int STYLES = 4;
+
+  private final SigilGlyphCache glyphs;
+  private final Map<String, SigilSVGPath[]> groups_by_name;
+  private final List<SigilSVGPath> groups;
+  private final AffineTransform transform;
+
+  /**
+   * Construct an empty set of paths.
+   *
+   * @param in_glyphs The glyph cache
+   */
+
+  SigilGlyphPaths(
+    final SigilGlyphCache in_glyphs)
+  {
+    this.glyphs = Objects.requireNonNull(in_glyphs, "Glyphs");
+    this.groups_by_name = new HashMap<>(16);
+    this.groups = new ArrayList<>(16);
+    this.transform = new AffineTransform();
+  }
+
+  /**
+   * Discard all paths.
+   */
+
+  void clear()
+  {
+    this.groups_by_name.clear();
+    this.groups.clear();
+  }
+
+  /**
+   * Append a glyph to the path of its font. Glyphs with no visible outline
+   * are ignored, so that no path is ever empty. The glyph is drawn at
+   * {@code (0, offset)} in a coordinate system rotated by {@code angle}
+   * radians around the origin.
+   *
+   * @param font      The font
+   * @param codepoint The character
+   * @param angle     The rotation (in radians)
+   * @param offset    The offset from the origin
+   */
+
+  void add(
+    final Font font,
+    final int codepoint,
+    final double angle,
+    final int offset)
+  {
+    if (this.glyphs.bounds(font, codepoint).isEmpty()) {
+      return;
+    }
+
+    final Shape shape = this.glyphs.shape(font, codepoint);
+    final double scale =
+      (double) font.getSize2D() / (double) SigilGlyphCache.REFERENCE_SIZE;
+
+    final AffineTransform t = this.transform;
+    t.setToRotation(angle);
+    t.translate(0.0, (double) offset);
+    t.scale(scale, scale);
+    this.groupOf(font).append(shape, t);
+  }
+
+  private SigilSVGPath groupOf(
+    final Font font)
+  {
+    final SigilSVGPath[] styles = this.groups_by_name.computeIfAbsent(
+      font.getName(), n -> new SigilSVGPath[STYLES]);
+    final int style = font.getStyle() & (STYLES - 1);
+    SigilSVGPath group = styles[style];
+    if (group == null) {
+      group = new SigilSVGPath(DECIMALS);
+      styles[style] = group;
+      this.groups.add(group);
+    }
+    return group;
+  }
+
+  /**
+   * @return The number of paths, which are numbered in the order in which
+   * their first glyphs were added
+   */
+
+  int size()
+  {
+    return this.groups.size();
+  }
+
+  /**
+   * @param index The path
+   *
+   * @return The path data of the given path
+   */
+
+  String data(
+    final int index)
+  {
+    return this.groups.get(index).data();
+  }
+
+  /**
+   * Write the path data of the given path.
+   *
+   * @param index  The path
+   * @param writer The output
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void writeData(
+    final int index,
+    final Writer writer)
+    throws IOException
+  {
+    this.groups.get(index).write(writer);
+  }
+}
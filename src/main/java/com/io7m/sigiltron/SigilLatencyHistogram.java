@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free, log-linear histogram of latencies in nanoseconds. Each
+ * power of two is divided into {@code 2^SUB_BUCKET_BITS} linear buckets, so
+ * every recorded value is accurate to within about six percent while the
+ * whole range of {@code long} fits in under a thousand counters. Recording a
+ * value is an atomic increment of its counter followed by a compare-and-set
+ * loop on the running maximum, which retries only while other threads are
+ * raising the maximum at the same time; percentiles are computed from a
+ * snapshot of the counters.
+ */
+
+final class SigilLatencyHistogram
+{
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS =
+    (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts;
+  private final AtomicLong maximum;
+
+  /**
+   * Construct an empty histogram.
+   */
+
+  SigilLatencyHistogram()
+  {
+    this.counts = new AtomicLongArray(BUCKETS);
+    this.maximum = new AtomicLong(0L);
+  }
+
+  private static int bucketOf(
+    final long value)
+  {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+
+    final int exponent = (Long.SIZE - 1) - Long.numberOfLeadingZeros(value);
+    final int shift = exponent - SUB_BUCKET_BITS;
+    final int sub = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+    return (shift + 1) * SUB_BUCKETS + sub;
+  }
+
+  private static long highestValueOf(
+    final int bucket)
+  {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+
+    final int shift = bucket / SUB_BUCKETS - 1;
+    final long sub = bucket % SUB_BUCKETS;
+    final long lowest = (SUB_BUCKETS + sub) << shift;
+    return lowest + (1L << shift) - 1L;
+  }
+
+  /**
+   * Record a latency.
+   *
+   * @param nanos The latency in nanoseconds; negative values are recorded as
+   *              zero
+   */
+
+  void record(
+    final long nanos)
+  {
+    final long value = Math.max(0L, nanos);
+    this.counts.incrementAndGet(bucketOf(value));
+    this.maximum.accumulateAndGet(value, Math::max);
+  }
+
+  /**
+   * @return A snapshot of the recorded latencies
+   */
+
+  SigilLatencySnapshot snapshot()
+  {
+    final long[] copy = new long[BUCKETS];
+    long total = 0L;
+    for (int index = 0; index < BUCKETS; ++index) {
+      copy[index] = this.counts.get(index);
+      total += copy[index];
+    }
+
+    final long max = this.maximum.get();
+    return new SigilLatencySnapshot(
+      total,
+      percentile(copy, total, 0.50, max),
+      percentile(copy, total, 0.90, max),
+      percentile(copy, total, 0.99, max),
+      percentile(copy, total, 0.999, max),
+      max);
+  }
+
+  private static long percentile(
+    final long[] counts,
+    final long total,
+    final double fraction,
+    final long max)
+  {
+    if (total == 0L) {
+      return 0L;
+    }
+
+    final long rank = Math.max(1L, (long) Math.ceil(fraction * (double) total));
+    long seen = 0L;
+    for (int index = 0; index < counts.length; ++index) {
+      seen += counts[index];
+      if (seen >= rank) {
+        return Math.min(highestValueOf(index), max);
+      }
+    }
+    return max;
+  }
+}
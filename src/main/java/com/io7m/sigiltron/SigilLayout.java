@@ -0,0 +1,220 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The layout of a sigil: the code point, font family, font size, angle and
+ * offset of every glyph, held in primitive arrays. A layout is produced by
+ * {@link SigilGenerator#layout(SigilGeneratorRequest)} and turned into
+ * output by {@link SigilGenerator#render(SigilLayout, SigilRendererType)},
+ * so a layout may be kept, inspected and rendered any number of times, by
+ * any number of renderers, without being computed again. Layouts are
+ * immutable.
+ */
+
+public final class SigilLayout
+{
+  private final SigilGeneratorRequest request;
+  private final int count;
+  private final int[] codepoints;
+  private final int[] font_families;
+  private final int[] font_sizes;
+  private final double[] angles;
+  private final int[] offsets;
+
+  /**
+   * Construct a layout. The arrays are retained rather than copied, and
+   * must not be modified afterwards.
+   *
+   * @param in_request       The request from which the layout was produced
+   * @param in_count         The number of glyphs
+   * @param in_codepoints    The code point of each glyph
+   * @param in_font_families The index of the font family of each glyph in
+   *                         the font set of the request
+   * @param in_font_sizes    The font size of each glyph
+   * @param in_angles        The angle of each glyph in radians
+   * @param in_offsets       The offset of each glyph from the centre
+   */
+
+  SigilLayout(
+    final SigilGeneratorRequest in_request,
+    final int in_count,
+    final int[] in_codepoints,
+    final int[] in_font_families,
+    final int[] in_font_sizes,
+    final double[] in_angles,
+    final int[] in_offsets)
+  {
+    this.request = Objects.requireNonNull(in_request, "Request");
+    this.count = in_count;
+    this.codepoints = Objects.requireNonNull(in_codepoints, "Codepoints");
+    this.font_families = Objects.requireNonNull(in_font_families, "Families");
+    this.font_sizes = Objects.requireNonNull(in_font_sizes, "Sizes");
+    this.angles = Objects.requireNonNull(in_angles, "Angles");
+    this.offsets = Objects.requireNonNull(in_offsets, "Offsets");
+  }
+
+  /**
+   * @return The request from which the layout was produced
+   */
+
+  public SigilGeneratorRequest request()
+  {
+    return this.request;
+  }
+
+  /**
+   * @return The number of glyphs
+   */
+
+  public int count()
+  {
+    return this.count;
+  }
+
+  /**
+   * @param index The index of a glyph
+   *
+   * @return The code point of the glyph
+   */
+
+  public int codepoint(
+    final int index)
+  {
+    return this.codepoints[Objects.checkIndex(index, this.count)];
+  }
+
+  /**
+   * @param index The index of a glyph
+   *
+   * @return The font family of the glyph, as an index into the families
+   * of the font set of the request
+   */
+
+  public int fontFamily(
+    final int index)
+  {
+    return this.font_families[Objects.checkIndex(index, this.count)];
+  }
+
+  /**
+   * @param index The index of a glyph
+   *
+   * @return The font size of the glyph
+   */
+
+  public int fontSize(
+    final int index)
+  {
+    return this.font_sizes[Objects.checkIndex(index, this.count)];
+  }
+
+  /**
+   * @param index The index of a glyph
+   *
+   * @return The angle of the glyph in radians, accumulated over the
+   * rotations of every glyph up to and including this one
+   */
+
+  public double angle(
+    final int index)
+  {
+    return this.angles[Objects.checkIndex(index, this.count)];
+  }
+
+  /**
+   * @param index The index of a glyph
+   *
+   * @return The distance of the glyph from the centre of the sigil
+   */
+
+  public int offset(
+    final int index)
+  {
+    return this.offsets[Objects.checkIndex(index, this.count)];
+  }
+
+  /**
+   * @return The code points, which must not be modified
+   */
+
+  int[] codepoints()
+  {
+    return this.codepoints;
+  }
+
+  /**
+   * @return The font families, which must not be modified
+   */
+
+  int[] fontFamilies()
+  {
+    return this.font_families;
+  }
+
+  /**
+   * @return The font sizes, which must not be modified
+   */
+
+  int[] fontSizes()
+  {
+    return this.font_sizes;
+  }
+
+  @Override
+  public boolean equals(
+    final Object other)
+  {
+    if (this == other) {
+      return true;
+    }
+    if (other == null || !Objects.equals(this.getClass(), other.getClass())) {
+      return false;
+    }
+    final SigilLayout that = (SigilLayout) other;
+    final int n = this.count;
+    return n == that.count
+      && Objects.equals(this.request, that.request)
+      && Arrays.equals(this.codepoints, 0, n, that.codepoints, 0, n)
+      && Arrays.equals(this.font_families, 0, n, that.font_families, 0, n)
+      && Arrays.equals(this.font_sizes, 0, n, that.font_sizes, 0, n)
+      && Arrays.equals(this.angles, 0, n, that.angles, 0, n)
+      && Arrays.equals(this.offsets, 0, n, that.offsets, 0, n);
+  }
+
+  @Override
+  public int hashCode()
+  {
+    int hash = this.request.hashCode();
+    for (int index = 0; index < this.count; ++index) {
+      hash = 31 * hash + this.codepoints[index];
+    }
+    return 31 * hash + this.count;
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format(
+      "[SigilLayout %d glyphs, seed %d]",
+      Integer.valueOf(this.count),
+      Long.valueOf(this.request.seed()));
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A cache of the layout of the most recently generated sigil, used to
+ * avoid laying out the unchanged prefix of an intent again when the
+ * intent is edited. The generator lays glyphs out in blocks of
+ * {@link SigilGenerator#BLOCK_SIZE}, and each block draws its values from
+ * its own random generator, so a complete block whose code points and
+ * layout parameters are unchanged has exactly the same layout as before
+ * and can be copied rather than recomputed. The block that holds the first
+ * changed glyph is laid out again from its start; each glyph draws its
+ * values before the glyphs that follow it, so the unchanged glyphs of that
+ * block are given exactly the same layout as before, and only the glyphs
+ * from the first change onwards differ.
+ */
+
+final class SigilLayoutCache
+{
+  private static final SigilLayoutCache DISABLED = new SigilLayoutCache(false);
+
+  private final boolean enabled;
+  private SigilGeneratorRequest request;
+  private int[] codepoints;
+  private int count;
+  private double[] rotations;
+  private int[] spreads;
+  private int[] font_families;
+  private int[] font_sizes;
+
+  private SigilLayoutCache(
+    final boolean in_enabled)
+  {
+    this.enabled = in_enabled;
+    this.codepoints = new int[0];
+    this.rotations = new double[0];
+    this.spreads = new int[0];
+    this.font_families = new int[0];
+    this.font_sizes = new int[0];
+  }
+
+  /**
+   * @return A new, empty cache
+   */
+
+  static SigilLayoutCache create()
+  {
+    return new SigilLayoutCache(true);
+  }
+
+  /**
+   * @return A cache that never retains anything
+   */
+
+  static SigilLayoutCache disabled()
+  {
+    return DISABLED;
+  }
+
+  private static boolean sameLayout(
+    final SigilGeneratorRequest x,
+    final SigilGeneratorRequest y)
+  {
+    return layoutParameters(x).equals(layoutParameters(y));
+  }
+
+  private static List<Object> layoutParameters(
+    final SigilGeneratorRequest r)
+  {
+    return List.of(
+      Long.valueOf(r.seed()),
+      Integer.valueOf(r.spread()),
+      r.random(),
+      r.rotationFunction(),
+      r.spreadFunction(),
+      r.fontFunction(),
+      r.fonts());
+  }
+
+  /**
+   * Copy the layout of the glyphs that are unchanged since the last sigil
+   * into the given arrays.
+   *
+   * @param in_request    The request
+   * @param in_codepoints The code points produced by the text function
+   * @param in_count      The number of code points
+   * @param out_rotations The rotation of each glyph
+   * @param out_spreads   The spread of each glyph
+   * @param out_families  The font family index of each glyph
+   * @param out_sizes     The font size of each glyph
+   *
+   * @return The number of leading glyphs whose layout was copied
+   */
+
+  synchronized int reuse(
+    final SigilGeneratorRequest in_request,
+    final int[] in_codepoints,
+    final int in_count,
+    final double[] out_rotations,
+    final int[] out_spreads,
+    final int[] out_families,
+    final int[] out_sizes)
+  {
+    if (this.request == null || !sameLayout(this.request, in_request)) {
+      return 0;
+    }
+
+    final int mismatch = Arrays.mismatch(
+      this.codepoints, 0, this.count, in_codepoints, 0, in_count);
+    final int reused;
+    if (mismatch < 0) {
+      reused = in_count;
+    } else {
+      final int common = Math.min(mismatch, Math.min(this.count, in_count));
+      reused = common - common % SigilGenerator.BLOCK_SIZE;
+    }
+
+    System.arraycopy(this.rotations, 0, out_rotations, 0, reused);
+    System.arraycopy(this.spreads, 0, out_spreads, 0, reused);
+    System.arraycopy(this.font_families, 0, out_families, 0, reused);
+    System.arraycopy(this.font_sizes, 0, out_sizes, 0, reused);
+    return reused;
+  }
+
+  /**
+   * Retain the layout of a sigil. The arrays are retained rather than
+   * copied, and must not be modified afterwards.
+   *
+   * @param in_request    The request
+   * @param in_codepoints The code points produced by the text function
+   * @param in_count      The number of code points
+   * @param in_rotations  The rotation of each glyph
+   * @param in_spreads    The spread of each glyph
+   * @param in_families   The font family index of each glyph
+   * @param in_sizes      The font size of each glyph
+   */
+
+  synchronized void store(
+    final SigilGeneratorRequest in_request,
+    final int[] in_codepoints,
+    final int in_count,
+    final double[] in_rotations,
+    final int[] in_spreads,
+    final int[] in_families,
+    final int[] in_sizes)
+  {
+    if (!this.enabled) {
+      return;
+    }
+
+    this.request = Objects.requireNonNull(in_request, "Request");
+    this.codepoints = Objects.requireNonNull(in_codepoints, "Codepoints");
+    this.count = in_count;
+    this.rotations = Objects.requireNonNull(in_rotations, "Rotations");
+    this.spreads = Objects.requireNonNull(in_spreads, "Spreads");
+    this.font_families = Objects.requireNonNull(in_families, "Families");
+    this.font_sizes = Objects.requireNonNull(in_sizes, "Sizes");
+  }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.LongFunction;
+
+/**
+ * A bounded, least-recently-used cache keyed by primitive {@code long}
+ * values. Entries live in parallel arrays linked into a recency list, and a
+ * chained hash table maps keys to entries, so lookups do not allocate. The
+ * cache is safe to use from multiple threads; values are computed outside of
+ * the lock, so two threads that miss on the same key at the same time may
+ * both compute a value, and the first value inserted wins.
+ *
+ * @param <V> The type of values
+ */
+
+final class SigilLongLRUCache<V>
+{
+  private static final int NONE = -1;
+
+  private final Object lock;
+  private final int capacity;
+  private final int mask;
+  private final int[] buckets;
+  private final int[] chain;
+  private final long[] keys;
+  private final Object[] values;
+  private final int[] newer;
+  private final int[] older;
+  private int size;
+  private int newest;
+  private int oldest;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /**
+   * Construct a cache.
+   *
+   * @param in_capacity The maximum number of entries
+   */
+
+  SigilLongLRUCache(
+    final int in_capacity)
+  {
+    if (in_capacity < 1) {
+      throw new IllegalArgumentException(
+        String.format("Capacity %d must be at least 1",
+                      Integer.valueOf(in_capacity)));
+    }
+
+    final int table_size =
+      Integer.highestOneBit(Math.max(2, in_capacity * 2 - 1)) << 1;
+
+    this.lock = new Object();
+    this.capacity = in_capacity;
+    this.mask = table_size - 1;
+    this.buckets = new int[table_size];
+    this.chain = new int[in_capacity];
+    this.keys = new long[in_capacity];
+    this.values = new Object[in_capacity];
+    this.newer = new int[in_capacity];
+    this.older = new int[in_capacity];
+    this.size = 0;
+    this.newest = NONE;
+    this.oldest = NONE;
+    Arrays.fill(this.buckets, NONE);
+  }
+
+  private int bucketOf(
+    final long key)
+  {
+    long z = key * 0x9e3779b97f4a7c15L;
+    z ^= z >>> 32;
+    return (int) z & this.mask;
+  }
+
+  /**
+   * Retrieve the value associated with {@code key}, computing it with
+   * {@code loader} if the value is not cached. The least recently used
+   * entry is evicted if the cache is full.
+   *
+   * @param key    The key
+   * @param loader A function that computes a value for the key
+   *
+   * @return The cached or computed value
+   */
+
+  V get(
+    final long key,
+    final LongFunction<V> loader)
+  {
+    synchronized (this.lock) {
+      final int entry = this.find(key);
+      if (entry != NONE) {
+        ++this.hits;
+        this.touch(entry);
+        return this.valueAt(entry);
+      }
+      ++this.misses;
+    }
+
+    final V value =
+      Objects.requireNonNull(loader.apply(key), "Loaded value");
+
+    synchronized (this.lock) {
+      final int entry = this.find(key);
+      if (entry != NONE) {
+        this.touch(entry);
+        return this.valueAt(entry);
+      }
+      this.insert(key, value);
+      return value;
+    }
+  }
+
+  /**
+   * @return A snapshot of the cache statistics
+   */
+
+  SigilCacheStatistics statistics()
+  {
+    synchronized (this.lock) {
+      return new SigilCacheStatistics(
+        this.hits,
+        this.misses,
+        this.evictions,
+        this.size,
+        this.capacity);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private V valueAt(
+    final int entry)
+  {
+    return (V) this.values[entry];
+  }
+
+  private int find(
+    final long key)
+  {
+    int entry = this.buckets[this.bucketOf(key)];
+    while (entry != NONE) {
+      if (this.keys[entry] == key) {
+        return entry;
+      }
+      entry = this.chain[entry];
+    }
+    return NONE;
+  }
+
+  private void insert(
+    final long key,
+    final V value)
+  {
+    final int entry;
+    if (this.size < this.capacity) {
+      entry = this.size;
+      ++this.size;
+    } else {
+      entry = this.oldest;
+      this.unlinkBucket(entry);
+      this.unlinkRecency(entry);
+      ++this.evictions;
+    }
+
+    final int bucket = this.bucketOf(key);
+    this.keys[entry] = key;
+    this.values[entry] = value;
+    this.chain[entry] = this.buckets[bucket];
+    this.buckets[bucket] = entry;
+    this.linkNewest(entry);
+  }
+
+  private void touch(
+    final int entry)
+  {
+    if (entry != this.newest) {
+      this.unlinkRecency(entry);
+      this.linkNewest(entry);
+    }
+  }
+
+  private void linkNewest(
+    final int entry)
+  {
+    this.older[entry] = this.newest;
+    this.newer[entry] = NONE;
+    if (this.newest != NONE) {
+      this.newer[this.newest] = entry;
+    }
+    this.newest = entry;
+    if (this.oldest == NONE) {
+      this.oldest = entry;
+    }
+  }
+
+  private void unlinkRecency(
+    final int entry)
+  {
+    final int entry_newer = this.newer[entry];
+    final int entry_older = this.older[entry];
+
+    if (entry_newer == NONE) {
+      this.newest = entry_older;
+    } else {
+      this.older[entry_newer] = entry_older;
+    }
+    if (entry_older == NONE) {
+      this.oldest = entry_newer;
+    } else {
+      this.newer[entry_older] = entry_newer;
+    }
+  }
+
+  private void unlinkBucket(
+    final int entry)
+  {
+    final int bucket = this.bucketOf(this.keys[entry]);
+    int current = this.buckets[bucket];
+    int previous = NONE;
+    while (current != entry) {
+      previous = current;
+      current = this.chain[current];
+    }
+    if (previous == NONE) {
+      this.buckets[bucket] = this.chain[entry];
+    } else {
+      this.chain[previous] = this.chain[entry];
+    }
+    this.values[entry] = null;
+  }
+}
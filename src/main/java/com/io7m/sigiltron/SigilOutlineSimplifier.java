@@ -0,0 +1,265 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.awt.Shape;
+import java.awt.geom.FlatteningPathIterator;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.util.Arrays;
+
+/**
+ * Functions to simplify glyph outlines. Curves are flattened into line
+ * segments, and each contour is then reduced with the Ramer-Douglas-Peucker
+ * algorithm. The errors of the two stages add up, so each stage is given half
+ * of the tolerance, and no point of the simplified contour lies further than
+ * the tolerance from the original outline. The number of segments of a
+ * simplified outline depends on the shape of the glyph and the tolerance,
+ * rather than on the number of control points chosen by the font designer,
+ * which bounds the size of outlines taken from very detailed fonts. Contours
+ * that collapse to fewer than three points are removed. Simple outlines made
+ * of a few curves can need more coordinates once flattened than they did
+ * originally, so the simplified outline is only used if it has fewer
+ * coordinates than the original.
+ */
+
+final class SigilOutlineSimplifier
+{
+  private SigilOutlineSimplifier()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Simplify a shape.
+   *
+   * @param shape     The shape
+   * @param tolerance The largest permitted distance between the simplified
+   *                  shape and the original shape
+   *
+   * @return The simplified shape, or a copy of the original shape if that
+   * has fewer coordinates
+   */
+
+  static Path2D.Float simplify(
+    final Shape shape,
+    final double tolerance)
+  {
+    final Path2D.Float simplified = flattened(shape, tolerance / 2.0);
+    if (coordinates(simplified) < coordinates(shape)) {
+      return simplified;
+    }
+    return new Path2D.Float(shape);
+  }
+
+  private static int coordinates(
+    final Shape shape)
+  {
+    final double[] coords = new double[6];
+    final PathIterator iterator = shape.getPathIterator(null);
+    int count = 0;
+    while (!iterator.isDone()) {
+      count += switch (iterator.currentSegment(coords)) {
+        case PathIterator.SEG_QUADTO -> 4;
+        case PathIterator.SEG_CUBICTO -> 6;
+        case PathIterator.SEG_CLOSE -> 0;
+        default -> 2;
+      };
+      iterator.next();
+    }
+    return count;
+  }
+
+  /*
+   * Flatten curves to within the given tolerance, and then reduce each
+   * contour to within the same tolerance again.
+   */
+
+  private static Path2D.Float flattened(
+    final Shape shape,
+    final double tolerance)
+  {
+    final PathIterator iterator =
+      new FlatteningPathIterator(shape.getPathIterator(null), tolerance);
+    final Path2D.Float result = new Path2D.Float(iterator.getWindingRule());
+    final Contour contour = new Contour();
+    final double[] coords = new double[6];
+
+    while (!iterator.isDone()) {
+      final int segment = iterator.currentSegment(coords);
+      switch (segment) {
+        case PathIterator.SEG_MOVETO -> {
+          contour.appendTo(result, tolerance, false);
+          contour.add(coords, 0);
+        }
+        case PathIterator.SEG_LINETO -> contour.add(coords, 0);
+        case PathIterator.SEG_CLOSE -> contour.appendTo(result, tolerance, true);
+        default -> throw new IllegalStateException(
+          String.format("Unexpected path segment %d", Integer.valueOf(segment)));
+      }
+      iterator.next();
+    }
+    contour.appendTo(result, tolerance, false);
+    return result;
+  }
+
+  private static final class Contour
+  {
+    private double[] points;
+    private boolean[] kept;
+    private int[] stack;
+    private int count;
+
+    Contour()
+    {
+      this.points = new double[64];
+      this.kept = new boolean[32];
+      this.stack = new int[64];
+      this.count = 0;
+    }
+
+    void add(
+      final double[] coords,
+      final int offset)
+    {
+      if (this.count * 2 == this.points.length) {
+        this.points = Arrays.copyOf(this.points, this.points.length * 2);
+      }
+      System.arraycopy(coords, offset, this.points, this.count * 2, 2);
+      ++this.count;
+    }
+
+    /**
+     * Simplify the contour, append it to the given path, and clear the
+     * contour.
+     */
+
+    void appendTo(
+      final Path2D.Float path,
+      final double tolerance,
+      final boolean closed)
+    {
+      if (this.count >= 2) {
+        final int kept_count = this.simplify(tolerance);
+        if (kept_count >= 3 || (!closed && kept_count == 2)) {
+          this.emit(path, closed);
+        }
+      }
+      this.count = 0;
+    }
+
+    private void emit(
+      final Path2D.Float path,
+      final boolean closed)
+    {
+      final double[] p = this.points;
+      for (int index = 0; index < this.count; ++index) {
+        if (index == 0) {
+          path.moveTo(p[index * 2], p[index * 2 + 1]);
+        } else if (this.kept[index]) {
+          path.lineTo(p[index * 2], p[index * 2 + 1]);
+        }
+      }
+      if (closed) {
+        path.closePath();
+      }
+    }
+
+    /**
+     * Mark the points that are kept, without recursion.
+     *
+     * @return The number of points kept
+     */
+
+    private int simplify(
+      final double tolerance)
+    {
+      if (this.kept.length < this.count) {
+        this.kept = new boolean[this.points.length / 2];
+      }
+      Arrays.fill(this.kept, 0, this.count, false);
+      this.kept[0] = true;
+      this.kept[this.count - 1] = true;
+
+      int kept_count = 2;
+      int top = this.push(0, 0, this.count - 1);
+      while (top > 0) {
+        top -= 2;
+        final int first = this.stack[top];
+        final int last = this.stack[top + 1];
+        final int furthest = this.furthest(first, last, tolerance);
+        if (furthest > first) {
+          this.kept[furthest] = true;
+          ++kept_count;
+          top = this.push(top, first, furthest);
+          top = this.push(top, furthest, last);
+        }
+      }
+      return kept_count;
+    }
+
+    private int push(
+      final int top,
+      final int first,
+      final int last)
+    {
+      if (top + 2 > this.stack.length) {
+        this.stack = Arrays.copyOf(this.stack, this.stack.length * 2);
+      }
+      this.stack[top] = first;
+      this.stack[top + 1] = last;
+      return top + 2;
+    }
+
+    /**
+     * @return The index of the point between {@code first} and {@code last}
+     * that is furthest from the segment between them, if it is further
+     * than the tolerance, or {@code first} otherwise
+     */
+
+    private int furthest(
+      final int first,
+      final int last,
+      final double tolerance)
+    {
+      final double[] p = this.points;
+      final double x0 = p[first * 2];
+      final double y0 = p[first * 2 + 1];
+      final double dx = p[last * 2] - x0;
+      final double dy = p[last * 2 + 1] - y0;
+      final double length_sq = dx * dx + dy * dy;
+
+      int result = first;
+      double distance_max = tolerance;
+      for (int index = first + 1; index < last; ++index) {
+        final double px = p[index * 2] - x0;
+        final double py = p[index * 2 + 1] - y0;
+        final double t = length_sq == 0.0
+          ? 0.0
+          : Math.max(0.0, Math.min(1.0, (px * dx + py * dy) / length_sq));
+        final double distance = Math.hypot(px - t * dx, py - t * dy);
+        if (distance > distance_max) {
+          distance_max = distance;
+          result = index;
+        }
+      }
+      return result;
+    }
+  }
+}
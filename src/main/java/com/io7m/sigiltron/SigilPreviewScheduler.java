@@ -0,0 +1,227 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import javax.swing.Timer;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Schedules live previews as the user edits the intent and the generation
+ * parameters.
+ *
+ * <p>Changes are debounced: a preview starts only once no change has been
+ * made for {@link #DEBOUNCE_MILLIS}, so a burst of keystrokes produces one
+ * preview rather than one per keystroke. At most one preview is in flight
+ * at a time, from the start of generation until the canvas has finished
+ * rendering it; changes made while a preview is in flight are coalesced
+ * into a single preview of the latest state, started as soon as the
+ * current one completes. Previews are therefore never cancelled by
+ * further typing, and the display keeps up with continuous edits.</p>
+ *
+ * <p>Each preview is expected to fit in a frame budget of
+ * {@link #FRAME_BUDGET_MILLIS}. The time taken by full quality previews is
+ * tracked, and while it exceeds the budget previews are drawn at
+ * {@link Quality#FAST fast} quality instead. Once the user stops editing
+ * for {@link #SETTLE_MILLIS}, the latest fast preview is replaced with a
+ * full quality one.</p>
+ *
+ * <p>All methods must be called on the event dispatch thread.</p>
+ */
+
+final class SigilPreviewScheduler
+{
+  /**
+   * The time after the last change before a preview starts.
+   */
+
+  static final int DEBOUNCE_MILLIS = 120;
+
+  /**
+   * The time after the last change before a fast preview is replaced with
+   * a full quality one.
+   */
+
+  static final int SETTLE_MILLIS = 500;
+
+  /**
+   * The time within which a preview should be generated and rendered.
+   */
+
+  static final long FRAME_BUDGET_MILLIS = 50L;
+
+  private static final long FRAME_BUDGET_NANOS =
+    TimeUnit.MILLISECONDS.toNanos(FRAME_BUDGET_MILLIS);
+
+  /**
+   * The quality at which a preview is drawn.
+   */
+
+  enum Quality
+  {
+    /**
+     * Draw the preview exactly as the sigil will be saved.
+     */
+
+    FULL,
+
+    /**
+     * Draw the preview with rendering hints that favour speed over
+     * appearance, such as disabling antialiasing.
+     */
+
+    FAST
+  }
+
+  private final Consumer<Quality> start;
+  private final Timer debounce;
+  private final Timer settle;
+  private boolean enabled;
+  private boolean in_flight;
+  private boolean dirty;
+  private Quality in_flight_quality;
+  private long full_frame_nanos;
+
+  /**
+   * Construct a scheduler.
+   *
+   * @param in_start A function that starts a preview at the given quality,
+   *                 and that arranges for {@link #completed(long)} or
+   *                 {@link #abandoned()} to be called when it finishes
+   */
+
+  SigilPreviewScheduler(
+    final Consumer<Quality> in_start)
+  {
+    this.start = Objects.requireNonNull(in_start, "Start");
+    this.debounce = new Timer(DEBOUNCE_MILLIS, e -> this.request(this.quality()));
+    this.debounce.setRepeats(false);
+    this.settle = new Timer(SETTLE_MILLIS, e -> this.request(Quality.FULL));
+    this.settle.setRepeats(false);
+    this.in_flight_quality = Quality.FULL;
+  }
+
+  /**
+   * Enable or disable live previews. Enabling previews schedules a preview
+   * of the current state.
+   *
+   * @param in_enabled {@code true} if previews should be shown
+   */
+
+  void setEnabled(
+    final boolean in_enabled)
+  {
+    this.enabled = in_enabled;
+    if (in_enabled) {
+      this.changed();
+    } else {
+      this.debounce.stop();
+      this.settle.stop();
+      this.dirty = false;
+    }
+  }
+
+  /**
+   * Indicate that the intent or the generation parameters have changed.
+   */
+
+  void changed()
+  {
+    if (this.enabled) {
+      this.settle.stop();
+      this.debounce.restart();
+    }
+  }
+
+  /**
+   * Indicate that the preview in flight has been displayed.
+   *
+   * @param nanos The time taken to generate and render the preview
+   */
+
+  void completed(
+    final long nanos)
+  {
+    if (!this.in_flight) {
+      return;
+    }
+
+    if (this.in_flight_quality == Quality.FULL) {
+      this.full_frame_nanos =
+        this.full_frame_nanos == 0L ? nanos : (3L * this.full_frame_nanos + nanos) / 4L;
+    }
+    this.finish();
+  }
+
+  /**
+   * Indicate that the preview in flight failed, or was superseded by a
+   * sigil that was not a preview.
+   */
+
+  void abandoned()
+  {
+    if (this.in_flight) {
+      this.finish();
+    }
+  }
+
+  /**
+   * @return The smoothed time taken by recent full quality previews, in
+   * nanoseconds
+   */
+
+  long fullFrameNanos()
+  {
+    return this.full_frame_nanos;
+  }
+
+  private Quality quality()
+  {
+    if (this.full_frame_nanos > FRAME_BUDGET_NANOS) {
+      return Quality.FAST;
+    }
+    return Quality.FULL;
+  }
+
+  private void finish()
+  {
+    this.in_flight = false;
+    if (this.dirty) {
+      this.dirty = false;
+      this.request(this.quality());
+    } else if (this.in_flight_quality == Quality.FAST && this.enabled) {
+      this.settle.restart();
+    }
+  }
+
+  private void request(
+    final Quality quality)
+  {
+    if (!this.enabled) {
+      return;
+    }
+    if (this.in_flight) {
+      this.dirty = true;
+      return;
+    }
+
+    this.in_flight = true;
+    this.in_flight_quality = quality;
+    this.start.accept(quality);
+  }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * A loose quadtree of axis-aligned boxes centred around the origin. Each
+ * box is stored in the deepest node whose cell contains the centre of the
+ * box and is at least as large as the box; the bounds of a node are taken
+ * to be its cell expanded by half of the cell size on every side, so boxes
+ * never straddle nodes and do not accumulate near the root. When boxes of
+ * similar sizes are inserted, both insertion and queries take logarithmic
+ * time in the number of boxes. The tree grows to accommodate boxes that lie
+ * outside of it.
+ */
+
+final class SigilQuadTree
+{
+  private static final int MAXIMUM_DEPTH = 24;
+  private static final double INITIAL_EXTENT = 1024.0;
+
+  private double[] boxes;
+  private int count;
+  private Node root;
+
+  /**
+   * Construct an empty tree.
+   *
+   * @param capacity The expected number of boxes
+   */
+
+  SigilQuadTree(
+    final int capacity)
+  {
+    this.boxes = new double[Math.max(1, capacity) * 4];
+    this.count = 0;
+    this.root = new Node(0.0, 0.0, INITIAL_EXTENT, 0);
+  }
+
+  /**
+   * @return The number of boxes in the tree
+   */
+
+  int size()
+  {
+    return this.count;
+  }
+
+  /**
+   * Insert a box.
+   *
+   * @param min_x The minimum X coordinate
+   * @param min_y The minimum Y coordinate
+   * @param max_x The maximum X coordinate
+   * @param max_y The maximum Y coordinate
+   *
+   * @return The index of the box
+   */
+
+  int insert(
+    final double min_x,
+    final double min_y,
+    final double max_x,
+    final double max_y)
+  {
+    final int index = this.count;
+    final int base = index * 4;
+    if (base + 4 > this.boxes.length) {
+      this.boxes = Arrays.copyOf(this.boxes, this.boxes.length * 2);
+    }
+    this.boxes[base] = min_x;
+    this.boxes[base + 1] = min_y;
+    this.boxes[base + 2] = max_x;
+    this.boxes[base + 3] = max_y;
+    ++this.count;
+
+    final double extent = this.root.half;
+    if (!this.root.containsCentreOf(this.boxes, index)) {
+      this.rebuild(this.grownExtent(extent, index));
+    } else {
+      this.root.insert(this.boxes, index);
+    }
+    return index;
+  }
+
+  /**
+   * Determine if any box in the tree overlaps the given box and satisfies
+   * the given test. The test is evaluated, in no particular order, only
+   * for boxes that overlap the given box.
+   *
+   * @param min_x The minimum X coordinate
+   * @param min_y The minimum Y coordinate
+   * @param max_x The maximum X coordinate
+   * @param max_y The maximum Y coordinate
+   * @param test  The test applied to the index of each overlapping box
+   *
+   * @return {@code true} if a box overlaps and satisfies the test
+   */
+
+  boolean anyOverlapping(
+    final double min_x,
+    final double min_y,
+    final double max_x,
+    final double max_y,
+    final IntPredicate test)
+  {
+    return this.root.anyOverlapping(
+      this.boxes, min_x, min_y, max_x, max_y, test);
+  }
+
+  private double grownExtent(
+    final double extent,
+    final int index)
+  {
+    final int base = index * 4;
+    final double centre_x = (this.boxes[base] + this.boxes[base + 2]) * 0.5;
+    final double centre_y = (this.boxes[base + 1] + this.boxes[base + 3]) * 0.5;
+    final double required =
+      Math.max(Math.abs(centre_x), Math.abs(centre_y));
+
+    double grown = extent * 2.0;
+    while (grown < required) {
+      grown *= 2.0;
+    }
+    return grown;
+  }
+
+  private void rebuild(
+    final double extent)
+  {
+    this.root = new Node(0.0, 0.0, extent, 0);
+    for (int index = 0; index < this.count; ++index) {
+      this.root.insert(this.boxes, index);
+    }
+  }
+
+  private static final class Node
+  {
+    private final double centre_x;
+    private final double centre_y;
+    private final double half;
+    private final int depth;
+    private Node[] children;
+    private int[] items;
+    private int item_count;
+
+    Node(
+      final double in_centre_x,
+      final double in_centre_y,
+      final double in_half,
+      final int in_depth)
+    {
+      this.centre_x = in_centre_x;
+      this.centre_y = in_centre_y;
+      this.half = in_half;
+      this.depth = in_depth;
+      this.children = null;
+      this.items = null;
+      this.item_count = 0;
+    }
+
+    boolean containsCentreOf(
+      final double[] boxes,
+      final int index)
+    {
+      final int base = index * 4;
+      final double x = (boxes[base] + boxes[base + 2]) * 0.5;
+      final double y = (boxes[base + 1] + boxes[base + 3]) * 0.5;
+      return Math.abs(x - this.centre_x) <= this.half
+        && Math.abs(y - this.centre_y) <= this.half;
+    }
+
+    void insert(
+      final double[] boxes,
+      final int index)
+    {
+      final int base = index * 4;
+      final double size = Math.max(
+        boxes[base + 2] - boxes[base],
+        boxes[base + 3] - boxes[base + 1]);
+
+      Node node = this;
+      while (node.depth < MAXIMUM_DEPTH && size <= node.half) {
+        node = node.child(
+          boxes[base] + boxes[base + 2] >= node.centre_x * 2.0,
+          boxes[base + 1] + boxes[base + 3] >= node.centre_y * 2.0);
+      }
+      node.add(index);
+    }
+
+    private Node child(
+      final boolean east,
+      final boolean south)
+    {
+      if (this.children == null) {
+        this.children = new Node[4];
+      }
+
+      final int slot = (east ? 1 : 0) | (south ? 2 : 0);
+      Node node = this.children[slot];
+      if (node == null) {
+        final double quarter = this.half * 0.5;
+        node = new Node(
+          east ? this.centre_x + quarter : this.centre_x - quarter,
+          south ? this.centre_y + quarter : this.centre_y - quarter,
+          quarter,
+          this.depth + 1);
+        this.children[slot] = node;
+      }
+      return node;
+    }
+
+    private void add(
+      final int index)
+    {
+      if (this.items == null) {
+        this.items = new int[4];
+      } else if (this.item_count == this.items.length) {
+        this.items = Arrays.copyOf(this.items, this.items.length * 2);
+      }
+      this.items[this.item_count] = index;
+      ++this.item_count;
+    }
+
+    boolean anyOverlapping(
+      final double[] boxes,
+      final double min_x,
+      final double min_y,
+      final double max_x,
+      final double max_y,
+      final IntPredicate test)
+    {
+      final double loose = this.half * 2.0;
+      if (max_x < this.centre_x - loose
+        || min_x > this.centre_x + loose
+        || max_y < this.centre_y - loose
+        || min_y > this.centre_y + loose) {
+        return false;
+      }
+
+      for (int item = 0; item < this.item_count; ++item) {
+        final int index = this.items[item];
+        final int base = index * 4;
+        final boolean overlapping =
+          boxes[base] <= max_x
+            && boxes[base + 2] >= min_x
+            && boxes[base + 1] <= max_y
+            && boxes[base + 3] >= min_y;
+        if (overlapping && test.test(index)) {
+          return true;
+        }
+      }
+      return this.anyChildOverlapping(
+        boxes, min_x, min_y, max_x, max_y, test);
+    }
+
+    private boolean anyChildOverlapping(
+      final double[] boxes,
+      final double min_x,
+      final double min_y,
+      final double max_x,
+      final double max_y,
+      final IntPredicate test)
+    {
+      if (this.children == null) {
+        return false;
+      }
+      for (final Node node : this.children) {
+        if (node != null
+          && node.anyOverlapping(boxes, min_x, min_y, max_x, max_y, test)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
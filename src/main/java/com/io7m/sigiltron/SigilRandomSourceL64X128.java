@@ -0,0 +1,51 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+/**
+ * A random source backed by the JDK {@code L64X128MixRandom} generator.
+ */
+
+public final class SigilRandomSourceL64X128 implements SigilRandomSourceType
+{
+  private final RandomGeneratorFactory<RandomGenerator> factory;
+
+  /**
+   * Construct a random source.
+   */
+
+  public SigilRandomSourceL64X128()
+  {
+    this.factory = RandomGeneratorFactory.of("L64X128MixRandom");
+  }
+
+  @Override
+  public RandomGenerator create(
+    final long seed)
+  {
+    return this.factory.create(seed);
+  }
+
+  @Override
+  public String toString()
+  {
+    return "L64X128MixRandom";
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free meter of events per second over the last few seconds. Events
+ * are counted in a ring of one-second buckets, each stamped with the second
+ * that it counts; a bucket is reset by the first event that finds it holding
+ * an old second. Two threads that reset the same bucket at the same moment
+ * can lose an event between them, which is an acceptable price for never
+ * taking a lock.
+ */
+
+final class SigilRateMeter
+{
+  private static final int BUCKETS = 16;
+  private static final int WINDOW = 10;
+
+  private final AtomicLongArray counts;
+  private final AtomicLongArray seconds;
+  private final long origin;
+
+  /**
+   * Construct a meter.
+   */
+
+  SigilRateMeter()
+  {
+    this.counts = new AtomicLongArray(BUCKETS);
+    this.seconds = new AtomicLongArray(BUCKETS);
+    this.origin = System.nanoTime();
+    for (int index = 0; index < BUCKETS; ++index) {
+      this.seconds.set(index, -1L);
+    }
+  }
+
+  private long secondNow()
+  {
+    return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - this.origin);
+  }
+
+  /**
+   * Record an event.
+   */
+
+  void record()
+  {
+    final long second = this.secondNow();
+    final int bucket = (int) (second % BUCKETS);
+    final long stamp = this.seconds.get(bucket);
+    if (stamp != second && this.seconds.compareAndSet(bucket, stamp, second)) {
+      this.counts.set(bucket, 0L);
+    }
+    this.counts.incrementAndGet(bucket);
+  }
+
+  /**
+   * @return The average number of events per second over the last ten
+   * complete seconds (or fewer, if the meter is younger than that)
+   */
+
+  double perSecond()
+  {
+    final long second = this.secondNow();
+    final long span = Math.min(WINDOW, second);
+    if (span == 0L) {
+      return 0.0;
+    }
+
+    long total = 0L;
+    for (long past = second - span; past < second; ++past) {
+      final int bucket = (int) (past % BUCKETS);
+      if (this.seconds.get(bucket) == past) {
+        total += this.counts.get(bucket);
+      }
+    }
+    return (double) total / (double) span;
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import org.apache.batik.anim.dom.SVGDOMImplementation;
+import org.apache.batik.svggen.SVGGraphics2D;
+import org.w3c.dom.DOMImplementation;
+import org.w3c.dom.svg.SVGDocument;
+
+import java.awt.Font;
+import java.awt.geom.AffineTransform;
+import java.util.Objects;
+
+/**
+ * A renderer that draws glyphs onto an {@link SVGGraphics2D}, producing a
+ * Batik SVG DOM document suitable for display in a canvas. The graphics
+ * context may be taken from a {@link SigilBatikGraphicsPool}, to which it
+ * is returned when the document is complete.
+ */
+
+public final class SigilRendererBatik implements SigilRendererType
+{
+  private final SVGDocument document;
+  private final SigilBatikGraphicsPool pool;
+  private final SVGGraphics2D graphics;
+  private AffineTransform origin;
+  private int glyphs;
+
+  /**
+   * Construct a renderer that uses a new graphics context.
+   */
+
+  public SigilRendererBatik()
+  {
+    this(SigilBatikGraphicsPool.disabled());
+  }
+
+  /**
+   * Construct a renderer that takes a graphics context from the given pool.
+   *
+   * @param in_pool The pool of graphics contexts
+   */
+
+  SigilRendererBatik(
+    final SigilBatikGraphicsPool in_pool)
+  {
+    final DOMImplementation impl =
+      SVGDOMImplementation.getDOMImplementation();
+    final String svg_ns = SVGDOMImplementation.SVG_NAMESPACE_URI;
+    this.document = (SVGDocument) impl.createDocument(svg_ns, "svg", null);
+    this.pool = Objects.requireNonNull(in_pool, "Pool");
+    this.graphics = this.pool.acquire(this.document);
+    this.origin = this.graphics.getTransform();
+  }
+
+  @Override
+  public void begin(
+    final int width,
+    final int height)
+  {
+    this.graphics.translate(width / 2, height / 2);
+    this.origin = this.graphics.getTransform();
+  }
+
+  @Override
+  public void glyph(
+    final Font font,
+    final int codepoint,
+    final double angle,
+    final int offset)
+  {
+    final SVGGraphics2D g = this.graphics;
+    g.setFont(font);
+    g.setTransform(this.origin);
+    g.rotate(angle);
+    g.drawString(Character.toString(codepoint), 0, offset);
+    ++this.glyphs;
+  }
+
+  @Override
+  public void end()
+  {
+    final SigilEventBatikRoot event = new SigilEventBatikRoot();
+    event.begin();
+    this.graphics.getRoot(this.document.getDocumentElement());
+    this.pool.release(this.graphics);
+    event.finish(this.glyphs);
+  }
+
+  /**
+   * @return The rendered document
+   */
+
+  public SVGDocument document()
+  {
+    return this.document;
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import org.apache.batik.anim.dom.SVGDOMImplementation;
+import org.w3c.dom.DOMImplementation;
+import org.w3c.dom.Element;
+import org.w3c.dom.svg.SVGDocument;
+
+import java.awt.Font;
+import java.util.Objects;
+
+/**
+ * A renderer that builds a Batik SVG DOM document holding one
+ * {@code <path>} element per glyph, in place of the {@code <text>} elements
+ * produced by {@link SigilRendererBatik}. The documents do not refer to
+ * fonts by name, and so look the same on every machine regardless of the
+ * fonts installed there. Outlines are taken from a {@link SigilGlyphCache}
+ * that may be shared between renderers, so each glyph is converted to a
+ * path only once.
+ */
+
+public final class SigilRendererBatikOutlines implements SigilRendererType
+{
+  private static final int DECIMALS = 3;
+  private static final int SCALE_DECIMALS = 6;
+
+  private final SVGDocument document;
+  private final SigilGlyphCache glyph_cache;
+  private final Element group;
+  private final StringBuilder buffer;
+  private int glyphs;
+
+  /**
+   * Construct a renderer.
+   *
+   * @param in_glyphs The glyph outline cache
+   */
+
+  public SigilRendererBatikOutlines(
+    final SigilGlyphCache in_glyphs)
+  {
+    final DOMImplementation impl =
+      SVGDOMImplementation.getDOMImplementation();
+    final String svg_ns = SVGDOMImplementation.SVG_NAMESPACE_URI;
+    this.document = (SVGDocument) impl.createDocument(svg_ns, "svg", null);
+    this.glyph_cache = Objects.requireNonNull(in_glyphs, "Glyphs");
+    this.group = this.document.createElementNS(svg_ns, "g");
+    this.document.getDocumentElement().appendChild(this.group);
+    this.buffer = new StringBuilder(64);
+  }
+
+  @Override
+  public void begin(
+    final int width,
+    final int height)
+  {
+    final Element root = this.document.getDocumentElement();
+    root.setAttributeNS(null, "width", Integer.toString(width));
+    root.setAttributeNS(null, "height", Integer.toString(height));
+
+    this.group.setAttributeNS(
+      null,
+      "transform",
+      String.format("translate(%d %d)",
+                    Integer.valueOf(width / 2),
+                    Integer.valueOf(height / 2)));
+    this.group.setAttributeNS(null, "fill", "black");
+    this.group.setAttributeNS(null, "stroke", "none");
+  }
+
+  @Override
+  public void glyph(
+    final Font font,
+    final int codepoint,
+    final double angle,
+    final int offset)
+  {
+    ++this.glyphs;
+
+    final String outline = this.glyph_cache.outline(font, codepoint);
+    if (outline.isEmpty()) {
+      return;
+    }
+
+    final StringBuilder b = this.buffer;
+    b.setLength(0);
+    b.append("rotate(");
+    SigilSVGText.appendDegrees(b, angle, DECIMALS);
+    b.append(") translate(0 ");
+    b.append(offset);
+    b.append(") scale(");
+    SigilSVGText.appendNumber(
+      b,
+      (double) font.getSize2D() / (double) SigilGlyphCache.REFERENCE_SIZE,
+      SCALE_DECIMALS);
+    b.append(')');
+
+    final Element path = this.document.createElementNS(
+      SVGDOMImplementation.SVG_NAMESPACE_URI, "path");
+    path.setAttributeNS(null, "transform", b.toString());
+    path.setAttributeNS(null, "d", outline);
+    this.group.appendChild(path);
+  }
+
+  @Override
+  public void end()
+  {
+    final SigilEventBatikRoot event = new SigilEventBatikRoot();
+    event.begin();
+    event.finish(this.glyphs);
+  }
+
+  /**
+   * @return The rendered document
+   */
+
+  public SVGDocument document()
+  {
+    return this.document;
+  }
+}
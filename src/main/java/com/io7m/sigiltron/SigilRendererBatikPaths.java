@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import org.apache.batik.anim.dom.SVGDOMImplementation;
+import org.w3c.dom.DOMImplementation;
+import org.w3c.dom.Element;
+import org.w3c.dom.svg.SVGDocument;
+
+import java.awt.Font;
+
+/**
+ * A renderer that builds a Batik SVG DOM document holding one
+ * {@code <path>} element per font and style (see {@link SigilGlyphPaths}),
+ * rather than one element per glyph as {@link SigilRendererBatik} does.
+ * The document is suitable for display in a canvas, and remains small and
+ * quick to build into a graphics tree for intents of any length.
+ */
+
+public final class SigilRendererBatikPaths implements SigilRendererType
+{
+  private final SVGDocument document;
+  private final SigilGlyphPaths paths;
+  private final Element group;
+  private int glyphs;
+
+  /**
+   * Construct a renderer.
+   *
+   * @param in_glyphs The glyph outline cache
+   */
+
+  public SigilRendererBatikPaths(
+    final SigilGlyphCache in_glyphs)
+  {
+    final DOMImplementation impl =
+      SVGDOMImplementation.getDOMImplementation();
+    final String svg_ns = SVGDOMImplementation.SVG_NAMESPACE_URI;
+    this.document = (SVGDocument) impl.createDocument(svg_ns, "svg", null);
+    this.paths = new SigilGlyphPaths(in_glyphs);
+    this.group = this.document.createElementNS(svg_ns, "g");
+    this.document.getDocumentElement().appendChild(this.group);
+  }
+
+  @Override
+  public void begin(
+    final int width,
+    final int height)
+  {
+    this.paths.clear();
+
+    final Element root = this.document.getDocumentElement();
+    root.setAttributeNS(null, "width", Integer.toString(width));
+    root.setAttributeNS(null, "height", Integer.toString(height));
+
+    this.group.setAttributeNS(
+      null,
+      "transform",
+      String.format("translate(%d %d)",
+                    Integer.valueOf(width / 2),
+                    Integer.valueOf(height / 2)));
+    this.group.setAttributeNS(null, "fill", "black");
+    this.group.setAttributeNS(null, "stroke", "none");
+  }
+
+  @Override
+  public void glyph(
+    final Font font,
+    final int codepoint,
+    final double angle,
+    final int offset)
+  {
+    this.paths.add(font, codepoint, angle, offset);
+    ++this.glyphs;
+  }
+
+  @Override
+  public void end()
+  {
+    final SigilEventBatikRoot event = new SigilEventBatikRoot();
+    event.begin();
+    final String svg_ns = SVGDOMImplementation.SVG_NAMESPACE_URI;
+    for (int index = 0; index < this.paths.size(); ++index) {
+      final Element path = this.document.createElementNS(svg_ns, "path");
+      path.setAttributeNS(null, "d", this.paths.data(index));
+      this.group.appendChild(path);
+    }
+    this.paths.clear();
+    event.finish(this.glyphs);
+  }
+
+  /**
+   * @return The rendered document
+   */
+
+  public SVGDocument document()
+  {
+    return this.document;
+  }
+}
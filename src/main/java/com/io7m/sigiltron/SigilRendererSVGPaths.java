@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.awt.Font;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Objects;
+
+/**
+ * A renderer that streams SVG to a {@link Writer}, drawing the sigil as one
+ * {@code <path>} element per font and style with the transforms of the
+ * glyphs applied to the outlines (see {@link SigilGlyphPaths}). The path
+ * data is held in memory until the end of the sigil. This produces far
+ * fewer elements than any other renderer, and documents that are cheap for
+ * viewers to load, at the cost of losing the individual glyphs. Outlines are
+ * taken from a {@link SigilGlyphCache} that may be shared between renderers.
+ */
+
+public final class SigilRendererSVGPaths implements SigilRendererType
+{
+  private final Writer writer;
+  private final SigilGlyphPaths paths;
+  private final StringBuilder buffer;
+
+  /**
+   * Construct a renderer.
+   *
+   * @param in_writer The output writer
+   * @param in_glyphs The glyph outline cache
+   */
+
+  public SigilRendererSVGPaths(
+    final Writer in_writer,
+    final SigilGlyphCache in_glyphs)
+  {
+    this.writer = Objects.requireNonNull(in_writer, "Writer");
+    this.paths = new SigilGlyphPaths(in_glyphs);
+    this.buffer = new StringBuilder(256);
+  }
+
+  @Override
+  public void begin(
+    final int width,
+    final int height)
+    throws IOException
+  {
+    this.paths.clear();
+
+    final StringBuilder b = this.buffer;
+    b.setLength(0);
+    SigilSVGText.appendProlog(b);
+    b.append("<svg xmlns=\"http://www.w3.org/2000/svg\" version=\"1.1\"");
+    b.append(" width=\"");
+    b.append(width);
+    b.append("\" height=\"");
+    b.append(height);
+    b.append("\">\n");
+    b.append("<g transform=\"translate(");
+    b.append(width / 2);
+    b.append(' ');
+    b.append(height / 2);
+    b.append(")\" fill=\"black\" stroke=\"none\">\n");
+    this.writer.append(b);
+  }
+
+  @Override
+  public void glyph(
+    final Font font,
+    final int codepoint,
+    final double angle,
+    final int offset)
+  {
+    this.paths.add(font, codepoint, angle, offset);
+  }
+
+  @Override
+  public void end()
+    throws IOException
+  {
+    for (int index = 0; index < this.paths.size(); ++index) {
+      this.writer.append("<path d=\"");
+      this.paths.writeData(index, this.writer);
+      this.writer.append("\"/>\n");
+    }
+    this.paths.clear();
+
+    this.writer.append("</g>\n</svg>\n");
+    this.writer.flush();
+  }
+}
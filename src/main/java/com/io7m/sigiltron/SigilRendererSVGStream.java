@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.awt.Font;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * A renderer that streams SVG text directly to a {@link Writer}, without
+ * building a document in memory. Each glyph becomes a single {@code <text>}
+ * element carrying its own rotation.
+ */
+
+public final class SigilRendererSVGStream implements SigilRendererType
+{
+  private static final int DECIMALS = 3;
+
+  private final Writer writer;
+  private final StringBuilder buffer;
+  private Font font_last;
+  private String font_family;
+
+  /**
+   * Construct a renderer.
+   *
+   * @param in_writer The output writer
+   */
+
+  public SigilRendererSVGStream(
+    final Writer in_writer)
+  {
+    this.writer = Objects.requireNonNull(in_writer, "Writer");
+    this.buffer = new StringBuilder(256);
+  }
+
+  /**
+   * Construct a renderer that writes UTF-8 encoded output to the given
+   * channel.
+   *
+   * @param channel The output channel
+   *
+   * @return A renderer
+   */
+
+  public static SigilRendererSVGStream forChannel(
+    final WritableByteChannel channel)
+  {
+    return new SigilRendererSVGStream(
+      Channels.newWriter(channel, StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public void begin(
+    final int width,
+    final int height)
+    throws IOException
+  {
+    final StringBuilder b = this.buffer;
+    b.setLength(0);
+    SigilSVGText.appendProlog(b);
+    b.append("<svg xmlns=\"http://www.w3.org/2000/svg\" version=\"1.1\"");
+    b.append(" width=\"");
+    b.append(width);
+    b.append("\" height=\"");
+    b.append(height);
+    b.append("\">\n");
+    b.append("<g transform=\"translate(");
+    b.append(width / 2);
+    b.append(' ');
+    b.append(height / 2);
+    b.append(")\" fill=\"black\" stroke=\"none\" xml:space=\"preserve\">\n");
+    this.writer.append(b);
+  }
+
+  @Override
+  public void glyph(
+    final Font font,
+    final int codepoint,
+    final double angle,
+    final int offset)
+    throws IOException
+  {
+    if (!Objects.equals(font, this.font_last)) {
+      final StringBuilder f = new StringBuilder(64);
+      SigilSVGText.appendEscaped(f, SigilSVGText.fontFamily(font));
+      this.font_family = f.toString();
+      this.font_last = font;
+    }
+
+    final StringBuilder b = this.buffer;
+    b.setLength(0);
+    b.append("<text transform=\"rotate(");
+    SigilSVGText.appendDegrees(b, angle, DECIMALS);
+    b.append(")\" y=\"");
+    b.append(offset);
+    b.append("\" font-family=\"");
+    b.append(this.font_family);
+    b.append("\" font-size=\"");
+    SigilSVGText.appendNumber(b, (double) font.getSize2D(), DECIMALS);
+    b.append('"');
+    if (font.isBold()) {
+      b.append(" font-weight=\"bold\"");
+    }
+    if (font.isItalic()) {
+      b.append(" font-style=\"italic\"");
+    }
+    b.append('>');
+    SigilSVGText.appendEscaped(b, codepoint);
+    b.append("</text>\n");
+    this.writer.append(b);
+  }
+
+  @Override
+  public void end()
+    throws IOException
+  {
+    this.writer.append("</g>\n</svg>\n");
+    this.writer.flush();
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.awt.Font;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A renderer that streams SVG to a {@link Writer}, drawing each glyph as a
+ * {@code <use>} reference to a {@code <symbol>} holding the glyph outline.
+ * Each unique glyph is written exactly once into a {@code <defs>} element
+ * at the end of the document, so intents that repeat characters produce
+ * much smaller documents than with {@link SigilRendererSVGStream}. Outlines
+ * are taken from a {@link SigilGlyphCache} that may be shared between
+ * renderers, and symbols are matched by the content of the outline, so a
+ * glyph evicted from the cache and loaded again is not written twice.
+ * Unlike {@code <text>} elements, outlines do not depend on the fonts
+ * installed on the machine that displays the document.
+ */
+
+public final class SigilRendererSVGSymbols implements SigilRendererType
+{
+  private static final int DECIMALS = 3;
+  private static final int SCALE_DECIMALS = 6;
+
+  private final Writer writer;
+  private final SigilGlyphCache glyphs;
+  private final StringBuilder buffer;
+  private final Map<String, Integer> symbol_ids;
+  private final List<String> symbols;
+
+  /**
+   * Construct a renderer.
+   *
+   * @param in_writer The output writer
+   * @param in_glyphs The glyph outline cache
+   */
+
+  public SigilRendererSVGSymbols(
+    final Writer in_writer,
+    final SigilGlyphCache in_glyphs)
+  {
+    this.writer = Objects.requireNonNull(in_writer, "Writer");
+    this.glyphs = Objects.requireNonNull(in_glyphs, "Glyphs");
+    this.buffer = new StringBuilder(256);
+    this.symbol_ids = new HashMap<>(64);
+    this.symbols = new ArrayList<>(64);
+  }
+
+  @Override
+  public void begin(
+    final int width,
+    final int height)
+    throws IOException
+  {
+    this.symbol_ids.clear();
+    this.symbols.clear();
+
+    final StringBuilder b = this.buffer;
+    b.setLength(0);
+    SigilSVGText.appendProlog(b);
+    b.append("<svg xmlns=\"http://www.w3.org/2000/svg\"");
+    b.append(" xmlns:xlink=\"http://www.w3.org/1999/xlink\" version=\"1.1\"");
+    b.append(" width=\"");
+    b.append(width);
+    b.append("\" height=\"");
+    b.append(height);
+    b.append("\">\n");
+    b.append("<g transform=\"translate(");
+    b.append(width / 2);
+    b.append(' ');
+    b.append(height / 2);
+    b.append(")\" fill=\"black\" stroke=\"none\">\n");
+    this.writer.append(b);
+  }
+
+  @Override
+  public void glyph(
+    final Font font,
+    final int codepoint,
+    final double angle,
+    final int offset)
+    throws IOException
+  {
+    final String outline = this.glyphs.outline(font, codepoint);
+    if (outline.isEmpty()) {
+      return;
+    }
+
+    Integer symbol = this.symbol_ids.get(outline);
+    if (symbol == null) {
+      symbol = Integer.valueOf(this.symbols.size());
+      this.symbols.add(outline);
+      this.symbol_ids.put(outline, symbol);
+    }
+
+    final StringBuilder b = this.buffer;
+    b.setLength(0);
+    b.append("<use xlink:href=\"#g");
+    b.append(symbol.intValue());
+    b.append("\" transform=\"rotate(");
+    SigilSVGText.appendDegrees(b, angle, DECIMALS);
+    b.append(") translate(0 ");
+    b.append(offset);
+    b.append(") scale(");
+    SigilSVGText.appendNumber(
+      b,
+      (double) font.getSize2D() / (double) SigilGlyphCache.REFERENCE_SIZE,
+      SCALE_DECIMALS);
+    b.append(")\"/>\n");
+    this.writer.append(b);
+  }
+
+  @Override
+  public void end()
+    throws IOException
+  {
+    final StringBuilder b = this.buffer;
+    b.setLength(0);
+    b.append("</g>\n<defs>\n");
+    this.writer.append(b);
+
+    for (int index = 0; index < this.symbols.size(); ++index) {
+      b.setLength(0);
+      b.append("<symbol id=\"g");
+      b.append(index);
+      b.append("\" overflow=\"visible\"><path d=\"");
+      b.append(this.symbols.get(index));
+      b.append("\"/></symbol>\n");
+      this.writer.append(b);
+    }
+
+    this.writer.append("</defs>\n</svg>\n");
+    this.writer.flush();
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.awt.Font;
+import java.io.IOException;
+
+/**
+ * The type of renderers. A renderer receives the glyphs of a sigil, in
+ * order, from a {@link SigilGenerator} and produces some form of output.
+ * Renderers are used for a single sigil and are not thread-safe.
+ */
+
+public interface SigilRendererType
+{
+  /**
+   * Start rendering a sigil. Glyphs are positioned relative to the center of
+   * the image.
+   *
+   * @param width  The image width
+   * @param height The image height
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void begin(
+    int width,
+    int height)
+    throws IOException;
+
+  /**
+   * Render a glyph. The glyph is drawn at {@code (0, offset)} in a
+   * coordinate system rotated by {@code angle} radians around the center of
+   * the image.
+   *
+   * @param font      The font
+   * @param codepoint The character
+   * @param angle     The rotation (in radians)
+   * @param offset    The offset from the center of the image
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void glyph(
+    Font font,
+    int codepoint,
+    double angle,
+    int offset)
+    throws IOException;
+
+  /**
+   * Finish rendering the sigil.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void end()
+    throws IOException;
+}
@@ -16,7 +16,8 @@
 
 package com.io7m.sigiltron;
 
-import java.security.SecureRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * A completely random rotation.
@@ -25,23 +26,29 @@ import java.security.SecureRandom;
 public final class SigilRotationFunctionRandom implements
   SigilRotationFunctionType
 {
-  private final SecureRandom random;
-
   /**
    * Construct a rotation function.
    */
 
   public SigilRotationFunctionRandom()
   {
-    this.random = new SecureRandom();
+
   }
 
-  @SuppressWarnings("boxing")
   @Override
   public Double getRotation(
     final Character c)
   {
-    return Double.valueOf(this.random.nextDouble());
+    return Double.valueOf(
+      this.rotationOf(ThreadLocalRandom.current(), c.charValue()));
+  }
+
+  @Override
+  public double rotationOf(
+    final RandomGenerator random,
+    final int codepoint)
+  {
+    return random.nextDouble();
   }
 
   @Override
@@ -16,44 +16,40 @@
 
 package com.io7m.sigiltron;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.security.SecureRandom;
-import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 /**
- * A completely random rotation.
+ * A random rotation in 45° increments.
  */
 
 public final class SigilRotationFunctionRandom45 implements
   SigilRotationFunctionType
 {
-  private static final Logger LOG;
-
-  static {
-    LOG = LoggerFactory.getLogger(SigilRotationFunctionRandom45.class);
-  }
-
-  private final SecureRandom random;
-
   /**
    * Construct a rotation function.
    */
 
   public SigilRotationFunctionRandom45()
   {
-    this.random = new SecureRandom();
+
   }
 
   @Override
   public Double getRotation(
     final Character c)
   {
-    final int r = this.random.nextInt() * 8;
-    final int d = r * 45;
-    LOG.trace("rotation: {}", Integer.valueOf(d));
-    return Objects.requireNonNull(Double.valueOf(Math.toRadians((double) d)));
+    return Double.valueOf(
+      this.rotationOf(ThreadLocalRandom.current(), c.charValue()));
+  }
+
+  @Override
+  public double rotationOf(
+    final RandomGenerator random,
+    final int codepoint)
+  {
+    final int d = random.nextInt(8) * 45;
+    return Math.toRadians((double) d);
   }
 
   @Override
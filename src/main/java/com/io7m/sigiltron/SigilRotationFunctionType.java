@@ -16,6 +16,8 @@
 
 package com.io7m.sigiltron;
 
+import java.util.random.RandomGenerator;
+
 /**
  * Functions to decide rotation for characters.
  */
@@ -30,4 +32,48 @@ public interface SigilRotationFunctionType
 
   Double getRotation(
     Character c);
+
+  /**
+   * A primitive variant of {@link #getRotation(Character)} that draws its
+   * values from the given random generator, and so produces reproducible
+   * results. The default implementation adapts
+   * {@link #getRotation(Character)}, which cannot use the given generator,
+   * and code points outside of the Basic Multilingual Plane are truncated.
+   *
+   * @param random    The random generator
+   * @param codepoint The character
+   *
+   * @return A rotation value (in radians).
+   */
+
+  default double rotationOf(
+    final RandomGenerator random,
+    final int codepoint)
+  {
+    return this.getRotation(Character.valueOf((char) codepoint)).doubleValue();
+  }
+
+  /**
+   * Calculate rotation values for the {@code count} characters starting at
+   * {@code offset}.
+   *
+   * @param random     The random generator
+   * @param codepoints The characters
+   * @param offset     The index of the first character
+   * @param count      The number of characters
+   * @param output     The rotation values (in radians), written starting at
+   *                   {@code offset}
+   */
+
+  default void rotationsOf(
+    final RandomGenerator random,
+    final int[] codepoints,
+    final int offset,
+    final int count,
+    final double[] output)
+  {
+    for (int index = offset; index < offset + count; ++index) {
+      output[index] = this.rotationOf(random, codepoints[index]);
+    }
+  }
 }
@@ -0,0 +1,42 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+/**
+ * The effect of optimizing a serialized document.
+ *
+ * @param sizeBefore The size of the document without optimization, in bytes
+ * @param sizeAfter  The size of the optimized document, in bytes
+ */
+
+record SigilSVGOptimization(
+  long sizeBefore,
+  long sizeAfter)
+{
+  /**
+   * @return The size of the optimized document as a percentage of the
+   * size of the unoptimized document
+   */
+
+  double percentage()
+  {
+    if (this.sizeBefore == 0L) {
+      return 100.0;
+    }
+    return 100.0 * (double) this.sizeAfter / (double) this.sizeBefore;
+  }
+}
@@ -0,0 +1,731 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import org.apache.batik.anim.dom.SVGDOMImplementation;
+import org.apache.batik.parser.AWTTransformProducer;
+import org.apache.batik.parser.ParseException;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import java.awt.geom.AffineTransform;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * An optimizer that reduces the size of serialized SVG documents, such as
+ * those produced by {@link SigilRendererBatik}, without visibly changing
+ * their rendering. Documents are rewritten in place, and should be generic
+ * DOM documents rather than Batik SVG documents, which restore the default
+ * values of attributes that are removed:
+ *
+ * <ul>
+ *   <li>Comments, empty {@code <defs>} elements, and whitespace between
+ *   elements are removed.</li>
+ *   <li>Groups that hold a single element are merged into that element,
+ *   and groups without attributes are replaced by their children.</li>
+ *   <li>Transform lists are collapsed into a single transform, into which
+ *   the position of a text element is folded, and which is written in the
+ *   shortest of the equivalent matrix, translation and rotation forms.</li>
+ *   <li>Coordinates are rounded to a configurable number of decimal places.
+ *   The linear parts of transforms keep three more decimal places, so that
+ *   positions a thousand units from the origin keep the same precision.</li>
+ *   <li>Attributes that repeat their initial value, or the value inherited
+ *   from the parent element, are removed.</li>
+ *   <li>Presentation attributes that repeat across elements are hoisted into
+ *   CSS classes, where doing so saves space.</li>
+ * </ul>
+ */
+
+final class SigilSVGOptimizer
+{
+  /**
+   * The default number of decimal places for coordinates.
+   */
+
+  static final int DEFAULT_PRECISION = 2;
+
+  /**
+   * The largest supported number of decimal places for coordinates.
+   */
+
+  static final int MAXIMUM_PRECISION = SigilSVGText.MAXIMUM_DECIMALS - 3;
+
+  private static final String XML_NS =
+    "http://www.w3.org/XML/1998/namespace";
+  private static final double EPSILON = 1.0e-9;
+
+  private static final Set<String> GEOMETRY = Set.of(
+    "cx", "cy", "d", "dx", "dy", "font-size", "height", "points", "r", "rx",
+    "ry", "width", "x", "x1", "x2", "y", "y1", "y2"
+  );
+
+  private static final Map<String, String> INITIAL = Map.ofEntries(
+    Map.entry("clip-rule", "nonzero"),
+    Map.entry("color-interpolation", "sRGB"),
+    Map.entry("color-rendering", "auto"),
+    Map.entry("direction", "ltr"),
+    Map.entry("fill", "black"),
+    Map.entry("fill-opacity", "1"),
+    Map.entry("fill-rule", "nonzero"),
+    Map.entry("font-stretch", "normal"),
+    Map.entry("font-style", "normal"),
+    Map.entry("font-variant", "normal"),
+    Map.entry("font-weight", "normal"),
+    Map.entry("image-rendering", "auto"),
+    Map.entry("letter-spacing", "normal"),
+    Map.entry("shape-rendering", "auto"),
+    Map.entry("stroke", "none"),
+    Map.entry("stroke-dasharray", "none"),
+    Map.entry("stroke-dashoffset", "0"),
+    Map.entry("stroke-linecap", "butt"),
+    Map.entry("stroke-linejoin", "miter"),
+    Map.entry("stroke-miterlimit", "4"),
+    Map.entry("stroke-opacity", "1"),
+    Map.entry("stroke-width", "1"),
+    Map.entry("text-anchor", "start"),
+    Map.entry("text-rendering", "auto"),
+    Map.entry("visibility", "visible"),
+    Map.entry("word-spacing", "normal")
+  );
+
+  private static final Set<String> INHERITED_WITHOUT_INITIAL =
+    Set.of("font-family", "font-size");
+
+  private static final Map<String, Map<String, String>> ELEMENT_DEFAULTS =
+    Map.of(
+      "svg", Map.of(
+        "contentScriptType", "text/ecmascript",
+        "contentStyleType", "text/css",
+        "preserveAspectRatio", "xMidYMid meet",
+        "zoomAndPan", "magnify",
+        "x", "0",
+        "y", "0"),
+      "text", Map.of("x", "0", "y", "0"),
+      "rect", Map.of("x", "0", "y", "0"),
+      "use", Map.of("x", "0", "y", "0"),
+      "image", Map.of("x", "0", "y", "0")
+    );
+
+  private final int precision;
+
+  /**
+   * Construct an optimizer.
+   *
+   * @param in_precision The number of decimal places kept for coordinates,
+   *                     at most {@link #MAXIMUM_PRECISION}
+   */
+
+  SigilSVGOptimizer(
+    final int in_precision)
+  {
+    if (in_precision < 0 || in_precision > MAXIMUM_PRECISION) {
+      throw new IllegalArgumentException(
+        String.format(
+          "Precision %d must be in the range [0, %d]",
+          Integer.valueOf(in_precision),
+          Integer.valueOf(MAXIMUM_PRECISION)));
+    }
+    this.precision = in_precision;
+  }
+
+  /**
+   * @return The number of decimal places kept for coordinates
+   */
+
+  int precision()
+  {
+    return this.precision;
+  }
+
+  /**
+   * Optimize the given document in place.
+   *
+   * @param document The document
+   */
+
+  void optimize(
+    final Document document)
+  {
+    final Element root = document.getDocumentElement();
+    clean(root);
+    unwrap(root);
+    this.rewrite(root);
+    dropInherited(root, INITIAL);
+    hoist(document);
+  }
+
+  /*
+   * Remove comments, empty definitions, and whitespace between elements.
+   */
+
+  private static void clean(
+    final Element element)
+  {
+    final boolean text = isTextContent(element);
+    for (final Node child : children(element)) {
+      final short type = child.getNodeType();
+      if (type == Node.COMMENT_NODE) {
+        element.removeChild(child);
+      } else if (type == Node.TEXT_NODE) {
+        if (!text && child.getNodeValue().isBlank()) {
+          element.removeChild(child);
+        }
+      } else if (type == Node.ELEMENT_NODE) {
+        clean((Element) child);
+        if ("defs".equals(child.getLocalName()) && !child.hasChildNodes()) {
+          element.removeChild(child);
+        }
+      }
+    }
+  }
+
+  /*
+   * Merge groups into their only child elements, and replace groups without
+   * attributes with their children. Children are processed first, so that
+   * nested groups collapse from the inside out.
+   */
+
+  private static void unwrap(
+    final Element element)
+  {
+    for (final Node child : children(element)) {
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        unwrap((Element) child);
+      }
+    }
+
+    final Node parent = element.getParentNode();
+    if (parent == null
+      || parent.getNodeType() != Node.ELEMENT_NODE
+      || !"g".equals(element.getLocalName())) {
+      return;
+    }
+
+    if (!element.hasAttributes()) {
+      for (final Node child : children(element)) {
+        parent.insertBefore(child, element);
+      }
+      parent.removeChild(element);
+      return;
+    }
+
+    final Node only = element.getFirstChild();
+    if (only != null
+      && only == element.getLastChild()
+      && only.getNodeType() == Node.ELEMENT_NODE
+      && isMergeable(element, (Element) only)) {
+      mergeInto(element, (Element) only);
+      parent.replaceChild(only, element);
+    }
+  }
+
+  private static boolean isMergeable(
+    final Element group,
+    final Element child)
+  {
+    if (isRelativeLength(child.getAttribute("font-size"))) {
+      return false;
+    }
+    for (final Attr attribute : attributes(group)) {
+      final String name = attribute.getName();
+      if (!"transform".equals(name) && !isInherited(name)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void mergeInto(
+    final Element group,
+    final Element child)
+  {
+    for (final Attr attribute : attributes(group)) {
+      final String name = attribute.getName();
+      final String value = attribute.getValue();
+      if ("transform".equals(name)) {
+        final String inner = child.getAttribute("transform");
+        child.setAttributeNS(
+          null, "transform", inner.isEmpty() ? value : value + " " + inner);
+      } else if (!child.hasAttribute(name)) {
+        child.setAttributeNS(null, name, value);
+      }
+    }
+  }
+
+  /*
+   * Collapse transforms, round coordinates, and drop default attributes.
+   */
+
+  private void rewrite(
+    final Element element)
+  {
+    if (element.hasAttribute("transform")) {
+      this.collapseTransform(element);
+    }
+
+    final Map<String, String> defaults =
+      ELEMENT_DEFAULTS.getOrDefault(element.getLocalName(), Map.of());
+    for (final Attr attribute : attributes(element)) {
+      final String name = attribute.getName();
+      final String value = attribute.getValue();
+      if (value.equals(defaults.get(name))) {
+        element.removeAttributeNode(attribute);
+      } else if (GEOMETRY.contains(name)) {
+        attribute.setValue(this.rounded(value));
+      }
+    }
+
+    if (element.hasAttributeNS(XML_NS, "space")
+      && !containsWhitespace(element.getTextContent())) {
+      element.removeAttributeNS(XML_NS, "space");
+    }
+
+    for (final Node child : children(element)) {
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        this.rewrite((Element) child);
+      }
+    }
+  }
+
+  private void collapseTransform(
+    final Element element)
+  {
+    final AffineTransform transform;
+    try {
+      transform = AWTTransformProducer.createAffineTransform(
+        element.getAttribute("transform"));
+    } catch (final ParseException e) {
+      return;
+    }
+
+    if ("text".equals(element.getLocalName())) {
+      final String x = element.getAttribute("x");
+      final String y = element.getAttribute("y");
+      if (isNumberOrEmpty(x) && isNumberOrEmpty(y)) {
+        transform.translate(numberOf(x), numberOf(y));
+        element.removeAttribute("x");
+        element.removeAttribute("y");
+      }
+    }
+
+    final String shortest = this.transformText(transform);
+    if (shortest.isEmpty()) {
+      element.removeAttribute("transform");
+    } else {
+      element.setAttributeNS(null, "transform", shortest);
+    }
+  }
+
+  /*
+   * Write the given transform in the shortest of the equivalent forms that
+   * apply to it. The empty string denotes the identity.
+   */
+
+  private String transformText(
+    final AffineTransform t)
+  {
+    final StringBuilder translation = new StringBuilder(32);
+    if (!this.isZero(t.getTranslateX()) || !this.isZero(t.getTranslateY())) {
+      translation.append("translate(");
+      SigilSVGText.appendNumber(translation, t.getTranslateX(), this.precision);
+      translation.append(' ');
+      SigilSVGText.appendNumber(translation, t.getTranslateY(), this.precision);
+      translation.append(')');
+    }
+
+    final double a = t.getScaleX();
+    final double b = t.getShearY();
+    final double c = t.getShearX();
+    final double d = t.getScaleY();
+    final boolean rotation =
+      Math.abs(a - d) < EPSILON
+        && Math.abs(b + c) < EPSILON
+        && Math.abs(a * a + b * b - 1.0) < EPSILON;
+
+    if (!rotation) {
+      return this.matrixText(t);
+    }
+
+    final double angle = Math.atan2(b, a);
+    final StringBuilder rotated = new StringBuilder(translation);
+    if (Math.abs(angle) > EPSILON) {
+      rotated.append("rotate(");
+      SigilSVGText.appendDegrees(rotated, angle, this.precision + 2);
+      rotated.append(')');
+    }
+
+    final String matrix = this.matrixText(t);
+    return rotated.length() <= matrix.length() ? rotated.toString() : matrix;
+  }
+
+  private String matrixText(
+    final AffineTransform t)
+  {
+    final int linear = this.precision + 3;
+    final StringBuilder b = new StringBuilder(64);
+    b.append("matrix(");
+    SigilSVGText.appendNumber(b, t.getScaleX(), linear);
+    b.append(' ');
+    SigilSVGText.appendNumber(b, t.getShearY(), linear);
+    b.append(' ');
+    SigilSVGText.appendNumber(b, t.getShearX(), linear);
+    b.append(' ');
+    SigilSVGText.appendNumber(b, t.getScaleY(), linear);
+    b.append(' ');
+    SigilSVGText.appendNumber(b, t.getTranslateX(), this.precision);
+    b.append(' ');
+    SigilSVGText.appendNumber(b, t.getTranslateY(), this.precision);
+    b.append(')');
+    return b.toString();
+  }
+
+  private boolean isZero(
+    final double value)
+  {
+    return Math.abs(value) * Math.pow(10.0, this.precision) < 0.5;
+  }
+
+  private String rounded(
+    final String value)
+  {
+    final StringBuilder b = new StringBuilder(value.length());
+    int index = 0;
+    while (index < value.length()) {
+      final int end = numberEnd(value, index);
+      if (end == index) {
+        b.append(value.charAt(index));
+        ++index;
+      } else {
+        SigilSVGText.appendNumber(
+          b, Double.parseDouble(value.substring(index, end)), this.precision);
+        index = end;
+      }
+    }
+    return b.toString();
+  }
+
+  /**
+   * Find the end of the SVG number that starts at the given index.
+   *
+   * @param value The text
+   * @param start The index at which the number starts
+   *
+   * @return The index after the end of the number, or {@code start} if no
+   * number starts at the given index
+   */
+
+  private static int numberEnd(
+    final String value,
+    final int start)
+  {
+    final int sign_end = skipSign(value, start);
+    int index = skipDigits(value, sign_end);
+    boolean digits = index > sign_end;
+    if (index < value.length() && value.charAt(index) == '.') {
+      final int fraction_end = skipDigits(value, index + 1);
+      digits = digits || fraction_end > index + 1;
+      index = fraction_end;
+    }
+    if (!digits) {
+      return start;
+    }
+
+    if (index < value.length() && Character.toLowerCase(value.charAt(index)) == 'e') {
+      final int exponent = skipSign(value, index + 1);
+      final int exponent_end = skipDigits(value, exponent);
+      if (exponent_end > exponent) {
+        return exponent_end;
+      }
+    }
+    return index;
+  }
+
+  private static int skipSign(
+    final String value,
+    final int start)
+  {
+    if (start < value.length()) {
+      final char c = value.charAt(start);
+      if (c == '-' || c == '+') {
+        return start + 1;
+      }
+    }
+    return start;
+  }
+
+  private static int skipDigits(
+    final String value,
+    final int start)
+  {
+    int index = start;
+    while (index < value.length()
+      && value.charAt(index) >= '0'
+      && value.charAt(index) <= '9') {
+      ++index;
+    }
+    return index;
+  }
+
+  /*
+   * Remove inherited presentation attributes whose values are the values
+   * that the element would inherit anyway.
+   */
+
+  private static void dropInherited(
+    final Element element,
+    final Map<String, String> inherited)
+  {
+    Map<String, String> own = inherited;
+    for (final Attr attribute : attributes(element)) {
+      final String name = attribute.getName();
+      if (isInherited(name)) {
+        final String value = attribute.getValue();
+        if ("inherit".equals(value) || value.equals(inherited.get(name))) {
+          element.removeAttributeNode(attribute);
+        } else {
+          if (own == inherited) {
+            own = new HashMap<>(inherited);
+          }
+          own.put(name, value);
+        }
+      }
+    }
+
+    for (final Node child : children(element)) {
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        dropInherited((Element) child, own);
+      }
+    }
+  }
+
+  /*
+   * Move presentation attributes that occur more than once with the same
+   * value into CSS classes. Each element is assigned at most one class,
+   * holding all of its repeated presentation attributes, and a class is only
+   * created if it saves more space on its elements than its rule occupies.
+   */
+
+  private static void hoist(
+    final Document document)
+  {
+    final List<Element> elements = new ArrayList<>(1024);
+    collectElements(document.getDocumentElement(), elements);
+
+    final Map<String, Integer> counts = new HashMap<>(256);
+    for (final Element element : elements) {
+      for (final Attr attribute : hoistable(element)) {
+        counts.merge(declaration(attribute), Integer.valueOf(1), Integer::sum);
+      }
+    }
+
+    final Map<String, List<Element>> by_rule = new LinkedHashMap<>(64);
+    for (final Element element : elements) {
+      final String rule = ruleOf(element, counts);
+      if (!rule.isEmpty()) {
+        by_rule.computeIfAbsent(rule, r -> new ArrayList<>(16)).add(element);
+      }
+    }
+
+    final StringBuilder css = new StringBuilder(1024);
+    int classes = 0;
+    for (final Map.Entry<String, List<Element>> entry : by_rule.entrySet()) {
+      final String rule = entry.getKey();
+      final List<Element> users = entry.getValue();
+      final String name = className(classes);
+      final int saved = users.size() * (savedPerElement(rule) - name.length());
+      if (saved > rule.length() + name.length() + 3) {
+        css.append('.').append(name).append('{').append(rule).append("}\n");
+        for (final Element element : users) {
+          applyClass(element, name, counts);
+        }
+        ++classes;
+      }
+    }
+
+    if (!css.isEmpty()) {
+      final Element style = document.createElementNS(
+        SVGDOMImplementation.SVG_NAMESPACE_URI, "style");
+      style.setAttributeNS(null, "type", "text/css");
+      style.appendChild(document.createCDATASection(css.toString()));
+      final Element root = document.getDocumentElement();
+      root.insertBefore(style, root.getFirstChild());
+    }
+  }
+
+  private static void applyClass(
+    final Element element,
+    final String name,
+    final Map<String, Integer> counts)
+  {
+    for (final Attr attribute : hoistable(element)) {
+      if (counts.get(declaration(attribute)).intValue() > 1) {
+        element.removeAttributeNode(attribute);
+      }
+    }
+    element.setAttributeNS(null, "class", name);
+  }
+
+  /*
+   * The CSS declarations of the repeated presentation attributes of the
+   * given element, in a canonical order.
+   */
+
+  private static String ruleOf(
+    final Element element,
+    final Map<String, Integer> counts)
+  {
+    final TreeMap<String, String> declarations = new TreeMap<>();
+    for (final Attr attribute : hoistable(element)) {
+      final String declaration = declaration(attribute);
+      if (counts.get(declaration).intValue() > 1) {
+        declarations.put(attribute.getName(), declaration);
+      }
+    }
+    return String.join(";", declarations.values());
+  }
+
+  /*
+   * The number of characters that an element saves by replacing the
+   * attributes of the given rule with a class attribute, not counting the
+   * class name.
+   */
+
+  private static int savedPerElement(
+    final String rule)
+  {
+    int saved = 0;
+    for (final String declaration : rule.split(";", -1)) {
+      saved += declaration.length() + 3;
+    }
+    return saved - " class=\"\"".length();
+  }
+
+  private static String className(
+    final int index)
+  {
+    final StringBuilder name = new StringBuilder(4);
+    int remaining = index;
+    do {
+      name.append((char) ('a' + remaining % 26));
+      remaining = remaining / 26 - 1;
+    } while (remaining >= 0);
+    return name.reverse().toString();
+  }
+
+  private static List<Attr> hoistable(
+    final Element element)
+  {
+    final List<Attr> result = new ArrayList<>(4);
+    if (!element.hasAttribute("class")) {
+      for (final Attr attribute : attributes(element)) {
+        if (isInherited(attribute.getName())) {
+          result.add(attribute);
+        }
+      }
+    }
+    return result;
+  }
+
+  private static String declaration(
+    final Attr attribute)
+  {
+    return attribute.getName() + ":" + attribute.getValue();
+  }
+
+  private static void collectElements(
+    final Element element,
+    final List<Element> output)
+  {
+    output.add(element);
+    for (Node child = element.getFirstChild();
+         child != null;
+         child = child.getNextSibling()) {
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        collectElements((Element) child, output);
+      }
+    }
+  }
+
+  private static boolean isInherited(
+    final String name)
+  {
+    return INITIAL.containsKey(name) || INHERITED_WITHOUT_INITIAL.contains(name);
+  }
+
+  private static boolean isTextContent(
+    final Element element)
+  {
+    final String name = element.getLocalName();
+    return "text".equals(name) || "tspan".equals(name) || "textPath".equals(name);
+  }
+
+  private static boolean isRelativeLength(
+    final String value)
+  {
+    return value.endsWith("%") || value.endsWith("em") || value.endsWith("ex");
+  }
+
+  private static boolean isNumberOrEmpty(
+    final String value)
+  {
+    return value.isEmpty() || numberEnd(value, 0) == value.length();
+  }
+
+  private static double numberOf(
+    final String value)
+  {
+    return value.isEmpty() ? 0.0 : Double.parseDouble(value);
+  }
+
+  private static boolean containsWhitespace(
+    final String text)
+  {
+    return text.codePoints().anyMatch(Character::isWhitespace);
+  }
+
+  private static List<Node> children(
+    final Node node)
+  {
+    final List<Node> result = new ArrayList<>(4);
+    for (Node child = node.getFirstChild();
+         child != null;
+         child = child.getNextSibling()) {
+      result.add(child);
+    }
+    return result;
+  }
+
+  private static List<Attr> attributes(
+    final Element element)
+  {
+    final NamedNodeMap map = element.getAttributes();
+    final List<Attr> result = new ArrayList<>(map.getLength());
+    for (int index = 0; index < map.getLength(); ++index) {
+      result.add((Attr) map.item(index));
+    }
+    return result;
+  }
+}
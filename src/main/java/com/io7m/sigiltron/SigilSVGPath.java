@@ -0,0 +1,181 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * SVG path data built up from any number of shapes. Coordinates are
+ * rounded to a fixed number of decimal places and written relative to the
+ * previous point, so that large paths spend a few characters on each
+ * coordinate rather than the full width of absolute values. Offsets are
+ * taken between rounded points, so rounding errors do not accumulate along
+ * the path. Separators are omitted where a minus sign suffices, repeated
+ * commands are written once, and horizontal and vertical lines are written
+ * with a single coordinate.
+ */
+
+final class SigilSVGPath
+{
+  private final StringBuilder data;
+  private final int decimals;
+  private final double scale;
+  private final double[] coords;
+  private final long[] points;
+  private long x;
+  private long y;
+  private long start_x;
+  private long start_y;
+  private char previous;
+
+  /**
+   * Construct an empty path.
+   *
+   * @param in_decimals The number of decimal places used for coordinates,
+   *                    at most {@link SigilSVGText#MAXIMUM_DECIMALS}
+   */
+
+  SigilSVGPath(
+    final int in_decimals)
+  {
+    this.data = new StringBuilder(4096);
+    this.decimals = in_decimals;
+    this.scale = Math.pow(10.0, (double) in_decimals);
+    this.coords = new double[6];
+    this.points = new long[6];
+    this.previous = ' ';
+  }
+
+  /**
+   * Append a shape to the path.
+   *
+   * @param shape     The shape
+   * @param transform The transform applied to the shape
+   */
+
+  void append(
+    final Shape shape,
+    final AffineTransform transform)
+  {
+    final PathIterator iterator = shape.getPathIterator(transform);
+    while (!iterator.isDone()) {
+      final int segment = iterator.currentSegment(this.coords);
+      switch (segment) {
+        case PathIterator.SEG_MOVETO -> this.segment('m', 2);
+        case PathIterator.SEG_LINETO -> this.segment('l', 2);
+        case PathIterator.SEG_QUADTO -> this.segment('q', 4);
+        case PathIterator.SEG_CUBICTO -> this.segment('c', 6);
+        case PathIterator.SEG_CLOSE -> this.close();
+        default -> throw new IllegalStateException(
+          String.format("Unrecognized path segment %d", Integer.valueOf(segment)));
+      }
+      iterator.next();
+    }
+  }
+
+  private void close()
+  {
+    this.data.append('z');
+    this.x = this.start_x;
+    this.y = this.start_y;
+    this.previous = 'z';
+  }
+
+  private void segment(
+    final char command,
+    final int count)
+  {
+    for (int index = 0; index < count; ++index) {
+      this.points[index] = Math.round(this.coords[index] * this.scale);
+    }
+
+    final long dx = this.points[count - 2] - this.x;
+    final long dy = this.points[count - 1] - this.y;
+    if (command == 'l' && dy == 0L) {
+      this.command('h');
+      this.number(dx);
+    } else if (command == 'l' && dx == 0L) {
+      this.command('v');
+      this.number(dy);
+    } else {
+      this.command(command);
+      for (int index = 0; index < count; index += 2) {
+        this.number(this.points[index] - this.x);
+        this.number(this.points[index + 1] - this.y);
+      }
+    }
+
+    this.x = this.points[count - 2];
+    this.y = this.points[count - 1];
+    if (command == 'm') {
+      this.start_x = this.x;
+      this.start_y = this.y;
+    }
+  }
+
+  /*
+   * A moveto is implicitly followed by linetos rather than further movetos,
+   * so it is always written explicitly.
+   */
+
+  private void command(
+    final char command)
+  {
+    if (command != this.previous || command == 'm') {
+      this.data.append(command);
+    }
+    this.previous = command;
+  }
+
+  private void number(
+    final long units)
+  {
+    final StringBuilder b = this.data;
+    if (units >= 0L && Character.isDigit(b.charAt(b.length() - 1))) {
+      b.append(' ');
+    }
+    SigilSVGText.appendNumber(b, (double) units / this.scale, this.decimals);
+  }
+
+  /**
+   * @return The path data
+   */
+
+  String data()
+  {
+    return this.data.toString();
+  }
+
+  /**
+   * Write the path data.
+   *
+   * @param writer The output
+   *
+   * @throws IOException On I/O errors
+   */
+
+  void write(
+    final Writer writer)
+    throws IOException
+  {
+    writer.append(this.data);
+  }
+}
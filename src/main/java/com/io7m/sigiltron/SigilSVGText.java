@@ -0,0 +1,280 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.awt.Font;
+import java.awt.Shape;
+import java.awt.geom.PathIterator;
+
+/**
+ * Functions to format numbers, text and fonts for SVG output without
+ * intermediate allocations.
+ */
+
+final class SigilSVGText
+{
+  /**
+   * The largest number of decimal places supported by
+   * {@link #appendNumber(StringBuilder, double, int)}.
+   */
+
+  static final int MAXIMUM_DECIMALS = 6;
+
+  private static final long[] POWERS = {
+    1L,
+    10L,
+    100L,
+    1_000L,
+    10_000L,
+    100_000L,
+    1_000_000L,
+  };
+
+  private static final double LARGE = 1.0e12;
+
+  private SigilSVGText()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Append a number rounded to the given number of decimal places, without
+   * trailing zeros or an exponent.
+   *
+   * @param out      The output
+   * @param value    The value
+   * @param decimals The number of decimal places, at most
+   *                 {@link #MAXIMUM_DECIMALS}
+   */
+
+  static void appendNumber(
+    final StringBuilder out,
+    final double value,
+    final int decimals)
+  {
+    if (!Double.isFinite(value) || Math.abs(value) >= LARGE) {
+      out.append(Math.round(value));
+      return;
+    }
+
+    final long scale = POWERS[decimals];
+    final long scaled = Math.round(Math.abs(value) * (double) scale);
+    if (scaled == 0L) {
+      out.append('0');
+      return;
+    }
+
+    if (value < 0.0) {
+      out.append('-');
+    }
+
+    out.append(scaled / scale);
+    long fraction = scaled % scale;
+    if (fraction == 0L) {
+      return;
+    }
+
+    int digits = decimals;
+    while (fraction % 10L == 0L) {
+      fraction /= 10L;
+      --digits;
+    }
+
+    out.append('.');
+    for (long power = POWERS[digits - 1]; power > fraction; power /= 10L) {
+      out.append('0');
+    }
+    out.append(fraction);
+  }
+
+  /**
+   * Append a rotation given in radians as degrees in the range
+   * {@code [0, 360)}.
+   *
+   * @param out      The output
+   * @param radians  The angle
+   * @param decimals The number of decimal places
+   */
+
+  static void appendDegrees(
+    final StringBuilder out,
+    final double radians,
+    final int decimals)
+  {
+    final double degrees = Math.toDegrees(radians);
+    appendNumber(out, degrees - 360.0 * Math.floor(degrees / 360.0), decimals);
+  }
+
+  /**
+   * Append a code point, escaped for use in XML character data or attribute
+   * values. Code points that cannot appear in XML are replaced with
+   * {@code U+FFFD}.
+   *
+   * @param out       The output
+   * @param codepoint The code point
+   */
+
+  static void appendEscaped(
+    final StringBuilder out,
+    final int codepoint)
+  {
+    switch (codepoint) {
+      case '&' -> out.append("&amp;");
+      case '<' -> out.append("&lt;");
+      case '>' -> out.append("&gt;");
+      case '"' -> out.append("&quot;");
+      case '\'' -> out.append("&apos;");
+      default -> {
+        if (isXMLCharacter(codepoint)) {
+          out.appendCodePoint(codepoint);
+        } else {
+          out.append('\uFFFD');
+        }
+      }
+    }
+  }
+
+  /**
+   * Append a string, escaped for use in XML character data or attribute
+   * values.
+   *
+   * @param out  The output
+   * @param text The text
+   */
+
+  static void appendEscaped(
+    final StringBuilder out,
+    final String text)
+  {
+    int index = 0;
+    while (index < text.length()) {
+      final int codepoint = text.codePointAt(index);
+      appendEscaped(out, codepoint);
+      index += Character.charCount(codepoint);
+    }
+  }
+
+  /**
+   * @param codepoint The code point
+   *
+   * @return {@code true} if the code point may appear in an XML 1.0 document
+   */
+
+  static boolean isXMLCharacter(
+    final int codepoint)
+  {
+    if (codepoint < 0x20) {
+      return codepoint == 0x9 || codepoint == 0xA || codepoint == 0xD;
+    }
+    if (codepoint <= 0xD7FF) {
+      return true;
+    }
+    if (codepoint < 0xE000) {
+      return false;
+    }
+    if (codepoint <= 0xFFFD) {
+      return true;
+    }
+    return codepoint >= 0x10000 && codepoint <= 0x10FFFF;
+  }
+
+  /**
+   * Append the XML declaration and a comment naming the program that
+   * produced the document.
+   *
+   * @param out The output
+   */
+
+  static void appendProlog(
+    final StringBuilder out)
+  {
+    out.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+
+    final Package p = SigilSVGText.class.getPackage();
+    out.append("<!-- ");
+    out.append(p.getImplementationTitle());
+    out.append(' ');
+    out.append(p.getImplementationVersion());
+    out.append(" -->\n");
+  }
+
+  /**
+   * Append the given shape as SVG path data.
+   *
+   * @param out      The output
+   * @param shape    The shape
+   * @param decimals The number of decimal places used for coordinates
+   */
+
+  static void appendPath(
+    final StringBuilder out,
+    final Shape shape,
+    final int decimals)
+  {
+    final double[] coords = new double[6];
+    final PathIterator iterator = shape.getPathIterator(null);
+    while (!iterator.isDone()) {
+      final int segment = iterator.currentSegment(coords);
+      switch (segment) {
+        case PathIterator.SEG_MOVETO -> appendSegment(out, 'M', coords, 2, decimals);
+        case PathIterator.SEG_LINETO -> appendSegment(out, 'L', coords, 2, decimals);
+        case PathIterator.SEG_QUADTO -> appendSegment(out, 'Q', coords, 4, decimals);
+        case PathIterator.SEG_CUBICTO -> appendSegment(out, 'C', coords, 6, decimals);
+        case PathIterator.SEG_CLOSE -> out.append('Z');
+        default -> throw new IllegalStateException(
+          String.format("Unrecognized path segment %d", Integer.valueOf(segment)));
+      }
+      iterator.next();
+    }
+  }
+
+  private static void appendSegment(
+    final StringBuilder out,
+    final char command,
+    final double[] coords,
+    final int count,
+    final int decimals)
+  {
+    out.append(command);
+    for (int index = 0; index < count; ++index) {
+      if (index > 0) {
+        out.append(' ');
+      }
+      appendNumber(out, coords[index], decimals);
+    }
+  }
+
+  /**
+   * @param font The font
+   *
+   * @return The value of the SVG {@code font-family} attribute for the font
+   */
+
+  static String fontFamily(
+    final Font font)
+  {
+    final String family = font.getFamily();
+    return switch (family) {
+      case Font.DIALOG, Font.SANS_SERIF -> "sans-serif";
+      case Font.SERIF -> "serif";
+      case Font.DIALOG_INPUT, Font.MONOSPACED -> "monospace";
+      default -> "'" + family + "'";
+    };
+  }
+}
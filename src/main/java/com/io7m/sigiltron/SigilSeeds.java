@@ -0,0 +1,84 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.security.SecureRandom;
+
+/**
+ * Functions to create and derive seeds.
+ */
+
+final class SigilSeeds
+{
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+  private static final SecureRandom SEEDS = new SecureRandom();
+
+  private SigilSeeds()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * @return A fresh, unpredictable seed
+   */
+
+  static long fresh()
+  {
+    return SEEDS.nextLong();
+  }
+
+  /**
+   * Derive the seed of an independent stream from a parent seed. The
+   * derivation is the SplitMix64 finalizer applied to the parent seed
+   * advanced by the stream index, so distinct streams of the same parent
+   * receive well-mixed, unrelated seeds, and the result depends only on
+   * the two arguments.
+   *
+   * @param seed   The parent seed
+   * @param stream The stream index
+   *
+   * @return The seed of the given stream
+   */
+
+  static long derive(
+    final long seed,
+    final long stream)
+  {
+    return mix(seed + (stream + 1L) * GOLDEN_GAMMA);
+  }
+
+  /**
+   * Apply the SplitMix64 finalizer to a value. The result is a stable,
+   * well-distributed hash of the value that does not depend on the JVM,
+   * the platform, or the run.
+   *
+   * @param value The value
+   *
+   * @return The mixed value
+   */
+
+  static long mix(
+    final long value)
+  {
+    long z = value;
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+}
@@ -0,0 +1,357 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local HTTP server that renders sigils on demand. Requests are handled
+ * on virtual threads. {@code GET /sigil?text=...} returns an SVG image;
+ * the remaining query parameters mirror the options of the batch generator.
+ * Responses to requests that name a seed are always identical, and so are
+ * kept in a bounded in-memory cache, backed by a {@link SigilDiskCache} if
+ * one is configured. {@code GET /metrics} returns request
+ * counts, cache statistics and latency percentiles as plain text.
+ */
+
+final class SigilServer implements AutoCloseable
+{
+  private static final Logger LOG;
+
+  static {
+    LOG = LoggerFactory.getLogger(SigilServer.class);
+  }
+
+  private final SigilGenerator generator;
+  private final SigilGlyphCache glyphs;
+  private final SigilServerCache cache;
+  private final Optional<SigilDiskCache> disk_cache;
+  private final SigilLatencyHistogram latencies;
+  private final SigilStatistics statistics;
+  private final AtomicLong requests;
+  private final AtomicLong failures;
+  private final List<String> families;
+  private final ExecutorService executor;
+  private final HttpServer server;
+
+  private SigilServer(
+    final SigilServerConfiguration in_configuration,
+    final List<String> in_families,
+    final Optional<SigilDiskCache> in_disk_cache,
+    final HttpServer in_server,
+    final ExecutorService in_executor)
+  {
+    Objects.requireNonNull(in_configuration, "Configuration");
+    this.families =
+      List.copyOf(Objects.requireNonNull(in_families, "Families"));
+    this.disk_cache =
+      Objects.requireNonNull(in_disk_cache, "Disk cache");
+    this.server =
+      Objects.requireNonNull(in_server, "Server");
+    this.executor =
+      Objects.requireNonNull(in_executor, "Executor");
+
+    this.generator = new SigilGenerator();
+    this.glyphs = new SigilGlyphCache();
+    this.cache = new SigilServerCache(in_configuration.cacheSize());
+    this.latencies = new SigilLatencyHistogram();
+    this.statistics = new SigilStatistics(this.generator);
+    this.requests = new AtomicLong(0L);
+    this.failures = new AtomicLong(0L);
+  }
+
+  /**
+   * Create and start a server.
+   *
+   * @param configuration The server configuration
+   *
+   * @return A running server
+   *
+   * @throws IOException On I/O errors
+   */
+
+  static SigilServer start(
+    final SigilServerConfiguration configuration)
+    throws IOException
+  {
+    final List<String> families = SigilFonts.availableFamilies();
+    if (families.isEmpty()) {
+      throw new IOException(
+        String.format("No fonts are available to serve on %s:%d",
+                      configuration.address(),
+                      Integer.valueOf(configuration.port())));
+    }
+
+    final HttpServer http = HttpServer.create(
+      new InetSocketAddress(configuration.address(), configuration.port()),
+      0);
+    final ExecutorService executor =
+      Executors.newVirtualThreadPerTaskExecutor();
+
+    final SigilServer server = new SigilServer(
+      configuration,
+      families,
+      SigilDiskCache.openIfEnabled(configuration.diskCache()),
+      http,
+      executor);
+    http.setExecutor(executor);
+    http.createContext("/sigil", server::handleSigil);
+    http.createContext("/metrics", server::handleMetrics);
+    http.start();
+    server.statistics.register();
+    return server;
+  }
+
+  /**
+   * @return The address on which the server is listening
+   */
+
+  InetSocketAddress address()
+  {
+    return this.server.getAddress();
+  }
+
+  @Override
+  public void close()
+  {
+    this.server.stop(0);
+    this.statistics.unregister();
+    this.executor.shutdownNow();
+    if (this.disk_cache.isPresent()) {
+      try {
+        this.disk_cache.get().close();
+      } catch (final IOException e) {
+        LOG.warn("could not close the sigil cache: {}", e.getMessage());
+      }
+    }
+  }
+
+  private static void sendText(
+    final HttpExchange exchange,
+    final int status,
+    final String text)
+    throws IOException
+  {
+    final byte[] body = text.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders()
+      .set("Content-Type", "text/plain; charset=utf-8");
+    exchange.sendResponseHeaders(status, body.length);
+    try (OutputStream output = exchange.getResponseBody()) {
+      output.write(body);
+    }
+  }
+
+  private void handleSigil(
+    final HttpExchange exchange)
+    throws IOException
+  {
+    final long time_then = System.nanoTime();
+    this.requests.incrementAndGet();
+
+    try (exchange) {
+      try {
+        this.handleSigilRequest(exchange);
+      } catch (final IOException | RuntimeException e) {
+        this.failures.incrementAndGet();
+        LOG.error("request failed: ", e);
+        if (exchange.getResponseCode() == -1) {
+          sendText(exchange, 500, "Sigil generation failed\n");
+        }
+      }
+    } finally {
+      this.latencies.record(System.nanoTime() - time_then);
+    }
+  }
+
+  private void handleSigilRequest(
+    final HttpExchange exchange)
+    throws IOException
+  {
+    if (!"GET".equals(exchange.getRequestMethod())) {
+      exchange.getResponseHeaders().set("Allow", "GET");
+      sendText(exchange, 405, "Only GET is supported\n");
+      return;
+    }
+
+    final SigilServerRequest request;
+    try {
+      request = SigilServerRequests.parse(
+        exchange.getRequestURI().getRawQuery(), this.families);
+    } catch (final IllegalArgumentException e) {
+      sendText(exchange, 400, e.getMessage() + "\n");
+      return;
+    }
+
+    this.respond(exchange, request);
+  }
+
+  private void respond(
+    final HttpExchange exchange,
+    final SigilServerRequest request)
+    throws IOException
+  {
+    final byte[] body;
+    final String cache_status;
+    if (request.cacheable()) {
+      final Optional<byte[]> cached = this.cache.get(request.key());
+      if (cached.isPresent()) {
+        body = cached.get();
+        cache_status = "hit";
+      } else {
+        body = this.renderPersistent(request);
+        this.cache.put(request.key(), body);
+        cache_status = "miss";
+      }
+    } else {
+      body = this.render(request);
+      cache_status = "bypass";
+    }
+
+    final var headers = exchange.getResponseHeaders();
+    headers.set("Content-Type", "image/svg+xml");
+    headers.set("X-Sigil-Cache", cache_status);
+    headers.set("X-Sigil-Seed", Long.toString(request.request().seed()));
+    exchange.sendResponseHeaders(200, body.length);
+    try (OutputStream output = exchange.getResponseBody()) {
+      output.write(body);
+    }
+  }
+
+  private byte[] renderPersistent(
+    final SigilServerRequest request)
+    throws IOException
+  {
+    final SigilEventOutput event = new SigilEventOutput();
+    event.begin();
+
+    if (this.disk_cache.isEmpty()) {
+      final byte[] body = this.render(request);
+      event.finish(request.renderer(), body.length, false);
+      return body;
+    }
+
+    final SigilDiskCache disk = this.disk_cache.get();
+    final byte[] key =
+      SigilDiskCache.keyOf(request.request(), request.renderer());
+    final Optional<Path> cached = disk.find(key);
+    if (cached.isPresent()) {
+      final byte[] body = Files.readAllBytes(cached.get());
+      event.finish(request.renderer(), body.length, true);
+      return body;
+    }
+
+    final byte[] body = this.render(request);
+    try {
+      disk.store(key, body);
+    } catch (final IOException e) {
+      LOG.warn("could not store a sigil in the sigil cache: {}",
+               e.getMessage());
+    }
+    event.finish(request.renderer(), body.length, false);
+    return body;
+  }
+
+  private byte[] render(
+    final SigilServerRequest request)
+    throws IOException
+  {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(16384);
+    try (Writer writer =
+           new OutputStreamWriter(bytes, StandardCharsets.UTF_8)) {
+      final SigilRendererType renderer = switch (request.renderer()) {
+        case "symbols" -> new SigilRendererSVGSymbols(writer, this.glyphs);
+        case "paths" -> new SigilRendererSVGPaths(writer, this.glyphs);
+        default -> new SigilRendererSVGStream(writer);
+      };
+      this.generator.generate(request.request(), renderer);
+    }
+    return bytes.toByteArray();
+  }
+
+  private void handleMetrics(
+    final HttpExchange exchange)
+    throws IOException
+  {
+    try (exchange) {
+      final SigilServerCacheStatistics c = this.cache.statistics();
+      final SigilLatencySnapshot l = this.latencies.snapshot();
+
+      final StringBuilder b = new StringBuilder(512);
+      metric(b, "requests", this.requests.get());
+      metric(b, "failures", this.failures.get());
+      metric(b, "cache_hits", c.hits());
+      metric(b, "cache_misses", c.misses());
+      metric(b, "cache_evictions", c.evictions());
+      metric(b, "cache_entries", c.entries());
+      metric(b, "cache_bytes", c.size());
+      metric(b, "cache_capacity_bytes", c.capacity());
+      if (this.disk_cache.isPresent()) {
+        metric(b, "disk_cache_hits", this.disk_cache.get().hits());
+        metric(b, "disk_cache_misses", this.disk_cache.get().misses());
+      }
+      metric(b, "latency_count", l.count());
+      metricMillis(b, "latency_p50_ms", l.p50());
+      metricMillis(b, "latency_p90_ms", l.p90());
+      metricMillis(b, "latency_p99_ms", l.p99());
+      metricMillis(b, "latency_p999_ms", l.p999());
+      metricMillis(b, "latency_max_ms", l.max());
+      sendText(exchange, 200, b.toString());
+    }
+  }
+
+  private static void metric(
+    final StringBuilder b,
+    final String name,
+    final long value)
+  {
+    b.append(name);
+    b.append(' ');
+    b.append(value);
+    b.append('\n');
+  }
+
+  private static void metricMillis(
+    final StringBuilder b,
+    final String name,
+    final long nanos)
+  {
+    b.append(name);
+    b.append(' ');
+    b.append(String.format(Locale.ROOT, "%.3f", Double.valueOf((double) nanos / 1.0e6)));
+    b.append('\n');
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A bounded, least-recently-used cache of rendered responses. The cache is
+ * bounded by the total size of the cached responses rather than by their
+ * number, because the size of a sigil grows with the length of its intent.
+ */
+
+final class SigilServerCache
+{
+  private final Object lock;
+  private final LinkedHashMap<String, byte[]> entries;
+  private final long capacity;
+  private long size;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /**
+   * Construct a cache.
+   *
+   * @param in_capacity The maximum total size of cached responses in bytes
+   */
+
+  SigilServerCache(
+    final long in_capacity)
+  {
+    if (in_capacity < 0L) {
+      throw new IllegalArgumentException(
+        String.format("Capacity %d must be non-negative",
+                      Long.valueOf(in_capacity)));
+    }
+
+    this.lock = new Object();
+    this.entries = new LinkedHashMap<>(64, 0.75f, true);
+    this.capacity = in_capacity;
+  }
+
+  /**
+   * @param key The request key
+   *
+   * @return The cached response, if any
+   */
+
+  Optional<byte[]> get(
+    final String key)
+  {
+    synchronized (this.lock) {
+      final byte[] response = this.entries.get(key);
+      if (response == null) {
+        ++this.misses;
+        return Optional.empty();
+      }
+      ++this.hits;
+      return Optional.of(response);
+    }
+  }
+
+  /**
+   * Cache a response, evicting the least recently used responses until the
+   * cache is within its capacity. Responses larger than the capacity are not
+   * cached.
+   *
+   * @param key      The request key
+   * @param response The response
+   */
+
+  void put(
+    final String key,
+    final byte[] response)
+  {
+    if ((long) response.length > this.capacity) {
+      return;
+    }
+
+    synchronized (this.lock) {
+      final byte[] previous = this.entries.put(key, response);
+      if (previous != null) {
+        this.size -= previous.length;
+      }
+      this.size += response.length;
+
+      final Iterator<Map.Entry<String, byte[]>> iterator =
+        this.entries.entrySet().iterator();
+      while (this.size > this.capacity) {
+        final Map.Entry<String, byte[]> eldest = iterator.next();
+        this.size -= eldest.getValue().length;
+        iterator.remove();
+        ++this.evictions;
+      }
+    }
+  }
+
+  /**
+   * @return A snapshot of the cache statistics
+   */
+
+  SigilServerCacheStatistics statistics()
+  {
+    synchronized (this.lock) {
+      return new SigilServerCacheStatistics(
+        this.hits,
+        this.misses,
+        this.evictions,
+        this.entries.size(),
+        this.size,
+        this.capacity);
+    }
+  }
+}
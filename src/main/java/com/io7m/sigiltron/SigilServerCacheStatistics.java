@@ -0,0 +1,39 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+/**
+ * A snapshot of the statistics of a server response cache.
+ *
+ * @param hits      The number of requests served from the cache
+ * @param misses    The number of cacheable requests that had to be rendered
+ * @param evictions The number of responses evicted to make room for others
+ * @param entries   The current number of cached responses
+ * @param size      The current total size of cached responses in bytes
+ * @param capacity  The maximum total size of cached responses in bytes
+ */
+
+record SigilServerCacheStatistics(
+  long hits,
+  long misses,
+  long evictions,
+  int entries,
+  long size,
+  long capacity)
+{
+
+}
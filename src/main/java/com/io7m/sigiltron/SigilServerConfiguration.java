@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The configuration of the sigil server.
+ *
+ * @param address   The address on which to listen
+ * @param port      The port on which to listen
+ * @param cacheSize The maximum total size of cached responses in bytes
+ * @param diskCache The directory of the persistent sigil cache, if the
+ *                  cache is enabled
+ */
+
+record SigilServerConfiguration(
+  String address,
+  int port,
+  long cacheSize,
+  Optional<Path> diskCache)
+{
+  SigilServerConfiguration
+  {
+    Objects.requireNonNull(address, "address");
+    Objects.requireNonNull(diskCache, "diskCache");
+    if (port < 0 || port > 65535) {
+      throw new IllegalArgumentException(
+        String.format("Port %d must be in the range [0, 65535]",
+                      Integer.valueOf(port)));
+    }
+    if (cacheSize < 0L) {
+      throw new IllegalArgumentException(
+        String.format("Cache size %d must be non-negative",
+                      Long.valueOf(cacheSize)));
+    }
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.util.Objects;
+
+/**
+ * A parsed request to the sigil server.
+ *
+ * @param key       A string that uniquely identifies the response
+ * @param renderer  The name of the renderer
+ * @param cacheable {@code true} if the request named a seed, and so the
+ *                  response is always the same
+ * @param request   The generator request
+ */
+
+record SigilServerRequest(
+  String key,
+  String renderer,
+  boolean cacheable,
+  SigilGeneratorRequest request)
+{
+  SigilServerRequest
+  {
+    Objects.requireNonNull(key, "key");
+    Objects.requireNonNull(renderer, "renderer");
+    Objects.requireNonNull(request, "request");
+  }
+}
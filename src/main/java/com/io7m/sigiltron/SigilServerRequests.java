@@ -0,0 +1,276 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Functions to parse requests to the sigil server.
+ */
+
+final class SigilServerRequests
+{
+  /**
+   * The largest accepted intent, in characters.
+   */
+
+  static final int MAXIMUM_TEXT_LENGTH = 100_000;
+
+  /**
+   * The largest accepted image width or height.
+   */
+
+  static final int MAXIMUM_SIZE = 8192;
+
+  private static final Set<String> PARAMETERS = Set.of(
+    "text",
+    "seed",
+    "text-function",
+    "font-function",
+    "font",
+    "rotation-function",
+    "spread-function",
+    "spread",
+    "random-source",
+    "renderer",
+    "width",
+    "height"
+  );
+
+  /*
+   * The server streams sigils rather than building documents in memory.
+   */
+
+  private static final Set<String> STREAMING_RENDERERS =
+    Set.of("paths", "stream", "symbols");
+
+  private SigilServerRequests()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  private static Map<String, String> parseQuery(
+    final String raw_query)
+  {
+    final Map<String, String> parameters = new HashMap<>(16);
+    if (raw_query == null || raw_query.isEmpty()) {
+      return parameters;
+    }
+
+    for (final String pair : raw_query.split("&")) {
+      final int equals = pair.indexOf('=');
+      final String name = URLDecoder.decode(
+        equals < 0 ? pair : pair.substring(0, equals), StandardCharsets.UTF_8);
+      final String value = equals < 0 ? "" : URLDecoder.decode(
+        pair.substring(equals + 1), StandardCharsets.UTF_8);
+
+      if (!PARAMETERS.contains(name)) {
+        throw new IllegalArgumentException(
+          String.format("Unrecognized parameter: %s", name));
+      }
+      if (parameters.put(name, value) != null) {
+        throw new IllegalArgumentException(
+          String.format("Parameter %s given more than once", name));
+      }
+    }
+    return parameters;
+  }
+
+  private static <T> T function(
+    final Map<String, String> parameters,
+    final String name,
+    final String default_value,
+    final Function<String, Optional<T>> lookup,
+    final Set<String> names)
+  {
+    final String value = parameters.getOrDefault(name, default_value);
+    return lookup.apply(value).orElseThrow(
+      () -> new IllegalArgumentException(
+        String.format(
+          "Unrecognized value for %s: %s (must be one of %s)",
+          name,
+          value,
+          String.join(", ", names))));
+  }
+
+  private static int integer(
+    final Map<String, String> parameters,
+    final String name,
+    final int default_value,
+    final int maximum)
+  {
+    final String value = parameters.get(name);
+    if (value == null) {
+      return default_value;
+    }
+
+    final int result;
+    try {
+      result = Integer.parseInt(value);
+    } catch (final NumberFormatException e) {
+      throw new IllegalArgumentException(
+        String.format("Parameter %s requires an integer value: %s", name, value),
+        e);
+    }
+    if (result < 1 || result > maximum) {
+      throw new IllegalArgumentException(
+        String.format("Parameter %s must be in the range [1, %d]: %s",
+                      name, Integer.valueOf(maximum), value));
+    }
+    return result;
+  }
+
+  private static String text(
+    final Map<String, String> parameters)
+  {
+    final String text = parameters.get("text");
+    if (text == null) {
+      throw new IllegalArgumentException(
+        String.format("Parameter text is required (given: %s)",
+                      String.join(", ", parameters.keySet())));
+    }
+    if (text.length() > MAXIMUM_TEXT_LENGTH) {
+      throw new IllegalArgumentException(
+        String.format("Parameter text is %d characters long (at most %d accepted)",
+                      Integer.valueOf(text.length()),
+                      Integer.valueOf(MAXIMUM_TEXT_LENGTH)));
+    }
+    return text;
+  }
+
+  private static int font(
+    final Map<String, String> parameters,
+    final List<String> families)
+  {
+    final String font = parameters.get("font");
+    if (font == null) {
+      return 0;
+    }
+
+    final int index = families.indexOf(font);
+    if (index < 0) {
+      throw new IllegalArgumentException(
+        String.format("Font %s is not available", font));
+    }
+    return index;
+  }
+
+  private static long seed(
+    final Map<String, String> parameters)
+  {
+    final String value = parameters.get("seed");
+    if (value == null) {
+      return SigilSeeds.fresh();
+    }
+
+    try {
+      return Long.parseLong(value);
+    } catch (final NumberFormatException e) {
+      throw new IllegalArgumentException(
+        String.format("Parameter seed requires an integer value: %s", value),
+        e);
+    }
+  }
+
+  private static String renderer(
+    final Map<String, String> parameters)
+  {
+    final String value = parameters.getOrDefault("renderer", "stream");
+    if (!STREAMING_RENDERERS.contains(value)) {
+      throw new IllegalArgumentException(
+        String.format("Unrecognized value for renderer: %s (must be one of paths, stream, symbols)",
+                      value));
+    }
+    return value;
+  }
+
+  /**
+   * Parse a request from a URI query string.
+   *
+   * @param raw_query The raw, undecoded query string, if any
+   * @param families  The available font families
+   *
+   * @return A parsed request
+   *
+   * @throws IllegalArgumentException If the query is not a valid request
+   */
+
+  static SigilServerRequest parse(
+    final String raw_query,
+    final List<String> families)
+    throws IllegalArgumentException
+  {
+    final Map<String, String> p = parseQuery(raw_query);
+
+    final SigilGeneratorRequest request = new SigilGeneratorRequest(
+      text(p),
+      new SigilFontSet(families, font(p, families)),
+      function(p, "text-function", "identity",
+               SigilFunctions::textFunction,
+               SigilFunctions.textFunctionNames()),
+      function(p, "font-function", "random",
+               SigilFunctions::fontFunction,
+               SigilFunctions.fontFunctionNames()),
+      function(p, "rotation-function", "random45",
+               SigilFunctions::rotationFunction,
+               SigilFunctions.rotationFunctionNames()),
+      function(p, "spread-function", "random",
+               SigilFunctions::spreadFunction,
+               SigilFunctions.spreadFunctionNames()),
+      integer(p, "spread", 250, Integer.MAX_VALUE),
+      function(p, "random-source", "splittable",
+               SigilFunctions::randomSource,
+               SigilFunctions.randomSourceNames()),
+      seed(p),
+      integer(p, "width", 640, MAXIMUM_SIZE),
+      integer(p, "height", 480, MAXIMUM_SIZE));
+
+    final String renderer = renderer(p);
+
+    /*
+     * The key names every value that affects the output, with the intent
+     * last so that it cannot be confused with any of the other fields.
+     */
+
+    final String key = String.join(
+      "\n",
+      renderer,
+      p.getOrDefault("text-function", "identity"),
+      p.getOrDefault("font-function", "random"),
+      request.fonts().selectedFamily(),
+      p.getOrDefault("rotation-function", "random45"),
+      p.getOrDefault("spread-function", "random"),
+      Integer.toString(request.spread()),
+      p.getOrDefault("random-source", "splittable"),
+      Long.toString(request.seed()),
+      Integer.toString(request.width()),
+      Integer.toString(request.height()),
+      request.text());
+
+    return new SigilServerRequest(
+      key, renderer, p.containsKey("seed"), request);
+  }
+}
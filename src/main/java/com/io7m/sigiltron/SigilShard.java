@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+/**
+ * One shard of a batch run that has been partitioned across processes or
+ * machines. Every line of the input belongs to exactly one shard, chosen
+ * by a stable hash of the line number, so each shard of the same input
+ * selects the same lines in every process and the shards of a run
+ * together cover the whole input exactly once. Hashing rather than taking
+ * the line number modulo the shard count keeps shards balanced when the
+ * input has a periodic structure.
+ *
+ * @param index The one-based index of the shard
+ * @param count The number of shards
+ */
+
+record SigilShard(
+  int index,
+  int count)
+{
+  SigilShard
+  {
+    if (count < 1) {
+      throw new IllegalArgumentException(
+        String.format("Shard count %d must be positive", count));
+    }
+    if (index < 1 || index > count) {
+      throw new IllegalArgumentException(
+        String.format("Shard index %d must be in [1, %d]", index, count));
+    }
+  }
+
+  /**
+   * @param line The one-based line number
+   *
+   * @return {@code true} if the given line belongs to this shard
+   */
+
+  boolean owns(
+    final int line)
+  {
+    if (this.count == 1) {
+      return true;
+    }
+    final long hash = SigilSeeds.mix(line);
+    return Long.remainderUnsigned(hash, this.count) == this.index - 1;
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format("%d/%d", this.index, this.count);
+  }
+}
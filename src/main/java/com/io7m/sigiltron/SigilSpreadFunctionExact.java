@@ -16,7 +16,8 @@
 
 package com.io7m.sigiltron;
 
-import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * Use the reference value.
@@ -38,7 +39,15 @@ public final class SigilSpreadFunctionExact implements
   public Integer getSpread(
     final int size)
   {
-    return Objects.requireNonNull(Integer.valueOf(size));
+    return Integer.valueOf(this.spreadOf(ThreadLocalRandom.current(), size));
+  }
+
+  @Override
+  public int spreadOf(
+    final RandomGenerator random,
+    final int size)
+  {
+    return size;
   }
 
   @Override
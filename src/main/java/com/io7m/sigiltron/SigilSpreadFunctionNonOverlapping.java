@@ -0,0 +1,332 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.awt.Font;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntPredicate;
+import java.util.random.RandomGenerator;
+
+/**
+ * Use a random value in the range {@code [0, size)}, and then move glyphs
+ * along their rays so that they do not overlap. Glyphs are placed in order;
+ * the rotated bounding box of each placed glyph is kept in a
+ * {@link SigilQuadTree}, and a glyph that would overlap a placed glyph is
+ * tried at alternately further and nearer positions along its ray. If no
+ * free position is found within a bounded number of attempts, the glyph is
+ * moved outwards along its ray by doubling distances, and then back by
+ * bisection, to the nearest free position that can be found. Every position
+ * beyond the extent of the glyphs placed so far is free, so each glyph
+ * takes a logarithmic number of queries, and layout takes
+ * {@code O(n log n)} time for {@code n} glyphs of similar sizes.
+ */
+
+public final class SigilSpreadFunctionNonOverlapping implements
+  SigilSpreadFunctionRelaxingType
+{
+  private static final int NEARBY_ATTEMPTS = 8;
+
+  private final SigilGlyphCache glyphs;
+
+  /**
+   * Construct a spread function.
+   */
+
+  public SigilSpreadFunctionNonOverlapping()
+  {
+    this.glyphs = new SigilGlyphCache();
+  }
+
+  @Override
+  public Integer getSpread(
+    final int size)
+  {
+    return Integer.valueOf(this.spreadOf(ThreadLocalRandom.current(), size));
+  }
+
+  @Override
+  public int spreadOf(
+    final RandomGenerator random,
+    final int size)
+  {
+    return random.nextInt(size);
+  }
+
+  @Override
+  public void relax(
+    final Font[] fonts,
+    final int[] codepoints,
+    final double[] angles,
+    final int[] spreads,
+    final int count)
+  {
+    final Layout layout = new Layout(count);
+    for (int index = 0; index < count; ++index) {
+      final SigilGlyphBounds bounds =
+        this.glyphs.bounds(fonts[index], codepoints[index]);
+      if (!bounds.isEmpty()) {
+        final double scale =
+          (double) fonts[index].getSize2D()
+            / (double) SigilGlyphCache.REFERENCE_SIZE;
+        spreads[index] =
+          layout.place(bounds, scale, angles[index], spreads[index]);
+      }
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return "Random, avoiding overlaps";
+  }
+
+  /**
+   * A glyph being placed, at a scale and rotation.
+   */
+
+  private static final class Placement
+  {
+    private final double min_x;
+    private final double min_y;
+    private final double max_x;
+    private final double max_y;
+    private final double cos;
+    private final double sin;
+
+    Placement(
+      final SigilGlyphBounds bounds,
+      final double scale,
+      final double angle)
+    {
+      this.min_x = bounds.minimumX() * scale;
+      this.min_y = bounds.minimumY() * scale;
+      this.max_x = bounds.maximumX() * scale;
+      this.max_y = bounds.maximumY() * scale;
+      this.cos = Math.cos(angle);
+      this.sin = Math.sin(angle);
+    }
+
+    /**
+     * Write the corners of the rotated bounding box of the glyph, drawn at
+     * the given offset along its ray.
+     */
+
+    void corners(
+      final double[] output,
+      final int base,
+      final int offset)
+    {
+      this.corner(output, base, this.min_x, this.min_y + offset);
+      this.corner(output, base + 2, this.max_x, this.min_y + offset);
+      this.corner(output, base + 4, this.max_x, this.max_y + offset);
+      this.corner(output, base + 6, this.min_x, this.max_y + offset);
+    }
+
+    private void corner(
+      final double[] output,
+      final int base,
+      final double x,
+      final double y)
+    {
+      output[base] = this.cos * x - this.sin * y;
+      output[base + 1] = this.sin * x + this.cos * y;
+    }
+  }
+
+  /**
+   * The glyphs placed so far. The four corners of each placed glyph are
+   * stored in order around its rotated bounding box, indexed in the same
+   * way as the boxes of the quadtree; the slot after the last placed glyph
+   * holds the corners of the glyph currently being placed.
+   */
+
+  private static final class Layout implements IntPredicate
+  {
+    private final SigilQuadTree tree;
+    private final double[] corners;
+    private double extent;
+    private int candidate;
+
+    Layout(
+      final int count)
+    {
+      this.tree = new SigilQuadTree(count);
+      this.corners = new double[Math.max(1, count) * 8];
+      this.extent = 0.0;
+      this.candidate = 0;
+    }
+
+    int place(
+      final SigilGlyphBounds bounds,
+      final double scale,
+      final double angle,
+      final int spread)
+    {
+      this.candidate = this.tree.size() * 8;
+
+      final Placement placement = new Placement(bounds, scale, angle);
+      final double step = Math.max(
+        1.0, (bounds.maximumY() - bounds.minimumY()) * scale * 0.5);
+
+      for (int attempt = 0; attempt < NEARBY_ATTEMPTS; ++attempt) {
+        final int ring = (attempt + 1) / 2;
+        final int sign = (attempt % 2 == 0) ? 1 : -1;
+        final int offset = (int) Math.round(spread + sign * ring * step);
+        if (offset >= 0 && this.isFree(placement, offset)) {
+          return this.accept(placement, offset);
+        }
+      }
+
+      /*
+       * Every position beyond the extent of the placed glyphs is free. Search
+       * outwards with doubling distances until a free position is found, and
+       * then bisect back towards the last occupied position.
+       */
+
+      final int beyond =
+        (int) Math.ceil(this.extent - bounds.minimumY() * scale) + 1;
+      int occupied = spread;
+      int free = beyond;
+      for (double distance = step * NEARBY_ATTEMPTS;
+           spread + distance < beyond;
+           distance *= 2.0) {
+        final int offset = (int) Math.round(spread + distance);
+        if (this.isFree(placement, offset)) {
+          free = offset;
+          break;
+        }
+        occupied = offset;
+      }
+
+      while (free - occupied > step) {
+        final int middle = occupied + (free - occupied) / 2;
+        if (this.isFree(placement, middle)) {
+          free = middle;
+        } else {
+          occupied = middle;
+        }
+      }
+      return this.accept(placement, free);
+    }
+
+    private boolean isFree(
+      final Placement placement,
+      final int offset)
+    {
+      placement.corners(this.corners, this.candidate, offset);
+      final int base = this.candidate;
+      return !this.tree.anyOverlapping(
+        this.minimum(base), this.minimum(base + 1),
+        this.maximum(base), this.maximum(base + 1),
+        this);
+    }
+
+    private int accept(
+      final Placement placement,
+      final int offset)
+    {
+      placement.corners(this.corners, this.candidate, offset);
+      final int base = this.candidate;
+      for (int corner = base; corner < base + 8; corner += 2) {
+        this.extent = Math.max(
+          this.extent,
+          Math.hypot(this.corners[corner], this.corners[corner + 1]));
+      }
+      this.tree.insert(
+        this.minimum(base), this.minimum(base + 1),
+        this.maximum(base), this.maximum(base + 1));
+      return offset;
+    }
+
+    private double minimum(
+      final int base)
+    {
+      double value = this.corners[base];
+      for (int corner = base + 2; corner < base + 8; corner += 2) {
+        value = Math.min(value, this.corners[corner]);
+      }
+      return value;
+    }
+
+    private double maximum(
+      final int base)
+    {
+      double value = this.corners[base];
+      for (int corner = base + 2; corner < base + 8; corner += 2) {
+        value = Math.max(value, this.corners[corner]);
+      }
+      return value;
+    }
+
+    /**
+     * Determine if the candidate glyph overlaps the given placed glyph,
+     * by searching for a separating axis among the edge normals of both
+     * rotated boxes.
+     */
+
+    @Override
+    public boolean test(
+      final int index)
+    {
+      final int placed = index * 8;
+      final int base = this.candidate;
+      return !(this.separatedAlongEdges(base, placed)
+        || this.separatedAlongEdges(placed, base));
+    }
+
+    private boolean separatedAlongEdges(
+      final int edges,
+      final int other)
+    {
+      for (int edge = 0; edge < 4; edge += 2) {
+        final double axis_x =
+          this.corners[edges + edge + 2] - this.corners[edges + edge];
+        final double axis_y =
+          this.corners[edges + edge + 3] - this.corners[edges + edge + 1];
+        if (this.separatedAlong(axis_x, axis_y, edges, other)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean separatedAlong(
+      final double axis_x,
+      final double axis_y,
+      final int first,
+      final int second)
+    {
+      double first_min = Double.POSITIVE_INFINITY;
+      double first_max = Double.NEGATIVE_INFINITY;
+      double second_min = Double.POSITIVE_INFINITY;
+      double second_max = Double.NEGATIVE_INFINITY;
+      for (int corner = 0; corner < 8; corner += 2) {
+        final double p =
+          this.corners[first + corner] * axis_x
+            + this.corners[first + corner + 1] * axis_y;
+        final double q =
+          this.corners[second + corner] * axis_x
+            + this.corners[second + corner + 1] * axis_y;
+        first_min = Math.min(first_min, p);
+        first_max = Math.max(first_max, p);
+        second_min = Math.min(second_min, q);
+        second_max = Math.max(second_max, q);
+      }
+      return first_max <= second_min || second_max <= first_min;
+    }
+  }
+}
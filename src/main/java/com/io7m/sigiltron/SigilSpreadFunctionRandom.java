@@ -16,32 +16,38 @@
 
 package com.io7m.sigiltron;
 
-import java.security.SecureRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 /**
- * Use the reference value.
+ * Use a random value in the range {@code [0, size)}.
  */
 
 public final class SigilSpreadFunctionRandom implements
   SigilSpreadFunctionType
 {
-  private final SecureRandom random;
-
   /**
    * Construct a spread function.
    */
 
   public SigilSpreadFunctionRandom()
   {
-    this.random = new SecureRandom();
+
   }
 
-  @SuppressWarnings("boxing")
   @Override
   public Integer getSpread(
     final int size)
   {
-    return this.random.nextInt(size);
+    return Integer.valueOf(this.spreadOf(ThreadLocalRandom.current(), size));
+  }
+
+  @Override
+  public int spreadOf(
+    final RandomGenerator random,
+    final int size)
+  {
+    return random.nextInt(size);
   }
 
   @Override
@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.awt.Font;
+
+/**
+ * The type of spread functions that revise their spreads once the font and
+ * rotation of every glyph in a sigil is known.
+ */
+
+public interface SigilSpreadFunctionRelaxingType
+  extends SigilSpreadFunctionType
+{
+  /**
+   * Revise the spreads of a sigil. Glyph {@code i} is drawn with its
+   * baseline origin at distance {@code spreads[i]} from the centre of the
+   * sigil, along the direction given by {@code angles[i]}.
+   *
+   * @param fonts      The font of each glyph
+   * @param codepoints The character of each glyph
+   * @param angles     The cumulative rotation of each glyph, in radians
+   * @param spreads    The spread of each glyph, revised in place
+   * @param count      The number of glyphs
+   */
+
+  void relax(
+    Font[] fonts,
+    int[] codepoints,
+    double[] angles,
+    int[] spreads,
+    int count);
+}
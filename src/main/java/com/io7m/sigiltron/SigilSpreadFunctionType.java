@@ -16,6 +16,8 @@
 
 package com.io7m.sigiltron;
 
+import java.util.random.RandomGenerator;
+
 /**
  * The type of functions that decide fonts for characters.
  */
@@ -30,4 +32,45 @@ public interface SigilSpreadFunctionType
 
   Integer getSpread(
     int size);
+
+  /**
+   * A primitive variant of {@link #getSpread(int)} that draws its values
+   * from the given random generator, and so produces reproducible results.
+   * The default implementation adapts {@link #getSpread(int)}, which cannot
+   * use the given generator.
+   *
+   * @param random The random generator
+   * @param size   The reference size.
+   *
+   * @return The spread size.
+   */
+
+  default int spreadOf(
+    final RandomGenerator random,
+    final int size)
+  {
+    return this.getSpread(size).intValue();
+  }
+
+  /**
+   * Calculate {@code count} spread values.
+   *
+   * @param random The random generator
+   * @param size   The reference size
+   * @param offset The index of the first value
+   * @param count  The number of values
+   * @param output The spread sizes, written starting at {@code offset}
+   */
+
+  default void spreadsOf(
+    final RandomGenerator random,
+    final int size,
+    final int offset,
+    final int count,
+    final int[] output)
+  {
+    for (int index = offset; index < offset + count; ++index) {
+      output[index] = this.spreadOf(random, size);
+    }
+  }
 }
@@ -0,0 +1,189 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The operational statistics of a running instance. Generation statistics
+ * are taken from a {@link SigilGenerator}; statistics about the displayed
+ * sigil are supplied by the window, if there is one.
+ */
+
+final class SigilStatistics implements SigilStatisticsBeanType
+{
+  private static final Logger LOG;
+
+  static {
+    LOG = LoggerFactory.getLogger(SigilStatistics.class);
+  }
+
+  private static final String OBJECT_NAME =
+    "com.io7m.sigiltron:type=Statistics";
+
+  private final SigilGenerator generator;
+  private final SigilLatencyHistogram render_latencies;
+  private final AtomicLong document_elements;
+  private final AtomicLong canvas_image_bytes;
+
+  /**
+   * Construct statistics.
+   *
+   * @param in_generator The generator
+   */
+
+  SigilStatistics(
+    final SigilGenerator in_generator)
+  {
+    this.generator = Objects.requireNonNull(in_generator, "Generator");
+    this.render_latencies = new SigilLatencyHistogram();
+    this.document_elements = new AtomicLong(0L);
+    this.canvas_image_bytes = new AtomicLong(0L);
+  }
+
+  private static double millis(
+    final long nanos)
+  {
+    return (double) nanos / 1.0e6;
+  }
+
+  /**
+   * Register the statistics with the platform MBean server. Failures are
+   * logged; statistics are not essential.
+   */
+
+  void register()
+  {
+    try {
+      ManagementFactory.getPlatformMBeanServer()
+        .registerMBean(this, new ObjectName(OBJECT_NAME));
+    } catch (final JMException e) {
+      LOG.warn("could not register statistics MBean: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Remove the statistics from the platform MBean server.
+   */
+
+  void unregister()
+  {
+    try {
+      ManagementFactory.getPlatformMBeanServer()
+        .unregisterMBean(new ObjectName(OBJECT_NAME));
+    } catch (final JMException e) {
+      LOG.debug("could not unregister statistics MBean: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Record the time taken to display a sigil.
+   *
+   * @param nanos The time in nanoseconds
+   */
+
+  void recordRender(
+    final long nanos)
+  {
+    this.render_latencies.record(nanos);
+  }
+
+  /**
+   * Set the number of elements in the displayed document.
+   *
+   * @param elements The number of elements
+   */
+
+  void setDocumentElements(
+    final long elements)
+  {
+    this.document_elements.set(elements);
+  }
+
+  /**
+   * Set the size of the image held by the canvas.
+   *
+   * @param bytes The size in bytes
+   */
+
+  void setCanvasImageBytes(
+    final long bytes)
+  {
+    this.canvas_image_bytes.set(bytes);
+  }
+
+  @Override
+  public long getGenerations()
+  {
+    return this.generator.generationLatencies().count();
+  }
+
+  @Override
+  public double getGenerationsPerSecond()
+  {
+    return this.generator.generationsPerSecond();
+  }
+
+  @Override
+  public double getGenerationLatencyP50Millis()
+  {
+    return millis(this.generator.generationLatencies().p50());
+  }
+
+  @Override
+  public double getGenerationLatencyP99Millis()
+  {
+    return millis(this.generator.generationLatencies().p99());
+  }
+
+  @Override
+  public double getRenderLatencyP50Millis()
+  {
+    return millis(this.render_latencies.snapshot().p50());
+  }
+
+  @Override
+  public double getRenderLatencyP99Millis()
+  {
+    return millis(this.render_latencies.snapshot().p99());
+  }
+
+  @Override
+  public double getFontCacheHitRatio()
+  {
+    return this.generator.fontCacheStatistics().hitRatio();
+  }
+
+  @Override
+  public long getDocumentElements()
+  {
+    return this.document_elements.get();
+  }
+
+  @Override
+  public long getCanvasImageBytes()
+  {
+    return this.canvas_image_bytes.get();
+  }
+}
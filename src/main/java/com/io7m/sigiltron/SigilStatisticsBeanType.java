@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import javax.management.MXBean;
+
+/**
+ * The operational statistics of a running instance, published over JMX as
+ * {@code com.io7m.sigiltron:type=Statistics}. Latencies are measured since
+ * the instance started.
+ */
+
+@MXBean
+public interface SigilStatisticsBeanType
+{
+  /**
+   * @return The number of sigils generated
+   */
+
+  long getGenerations();
+
+  /**
+   * @return The average number of sigils generated per second over the last
+   * ten seconds
+   */
+
+  double getGenerationsPerSecond();
+
+  /**
+   * @return The median time taken to generate a sigil, in milliseconds
+   */
+
+  double getGenerationLatencyP50Millis();
+
+  /**
+   * @return The 99th percentile of the time taken to generate a sigil, in
+   * milliseconds
+   */
+
+  double getGenerationLatencyP99Millis();
+
+  /**
+   * @return The median time taken for a generated sigil to be built and
+   * rendered by the canvas, in milliseconds
+   */
+
+  double getRenderLatencyP50Millis();
+
+  /**
+   * @return The 99th percentile of the time taken for a generated sigil to
+   * be built and rendered by the canvas, in milliseconds
+   */
+
+  double getRenderLatencyP99Millis();
+
+  /**
+   * @return The fraction of font lookups satisfied by the font cache
+   */
+
+  double getFontCacheHitRatio();
+
+  /**
+   * @return The number of elements in the displayed SVG document
+   */
+
+  long getDocumentElements();
+
+  /**
+   * @return The size in bytes of the image held by the canvas for the
+   * displayed sigil
+   */
+
+  long getCanvasImageBytes();
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import javax.swing.BorderFactory;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.Timer;
+import java.awt.BorderLayout;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * A strip that shows the current statistics, refreshed once a second while
+ * it is showing.
+ */
+
+final class SigilStatisticsStrip extends JPanel
+{
+  private static final long serialVersionUID = -32103913838613508L;
+  private static final int REFRESH_MILLIS = 1000;
+
+  private final SigilStatisticsBeanType statistics;
+  private final JLabel label;
+  private final Timer timer;
+
+  /**
+   * Construct a strip.
+   *
+   * @param in_statistics The statistics
+   */
+
+  SigilStatisticsStrip(
+    final SigilStatisticsBeanType in_statistics)
+  {
+    this.statistics = Objects.requireNonNull(in_statistics, "Statistics");
+    this.label = new JLabel(" ");
+    this.timer = new Timer(REFRESH_MILLIS, e -> this.refresh());
+    this.setLayout(new BorderLayout());
+    this.setBorder(BorderFactory.createEmptyBorder(2, 4, 2, 4));
+    this.add(this.label, BorderLayout.CENTER);
+  }
+
+  /**
+   * Start refreshing the strip.
+   */
+
+  void start()
+  {
+    this.refresh();
+    this.timer.start();
+  }
+
+  /**
+   * Stop refreshing the strip.
+   */
+
+  void stop()
+  {
+    this.timer.stop();
+  }
+
+  private void refresh()
+  {
+    if (!this.isShowing()) {
+      return;
+    }
+
+    final SigilStatisticsBeanType s = this.statistics;
+    this.label.setText(
+      String.format(
+        Locale.ROOT,
+        "%.1f sigils/s | generate p50 %.1f ms p99 %.1f ms"
+          + " | display p50 %.1f ms p99 %.1f ms"
+          + " | font cache %.1f%% | %d elements | canvas %.1f MiB",
+        Double.valueOf(s.getGenerationsPerSecond()),
+        Double.valueOf(s.getGenerationLatencyP50Millis()),
+        Double.valueOf(s.getGenerationLatencyP99Millis()),
+        Double.valueOf(s.getRenderLatencyP50Millis()),
+        Double.valueOf(s.getRenderLatencyP99Millis()),
+        Double.valueOf(s.getFontCacheHitRatio() * 100.0),
+        Long.valueOf(s.getDocumentElements()),
+        Double.valueOf((double) s.getCanvasImageBytes() / (1024.0 * 1024.0))));
+  }
+}
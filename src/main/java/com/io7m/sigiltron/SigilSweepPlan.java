@@ -0,0 +1,194 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A parameter sweep: the variants of a base request formed by every
+ * combination of the given seeds, spread values, and rotation, spread,
+ * and font functions. Every other parameter is taken from the base
+ * request.
+ *
+ * @param base              The base request
+ * @param seeds             The seeds
+ * @param spreads           The spread values
+ * @param rotationFunctions The rotation functions
+ * @param spreadFunctions   The spread functions
+ * @param fontFunctions     The font functions
+ */
+
+record SigilSweepPlan(
+  SigilGeneratorRequest base,
+  List<Long> seeds,
+  List<Integer> spreads,
+  List<SigilRotationFunctionType> rotationFunctions,
+  List<SigilSpreadFunctionType> spreadFunctions,
+  List<SigilFontFunctionType> fontFunctions)
+{
+  SigilSweepPlan
+  {
+    Objects.requireNonNull(base, "base");
+    seeds = List.copyOf(seeds);
+    spreads = List.copyOf(spreads);
+    rotationFunctions = List.copyOf(rotationFunctions);
+    spreadFunctions = List.copyOf(spreadFunctions);
+    fontFunctions = List.copyOf(fontFunctions);
+
+    final long count =
+      (long) seeds.size()
+        * (long) spreads.size()
+        * (long) rotationFunctions.size()
+        * (long) spreadFunctions.size()
+        * (long) fontFunctions.size();
+
+    if (count == 0L) {
+      throw new IllegalArgumentException(
+        String.format(
+          "Every parameter of a sweep requires at least one value "
+            + "(%d seeds, %d spreads, %d rotation functions, "
+            + "%d spread functions, %d font functions)",
+          Integer.valueOf(seeds.size()),
+          Integer.valueOf(spreads.size()),
+          Integer.valueOf(rotationFunctions.size()),
+          Integer.valueOf(spreadFunctions.size()),
+          Integer.valueOf(fontFunctions.size())));
+    }
+    if (count > (long) SigilAtlas.MAXIMUM_VARIANTS) {
+      throw new IllegalArgumentException(
+        String.format(
+          "Sweep of %d variants exceeds the maximum of %d",
+          Long.valueOf(count),
+          Integer.valueOf(SigilAtlas.MAXIMUM_VARIANTS)));
+    }
+    for (final Integer spread : spreads) {
+      if (spread.intValue() < 1) {
+        throw new IllegalArgumentException(
+          String.format("Spread %s must be positive", spread));
+      }
+    }
+  }
+
+  /**
+   * A sweep around a request: the seed of the request and three seeds
+   * derived from it, half, all, and one and a half times the spread of the
+   * request, and every one of the given functions.
+   *
+   * @param base              The request
+   * @param rotationFunctions The rotation functions
+   * @param spreadFunctions   The spread functions
+   * @param fontFunctions     The font functions
+   *
+   * @return A sweep
+   */
+
+  static SigilSweepPlan around(
+    final SigilGeneratorRequest base,
+    final List<SigilRotationFunctionType> rotationFunctions,
+    final List<SigilSpreadFunctionType> spreadFunctions,
+    final List<SigilFontFunctionType> fontFunctions)
+  {
+    final long seed = base.seed();
+    final int spread = base.spread();
+    return new SigilSweepPlan(
+      base,
+      List.of(
+        Long.valueOf(seed),
+        Long.valueOf(SigilSeeds.derive(seed, 1L)),
+        Long.valueOf(SigilSeeds.derive(seed, 2L)),
+        Long.valueOf(SigilSeeds.derive(seed, 3L))),
+      List.of(
+        Integer.valueOf(Math.max(1, spread / 2)),
+        Integer.valueOf(Math.max(2, spread)),
+        Integer.valueOf(Math.max(3, spread + spread / 2))),
+      rotationFunctions,
+      spreadFunctions,
+      fontFunctions);
+  }
+
+  /**
+   * @return The variants of the sweep, with the seed varying fastest and
+   * the font function slowest
+   */
+
+  List<SigilSweepVariant> variants()
+  {
+    final int count =
+      this.seeds.size()
+        * this.spreads.size()
+        * this.rotationFunctions.size()
+        * this.spreadFunctions.size()
+        * this.fontFunctions.size();
+
+    final List<SigilSweepVariant> variants = new ArrayList<>(count);
+    for (int index = 0; index < count; ++index) {
+      int rest = index;
+      final Long seed = this.seeds.get(rest % this.seeds.size());
+      rest /= this.seeds.size();
+      final Integer spread = this.spreads.get(rest % this.spreads.size());
+      rest /= this.spreads.size();
+      final SigilRotationFunctionType rf =
+        this.rotationFunctions.get(rest % this.rotationFunctions.size());
+      rest /= this.rotationFunctions.size();
+      final SigilSpreadFunctionType sf =
+        this.spreadFunctions.get(rest % this.spreadFunctions.size());
+      rest /= this.spreadFunctions.size();
+      final SigilFontFunctionType ff = this.fontFunctions.get(rest);
+
+      final SigilGeneratorRequest request =
+        new SigilGeneratorRequest(
+          this.base.text(),
+          this.base.fonts(),
+          this.base.textFunction(),
+          ff,
+          rf,
+          sf,
+          spread.intValue(),
+          this.base.random(),
+          seed.longValue(),
+          this.base.width(),
+          this.base.height());
+
+      variants.add(new SigilSweepVariant(request, this.labelOf(request)));
+    }
+    return variants;
+  }
+
+  private List<String> labelOf(
+    final SigilGeneratorRequest request)
+  {
+    final List<String> label = new ArrayList<>(5);
+    if (this.fontFunctions.size() > 1) {
+      label.add("font: " + request.fontFunction());
+    }
+    if (this.rotationFunctions.size() > 1) {
+      label.add("rotation: " + request.rotationFunction());
+    }
+    if (this.spreadFunctions.size() > 1) {
+      label.add("spread: " + request.spreadFunction());
+    }
+    if (this.spreads.size() > 1) {
+      label.add("spread " + request.spread());
+    }
+    if (this.seeds.size() > 1) {
+      label.add("seed " + request.seed());
+    }
+    return label;
+  }
+}
@@ -40,6 +40,14 @@ public final class SigilTextFunctionIdentity implements SigilTextFunctionType
     return cs;
   }
 
+  @Override
+  public int processCodePoints(
+    final int[] codepoints,
+    final int count)
+  {
+    return count;
+  }
+
   @Override
   public String toString()
   {
@@ -0,0 +1,273 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * A text function that applies a sequence of {@link SigilTextStage} stages
+ * in a single pass over the code points of an intent. Each code point is
+ * passed through every stage in order before the next code point is
+ * examined, so the result is the same as applying the stages one after
+ * another, but no intermediate text is ever built.
+ *
+ * The stages between each {@link SigilTextStage#REMOVE_DUPLICATES} stage
+ * depend only on the code point they are given, so each such run of stages
+ * is collapsed into a single lookup table for ASCII code points, and only
+ * code points outside ASCII pay for evaluating the stages one by one.
+ * Duplicates in the Basic Multilingual Plane are tracked in an 8KiB bitset;
+ * the rare code points outside it are tracked in a set that is only
+ * allocated when such a code point is seen.
+ */
+
+public final class SigilTextFunctionPipeline implements SigilTextFunctionType
+{
+  private static final int DROPPED = -1;
+  private static final int ASCII = 0x80;
+  private static final int BMP = 0x1_0000;
+
+  private final SigilTextStage[] stages;
+  private final Segment[] segments;
+
+  /**
+   * Construct a pipeline.
+   *
+   * @param in_stages The stages, in the order in which they are applied
+   */
+
+  public SigilTextFunctionPipeline(
+    final List<SigilTextStage> in_stages)
+  {
+    this.stages = Objects.requireNonNull(in_stages, "Stages")
+      .toArray(new SigilTextStage[0]);
+
+    final List<Segment> split = new ArrayList<>(2);
+    int start = 0;
+    for (int index = 0; index < this.stages.length; ++index) {
+      if (this.stages[index] == SigilTextStage.REMOVE_DUPLICATES) {
+        split.add(new Segment(Arrays.copyOfRange(this.stages, start, index)));
+        start = index + 1;
+      }
+    }
+    split.add(new Segment(
+      Arrays.copyOfRange(this.stages, start, this.stages.length)));
+    this.segments = split.toArray(new Segment[0]);
+  }
+
+  /**
+   * @return The stages, in the order in which they are applied
+   */
+
+  public List<SigilTextStage> stages()
+  {
+    return List.of(this.stages);
+  }
+
+  @Override
+  public List<Character> process(
+    final List<Character> cs)
+  {
+    final StringBuilder in = new StringBuilder(cs.size());
+    for (final Character c : cs) {
+      in.append(c.charValue());
+    }
+
+    final int[] codepoints = in.codePoints().toArray();
+    final int kept = this.processCodePoints(codepoints, codepoints.length);
+
+    final StringBuilder out = new StringBuilder(kept);
+    for (int index = 0; index < kept; ++index) {
+      out.appendCodePoint(codepoints[index]);
+    }
+
+    final List<Character> xs = new ArrayList<>(out.length());
+    for (int index = 0; index < out.length(); ++index) {
+      xs.add(Character.valueOf(out.charAt(index)));
+    }
+    return xs;
+  }
+
+  @Override
+  public int processCodePoints(
+    final int[] codepoints,
+    final int count)
+  {
+    final int last = this.segments.length - 1;
+    final Seen[] seen = new Seen[last];
+    for (int index = 0; index < last; ++index) {
+      seen[index] = new Seen();
+    }
+
+    int kept = 0;
+    next:
+    for (int index = 0; index < count; ++index) {
+      int c = codepoints[index];
+      for (int segment = 0; segment < last; ++segment) {
+        c = this.segments[segment].apply(c);
+        if (c == DROPPED || !seen[segment].add(c)) {
+          continue next;
+        }
+      }
+      c = this.segments[last].apply(c);
+      if (c != DROPPED) {
+        codepoints[kept] = c;
+        ++kept;
+      }
+    }
+    return kept;
+  }
+
+  private static int evaluate(
+    final SigilTextStage[] stages,
+    final int codepoint)
+  {
+    int c = codepoint;
+    for (final SigilTextStage stage : stages) {
+      switch (stage) {
+        case STRIP_WHITESPACE -> {
+          if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+            return DROPPED;
+          }
+        }
+        case CASE_FOLD -> {
+          c = Character.toLowerCase(Character.toUpperCase(c));
+        }
+        case REMOVE_VOWELS -> {
+          if (isVowel(c)) {
+            return DROPPED;
+          }
+        }
+        case REMOVE_DUPLICATES -> {
+          throw new UnreachableCodeException();
+        }
+      }
+    }
+    return c;
+  }
+
+  private static boolean isVowel(
+    final int c)
+  {
+    return switch (c) {
+      case 'a', 'e', 'i', 'o', 'u', 'A', 'E', 'I', 'O', 'U' -> true;
+      default -> false;
+    };
+  }
+
+  @Override
+  public boolean equals(
+    final Object other)
+  {
+    if (this == other) {
+      return true;
+    }
+    if (other == null || !Objects.equals(this.getClass(), other.getClass())) {
+      return false;
+    }
+    final SigilTextFunctionPipeline that = (SigilTextFunctionPipeline) other;
+    return Arrays.equals(this.stages, that.stages);
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return Arrays.hashCode(this.stages);
+  }
+
+  @Override
+  public String toString()
+  {
+    if (this.stages.length == 0) {
+      return "Identity";
+    }
+    return List.of(this.stages)
+      .stream()
+      .map(SigilTextStage::label)
+      .collect(Collectors.joining(", then "));
+  }
+
+  /**
+   * A run of stages that contains no {@link SigilTextStage#REMOVE_DUPLICATES}
+   * stage, along with the precomputed results for every ASCII code point.
+   */
+
+  private static final class Segment
+  {
+    private final SigilTextStage[] stages;
+    private final int[] ascii;
+
+    Segment(
+      final SigilTextStage... in_stages)
+    {
+      this.stages = in_stages;
+      this.ascii = new int[ASCII];
+      for (int c = 0; c < ASCII; ++c) {
+        this.ascii[c] = evaluate(in_stages, c);
+      }
+    }
+
+    int apply(
+      final int c)
+    {
+      if (c < ASCII) {
+        return this.ascii[c];
+      }
+      return evaluate(this.stages, c);
+    }
+  }
+
+  /**
+   * The set of code points seen so far by one deduplication stage.
+   */
+
+  private static final class Seen
+  {
+    private final long[] bmp;
+    private Set<Integer> astral;
+
+    Seen()
+    {
+      this.bmp = new long[BMP / Long.SIZE];
+    }
+
+    boolean add(
+      final int c)
+    {
+      if (c < BMP) {
+        final long bit = 1L << c;
+        final int word = c >>> 6;
+        if ((this.bmp[word] & bit) != 0L) {
+          return false;
+        }
+        this.bmp[word] |= bit;
+        return true;
+      }
+      if (this.astral == null) {
+        this.astral = new HashSet<>(16);
+      }
+      return this.astral.add(Integer.valueOf(c));
+    }
+  }
+}
@@ -17,6 +17,7 @@
 package com.io7m.sigiltron;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
@@ -55,6 +56,25 @@ public final class SigilTextFunctionRemoveDuplicates implements
     return xs;
   }
 
+  @Override
+  public int processCodePoints(
+    final int[] codepoints,
+    final int count)
+  {
+    final BitSet seen = new BitSet();
+
+    int kept = 0;
+    for (int index = 0; index < count; ++index) {
+      final int c = codepoints[index];
+      if (!seen.get(c)) {
+        seen.set(c);
+        codepoints[kept] = c;
+        ++kept;
+      }
+    }
+    return kept;
+  }
+
   @Override
   public String toString()
   {
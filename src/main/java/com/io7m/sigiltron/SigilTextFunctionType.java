@@ -16,6 +16,7 @@
 
 package com.io7m.sigiltron;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -34,4 +35,48 @@ public interface SigilTextFunctionType
 
   List<Character> process(
     List<Character> cs);
+
+  /**
+   * A primitive variant of {@link #process(List)} that processes the
+   * first {@code count} code points of {@code codepoints} in place. The
+   * default implementation adapts {@link #process(List)}. Functions may
+   * remove code points, but must not produce more code points than they
+   * are given.
+   *
+   * @param codepoints The code points
+   * @param count      The number of code points
+   *
+   * @return The number of code points remaining after processing
+   */
+
+  default int processCodePoints(
+    final int[] codepoints,
+    final int count)
+  {
+    final StringBuilder in = new StringBuilder(count);
+    for (int index = 0; index < count; ++index) {
+      in.appendCodePoint(codepoints[index]);
+    }
+
+    final List<Character> cs = new ArrayList<>(in.length());
+    for (int index = 0; index < in.length(); ++index) {
+      cs.add(Character.valueOf(in.charAt(index)));
+    }
+
+    final List<Character> rs = this.process(cs);
+    final StringBuilder out = new StringBuilder(rs.size());
+    for (final Character c : rs) {
+      out.append(c.charValue());
+    }
+
+    final int length =
+      Math.min(out.codePointCount(0, out.length()), codepoints.length);
+    int offset = 0;
+    for (int index = 0; index < length; ++index) {
+      final int cp = out.codePointAt(offset);
+      codepoints[index] = cp;
+      offset += Character.charCount(cp);
+    }
+    return length;
+  }
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import java.util.Optional;
+
+/**
+ * The stages that can be combined into a {@link SigilTextFunctionPipeline}.
+ */
+
+public enum SigilTextStage
+{
+  /**
+   * Remove whitespace.
+   */
+
+  STRIP_WHITESPACE("strip-whitespace", "Strip whitespace"),
+
+  /**
+   * Fold characters to a single case, so that characters that differ only
+   * in case are treated as the same character by later stages.
+   */
+
+  CASE_FOLD("case-fold", "Fold case"),
+
+  /**
+   * Remove the vowels a, e, i, o and u, in either case.
+   */
+
+  REMOVE_VOWELS("remove-vowels", "Remove vowels"),
+
+  /**
+   * Remove all but the first occurrence of each character.
+   */
+
+  REMOVE_DUPLICATES("remove-duplicates", "Remove duplicates");
+
+  private final String stage_name;
+  private final String stage_label;
+
+  SigilTextStage(
+    final String in_name,
+    final String in_label)
+  {
+    this.stage_name = in_name;
+    this.stage_label = in_label;
+  }
+
+  /**
+   * @param name The name of a stage
+   *
+   * @return The stage with the given name, if any
+   */
+
+  public static Optional<SigilTextStage> ofName(
+    final String name)
+  {
+    for (final SigilTextStage stage : values()) {
+      if (stage.stage_name.equals(name)) {
+        return Optional.of(stage);
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * @return The name of the stage used on the command line
+   */
+
+  public String stageName()
+  {
+    return this.stage_name;
+  }
+
+  /**
+   * @return A human-readable description of the stage
+   */
+
+  public String label()
+  {
+    return this.stage_label;
+  }
+}
@@ -0,0 +1,387 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Headless batch generator program.
+ */
+
+public final class SigiltronBatchMain
+{
+  private static final Logger LOG;
+  private static final Set<String> OPTIONS;
+  private static final Pattern SHARD = Pattern.compile("([0-9]+)/([0-9]+)");
+
+  static {
+    LOG = LoggerFactory.getLogger(SigiltronBatchMain.class);
+    OPTIONS = Set.of(
+      "--input",
+      "--output",
+      "--workers",
+      "--text-function",
+      "--font-function",
+      "--font",
+      "--rotation-function",
+      "--spread-function",
+      "--spread",
+      "--random-source",
+      "--seed",
+      "--renderer",
+      "--width",
+      "--height",
+      "--cache",
+      "--shard",
+      "--optimize",
+      "--simplify"
+    );
+  }
+
+  private SigiltronBatchMain()
+  {
+
+  }
+
+  private static Map<String, String> parseOptions(
+    final List<String> args)
+  {
+    final Map<String, String> options = new HashMap<>(args.size());
+    for (int index = 0; index < args.size(); index += 2) {
+      final String name = args.get(index);
+      if (!OPTIONS.contains(name)) {
+        throw new IllegalArgumentException(
+          String.format("Unrecognized option: %s", name));
+      }
+      if (index + 1 >= args.size()) {
+        throw new IllegalArgumentException(
+          String.format("Option %s requires a value", name));
+      }
+      options.put(name, args.get(index + 1));
+    }
+    return options;
+  }
+
+  private static String required(
+    final Map<String, String> options,
+    final String name)
+  {
+    final String value = options.get(name);
+    if (value == null) {
+      throw new IllegalArgumentException(
+        String.format("Option %s is required", name));
+    }
+    return value;
+  }
+
+  private static String function(
+    final Map<String, String> options,
+    final String name,
+    final String default_value,
+    final Set<String> names)
+  {
+    final String value = options.getOrDefault(name, default_value);
+    if (!names.contains(value)) {
+      throw new IllegalArgumentException(
+        String.format(
+          "Unrecognized value for %s: %s (must be one of %s)",
+          name,
+          value,
+          String.join(", ", names)));
+    }
+    return value;
+  }
+
+  private static String textFunction(
+    final Map<String, String> options)
+  {
+    final String value = options.getOrDefault("--text-function", "identity");
+    if (SigilFunctions.textFunction(value).isEmpty()) {
+      throw new IllegalArgumentException(
+        String.format(
+          "Unrecognized value for --text-function: %s (must be a comma-separated list of %s)",
+          value,
+          String.join(", ", SigilFunctions.textFunctionNames())));
+    }
+    return value;
+  }
+
+  private static int integer(
+    final Map<String, String> options,
+    final String name,
+    final int default_value)
+  {
+    final String value = options.get(name);
+    if (value == null) {
+      return default_value;
+    }
+
+    try {
+      return Integer.parseInt(value);
+    } catch (final NumberFormatException e) {
+      throw new IllegalArgumentException(
+        String.format("Option %s requires an integer value", name), e);
+    }
+  }
+
+  private static long seed(
+    final Map<String, String> options)
+  {
+    final String value = options.get("--seed");
+    if (value == null) {
+      return SigilSeeds.fresh();
+    }
+
+    try {
+      return Long.parseLong(value);
+    } catch (final NumberFormatException e) {
+      throw new IllegalArgumentException(
+        String.format("Option --seed requires an integer value: %s", value),
+        e);
+    }
+  }
+
+  private static Optional<Path> cache(
+    final Map<String, String> options)
+  {
+    final String value = options.get("--cache");
+    if (value == null) {
+      return Optional.of(SigilDiskCache.defaultDirectory());
+    }
+    if ("none".equals(value)) {
+      return Optional.empty();
+    }
+    return Optional.of(Path.of(value));
+  }
+
+  private static SigilShard shard(
+    final Map<String, String> options)
+  {
+    final String value = options.get("--shard");
+    if (value == null) {
+      return new SigilShard(1, 1);
+    }
+
+    final Matcher matcher = SHARD.matcher(value);
+    if (!matcher.matches()) {
+      throw new IllegalArgumentException(
+        String.format("Option --shard requires a value of the form i/N: %s", value));
+    }
+
+    final SigilShard shard;
+    try {
+      shard = new SigilShard(
+        Integer.parseInt(matcher.group(1)),
+        Integer.parseInt(matcher.group(2)));
+    } catch (final NumberFormatException e) {
+      throw new IllegalArgumentException(
+        String.format("Option --shard is out of range: %s", value), e);
+    }
+
+    if (shard.count() > 1 && !options.containsKey("--seed")) {
+      throw new IllegalArgumentException(
+        String.format(
+          "Option --shard %s requires --seed, so that every shard derives the same seeds",
+          value));
+    }
+    return shard;
+  }
+
+  private static OptionalInt optimize(
+    final Map<String, String> options)
+  {
+    final String value = options.get("--optimize");
+    if (value == null || "none".equals(value)) {
+      return OptionalInt.empty();
+    }
+
+    final int precision;
+    try {
+      precision = Integer.parseInt(value);
+    } catch (final NumberFormatException e) {
+      throw new IllegalArgumentException(
+        String.format("Option --optimize requires an integer value: %s", value),
+        e);
+    }
+
+    if (precision < 0 || precision > SigilSVGOptimizer.MAXIMUM_PRECISION) {
+      throw new IllegalArgumentException(
+        String.format(
+          "Option --optimize must be in the range [0, %d]: %s",
+          Integer.valueOf(SigilSVGOptimizer.MAXIMUM_PRECISION),
+          value));
+    }
+    return OptionalInt.of(precision);
+  }
+
+  private static double simplify(
+    final Map<String, String> options)
+  {
+    final String value = options.get("--simplify");
+    if (value == null) {
+      return 0.0;
+    }
+
+    final double tolerance;
+    try {
+      tolerance = Double.parseDouble(value);
+    } catch (final NumberFormatException e) {
+      throw new IllegalArgumentException(
+        String.format("Option --simplify requires a numeric value: %s", value),
+        e);
+    }
+
+    if (!(tolerance >= 0.0 && tolerance <= SigilGlyphCache.MAXIMUM_TOLERANCE)) {
+      throw new IllegalArgumentException(
+        String.format(
+          "Option --simplify must be in the range [0, %s]: %s",
+          Double.valueOf(SigilGlyphCache.MAXIMUM_TOLERANCE),
+          value));
+    }
+    return tolerance;
+  }
+
+  static SigilBatchConfiguration parse(
+    final List<String> args)
+  {
+    final Map<String, String> options = parseOptions(args);
+    final int cores = Runtime.getRuntime().availableProcessors();
+
+    return new SigilBatchConfiguration(
+      Path.of(required(options, "--input")),
+      Path.of(required(options, "--output")),
+      integer(options, "--workers", cores),
+      textFunction(options),
+      function(
+        options,
+        "--font-function",
+        "random",
+        SigilFunctions.fontFunctionNames()),
+      Optional.ofNullable(options.get("--font")),
+      function(
+        options,
+        "--rotation-function",
+        "random45",
+        SigilFunctions.rotationFunctionNames()),
+      function(
+        options,
+        "--spread-function",
+        "random",
+        SigilFunctions.spreadFunctionNames()),
+      integer(options, "--spread", 250),
+      function(
+        options,
+        "--random-source",
+        "splittable",
+        SigilFunctions.randomSourceNames()),
+      seed(options),
+      function(
+        options,
+        "--renderer",
+        "stream",
+        SigilFunctions.rendererNames()),
+      integer(options, "--width", 640),
+      integer(options, "--height", 480),
+      cache(options),
+      shard(options),
+      optimize(options),
+      simplify(options)
+    );
+  }
+
+  private static void showUsage()
+  {
+    LOG.info("usage: sigiltron batch --input FILE --output DIRECTORY [options]");
+    LOG.info("  --workers N               The number of worker threads");
+    LOG.info("  --text-function NAMES     A comma-separated list of {}",
+             SigilFunctions.textFunctionNames());
+    LOG.info("  --font-function NAME      One of {}",
+             SigilFunctions.fontFunctionNames());
+    LOG.info("  --font FAMILY             The font used by the 'selected' font function");
+    LOG.info("  --rotation-function NAME  One of {}",
+             SigilFunctions.rotationFunctionNames());
+    LOG.info("  --spread-function NAME    One of {}",
+             SigilFunctions.spreadFunctionNames());
+    LOG.info("  --spread N                The spread value");
+    LOG.info("  --random-source NAME      One of {}",
+             SigilFunctions.randomSourceNames());
+    LOG.info("  --seed N                  The seed (random if not specified)");
+    LOG.info("  --renderer NAME           One of {}",
+             SigilFunctions.rendererNames());
+    LOG.info("  --width N                 The image width");
+    LOG.info("  --height N                The image height");
+    LOG.info("  --shard i/N               Process only shard i of N (requires --seed)");
+    LOG.info("  --cache DIRECTORY|none    The persistent sigil cache (default {})",
+             SigilDiskCache.defaultDirectory());
+    LOG.info("  --optimize N|none         Optimize batik or outlines output, keeping N decimal places (default none)");
+    LOG.info("  --simplify T              Simplify glyph outlines to within T/1000 em (default 0, no simplification)");
+  }
+
+  /**
+   * Main function.
+   *
+   * @param args Command line arguments.
+   */
+
+  public static void main(
+    final String[] args)
+  {
+    System.setProperty("java.awt.headless", "true");
+
+    final SigilBatchConfiguration configuration;
+    try {
+      configuration = parse(List.of(args));
+    } catch (final IllegalArgumentException e) {
+      LOG.error("{}", e.getMessage());
+      showUsage();
+      System.exit(1);
+      return;
+    }
+
+    try {
+      final SigilBatchResult result = new SigilBatch(configuration).run();
+      LOG.info(
+        "generated {} sigils ({} failed) in {} seconds: {} sigils/sec",
+        Long.valueOf(result.generated()),
+        Long.valueOf(result.failed()),
+        String.format("%.3f", Double.valueOf((double) result.nanos() / 1.0e9)),
+        String.format("%.2f", Double.valueOf(result.sigilsPerSecond())));
+      if (result.failed() > 0L) {
+        System.exit(1);
+      }
+    } catch (final IOException | IllegalArgumentException e) {
+      LOG.error("batch failed: ", e);
+      System.exit(1);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOG.error("batch interrupted");
+      System.exit(1);
+    }
+  }
+}
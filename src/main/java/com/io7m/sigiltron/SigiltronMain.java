@@ -16,8 +16,15 @@
 
 package com.io7m.sigiltron;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import javax.swing.JFrame;
 import javax.swing.SwingUtilities;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
 
 /**
  * Main program.
@@ -25,12 +32,29 @@ import javax.swing.SwingUtilities;
 
 public final class SigiltronMain
 {
+  private static final Logger LOG;
+
+  static {
+    LOG = LoggerFactory.getLogger(SigiltronMain.class);
+  }
+
   private SigiltronMain()
   {
     final SigiltronMainWindow win = new SigiltronMainWindow();
     win.setTitle(getVersion());
     win.pack();
     win.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+    win.addWindowListener(new WindowAdapter()
+    {
+      @Override
+      public void windowOpened(
+        final WindowEvent e)
+      {
+        LOG.info(
+          "window shown {} ms after startup",
+          Long.valueOf(ManagementFactory.getRuntimeMXBean().getUptime()));
+      }
+    });
     win.setVisible(true);
   }
 
@@ -53,6 +77,19 @@ public final class SigiltronMain
   public static void main(
     final String[] args)
   {
+    if (args.length > 0 && "batch".equals(args[0])) {
+      SigiltronBatchMain.main(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
+    if (args.length > 0 && "server".equals(args[0])) {
+      SigiltronServerMain.main(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
+    if (args.length > 0 && "sweep".equals(args[0])) {
+      SigiltronSweepMain.main(Arrays.copyOfRange(args, 1, args.length));
+      return;
+    }
+
     SwingUtilities.invokeLater(SigiltronMain::new);
   }
 }
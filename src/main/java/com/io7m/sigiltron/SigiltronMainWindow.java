@@ -17,46 +17,56 @@
 package com.io7m.sigiltron;
 
 import net.java.dev.designgridlayout.DesignGridLayout;
-import org.apache.batik.anim.dom.SVGDOMImplementation;
-import org.apache.batik.dom.util.DOMUtilities;
-import org.apache.batik.svggen.SVGGraphics2D;
 import org.apache.batik.swing.JSVGCanvas;
+import org.apache.batik.swing.gvt.GVTTreeRendererAdapter;
+import org.apache.batik.swing.gvt.GVTTreeRendererEvent;
+import org.apache.batik.swing.svg.GVTTreeBuilderAdapter;
+import org.apache.batik.swing.svg.GVTTreeBuilderEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.DOMImplementation;
 import org.w3c.dom.Element;
 import org.w3c.dom.svg.SVGDocument;
 
 import javax.swing.BorderFactory;
+import javax.swing.BoxLayout;
+import javax.swing.DefaultComboBoxModel;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
 import javax.swing.JFileChooser;
 import javax.swing.JFormattedTextField;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.filechooser.FileFilter;
 import java.awt.Color;
 import java.awt.Container;
 import java.awt.Dimension;
-import java.awt.Font;
-import java.awt.GraphicsEnvironment;
 import java.awt.HeadlessException;
-import java.awt.geom.AffineTransform;
+import java.awt.event.ActionListener;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.security.SecureRandom;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
-import java.util.WeakHashMap;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 final class SigiltronMainWindow extends JFrame
 {
@@ -68,121 +78,359 @@ final class SigiltronMainWindow extends JFrame
   }
 
   private final JSVGCanvas canvas;
-  private final Map<String, Font> font_cache;
   private final JComboBox<SigilFontFunctionType> font_function;
-  private final JComboBox<SigilTextFunctionType> function;
+  private final TextStageSelector function;
   private final JComboBox<SigilRotationFunctionType> rotation_function;
   private final JButton save;
   private final JFormattedTextField spread;
   private final JComboBox<SigilSpreadFunctionType> spread_function;
-  private final SecureRandom random;
+  private final SigilGenerator generator;
+  private List<String> font_families;
+  private final JComboBox<String> fonts;
+  private final JComboBox<SigilRandomSourceType> random_source;
+  private final JFormattedTextField seed;
+  private final JCheckBox seed_fixed;
+  private final JCheckBox compact;
+  private final JCheckBox outlines;
+  private final JLabel status;
+  private final JProgressBar progress;
+  private final ExecutorService executor;
+  private final Optional<SigilDiskCache> disk_cache;
+  private Future<?> pending;
+  private long generation;
+  private final SigilStatistics statistics;
+  private final SigilStatisticsStrip statistics_strip;
+  private Optional<SigilGeneratorRequest> displayed;
+  private SigilPreviewScheduler.Quality displayed_quality;
+  private String displayed_renderer;
+  private long displayed_id;
+  private long display_started;
+  private final SigilLayoutCache layouts;
+  private final SigilGlyphCache glyphs;
+  private final SigilSVGOptimizer optimizer;
+  private final SigilPreviewScheduler previews;
+  private long preview_id;
+  private long preview_started;
+  private boolean seed_updating;
 
   SigiltronMainWindow()
   {
     final Container c = this.getContentPane();
 
-    this.font_cache = new WeakHashMap<>();
-    this.random = new SecureRandom();
+    this.generator = new SigilGenerator();
+    this.executor = Executors.newVirtualThreadPerTaskExecutor();
+    this.pending = CompletableFuture.completedFuture(null);
+    this.generation = 0L;
+    this.displayed = Optional.empty();
+    this.displayed_quality = SigilPreviewScheduler.Quality.FULL;
+    this.displayed_renderer = "batik";
+    this.glyphs = new SigilGlyphCache();
+    this.optimizer =
+      new SigilSVGOptimizer(SigilSVGOptimizer.DEFAULT_PRECISION);
+    this.layouts = SigilLayoutCache.create();
+    this.disk_cache =
+      SigilDiskCache.openIfEnabled(
+        Optional.of(SigilDiskCache.defaultDirectory()));
 
-    this.canvas = new JSVGCanvas();
-    this.canvas.setPreferredSize(new Dimension(640, 480));
-    this.canvas.setBorder(BorderFactory.createLineBorder(Color.BLACK, 1));
+    this.status = new JLabel(" ");
+    this.progress = newProgressBar();
 
-    this.function = newTextFunctionSelector();
-    final JComboBox<String> fonts = newFontSelector();
+    this.canvas = newCanvas(this::onRenderAbandoned);
+    this.canvas.addGVTTreeRendererListener(new CanvasRenderRecorder());
+    this.statistics = new SigilStatistics(this.generator);
+    this.statistics_strip = new SigilStatisticsStrip(this.statistics);
+    this.statistics_strip.setVisible(false);
+
+    this.function = new TextStageSelector();
+    final Optional<SigilFontList> saved_fonts =
+      SigilFontListCache.load(SigilFontListCache.defaultFile());
+    this.font_families = saved_fonts.map(SigilFontList::families)
+      .orElseGet(SigilFonts::logicalFamilies);
+    this.fonts = newFontSelector(this.font_families);
     this.font_function =
-      newFontFunctionSelector(fonts);
+      newFontFunctionSelector();
     this.rotation_function =
       newRotationFunctionSelector();
     this.spread = newSpreadSelector();
     this.spread_function = newSpreadFunctionSelector();
+    this.random_source = newRandomSourceSelector();
+    this.seed = newSeedSelector();
+    this.seed_fixed = newSeedFixedSelector();
+    this.compact = newCompactSelector();
+    this.outlines = newOutlinesSelector();
 
-    this.save = new JButton("Save...");
-    this.save.setToolTipText("Save a sigil as an SVG image");
-    this.save.setEnabled(false);
-    this.save.addActionListener(e -> this.onWantSave(c));
+    this.save = this.newSaveButton(c);
 
     final JTextField input = new JTextField();
     final JButton input_now = new JButton("Generate");
     input_now.setToolTipText("Generate a sigil!");
-    input_now.addActionListener(e -> {
-      final String text = input.getText();
-      final List<Character> cs = new ArrayList<>(text.length());
-      for (int index = 0; index < text.length(); ++index) {
-        final char ch = text.charAt(index);
-        cs.add(Character.valueOf(ch));
-      }
+    input_now.addActionListener(e -> this.onWantGenerate(input.getText()));
+    this.previews =
+      new SigilPreviewScheduler(q -> this.preview(input.getText(), q));
 
-      final SigiltronMainWindow sw = SigiltronMainWindow.this;
-      final SigilTextFunctionType f =
-        (SigilTextFunctionType) sw.function.getSelectedItem();
-      final SigilFontFunctionType ff =
-        (SigilFontFunctionType) sw.font_function.getSelectedItem();
-      final SigilRotationFunctionType rf =
-        (SigilRotationFunctionType) sw.rotation_function.getSelectedItem();
-      final SigilSpreadFunctionType sf =
-        (SigilSpreadFunctionType) sw.spread_function.getSelectedItem();
-
-      assert ff != null;
-      assert rf != null;
-      assert sf != null;
-
-      sw.generateImage(f.process(cs), ff, rf, sf);
-      sw.save.setEnabled(true);
-    });
-
-    final JPanel controls;
-    {
-      controls = new JPanel();
-      final DesignGridLayout dg = new DesignGridLayout(controls);
-      dg.row().grid(new JLabel("Text function")).add(this.function);
-      dg.row().grid(new JLabel("Font function")).add(this.font_function);
-      dg
-        .row()
-        .grid(new JLabel("Rotation function"))
-        .add(this.rotation_function);
-      dg.row().grid(new JLabel("Font")).add(fonts);
-      dg.row().grid(new JLabel("Spread")).add(this.spread);
-      dg.row().grid(new JLabel("Spread function")).add(this.spread_function);
-      dg.row().grid(new JLabel("Intent")).add(input, 3).add(input_now);
-      dg.row().grid().add(this.save);
-    }
+    final JCheckBox statistics_toggle = new JCheckBox("Statistics");
+    statistics_toggle.setToolTipText("Show live performance statistics");
+    statistics_toggle.addActionListener(
+      e -> this.statistics_strip.setVisible(statistics_toggle.isSelected()));
 
     final DesignGridLayout dg = new DesignGridLayout(c);
     dg.row().grid().add(this.canvas);
-    dg.row().grid().add(controls);
+    dg.row().grid().add(
+      this.newControls(input, input_now, statistics_toggle, this.newLiveToggle(input)));
+    dg.row().grid().add(this.statistics_strip);
+
+    this.statistics.register();
+    this.statistics_strip.start();
+    this.executor.execute(() -> this.refreshFonts(saved_fonts));
+  }
+
+  private JButton newSaveButton(
+    final Container c)
+  {
+    final JButton button = new JButton("Save...");
+    button.setToolTipText("Save a sigil as an SVG image");
+    button.setEnabled(false);
+    button.addActionListener(e -> this.onWantSave(c));
+    return button;
+  }
+
+  private JPanel newControls(
+    final JTextField input,
+    final JButton input_now,
+    final JCheckBox statistics_toggle,
+    final JCheckBox live_toggle)
+  {
+    final JPanel controls = new JPanel();
+    final DesignGridLayout dg = new DesignGridLayout(controls);
+    dg.row().grid(new JLabel("Text functions")).add(this.function);
+    dg.row().grid(new JLabel("Font function")).add(this.font_function);
+    dg
+      .row()
+      .grid(new JLabel("Rotation function"))
+      .add(this.rotation_function);
+    dg.row().grid(new JLabel("Font")).add(this.fonts);
+    dg.row().grid(new JLabel("Spread")).add(this.spread);
+    dg.row().grid(new JLabel("Spread function")).add(this.spread_function);
+    dg.row().grid(new JLabel("Random source")).add(this.random_source);
+    dg.row().grid(new JLabel("Seed")).add(this.seed, 3).add(this.seed_fixed);
+    dg.row().grid(new JLabel("Intent")).add(input, 3).add(input_now);
+    dg.row()
+      .grid()
+      .add(this.save)
+      .add(this.newSweepButton(input))
+      .add(this.compact)
+      .add(this.outlines)
+      .add(live_toggle)
+      .add(statistics_toggle);
+    dg.row().grid().add(this.status, 3).add(this.progress);
+    return controls;
+  }
+
+  /**
+   * Create the checkbox that enables live previews, and arrange for every
+   * change to the intent or to the generation parameters to be reported to
+   * the preview scheduler.
+   */
 
+  private JCheckBox newLiveToggle(
+    final JTextField input)
+  {
+    final JCheckBox live = new JCheckBox("Live");
+    live.setToolTipText(
+      "Regenerate the sigil as the intent and settings change, keeping the current seed");
+    live.addActionListener(e -> this.previews.setEnabled(live.isSelected()));
+
+    final ActionListener changed = e -> this.previews.changed();
+    input.getDocument().addDocumentListener(new PreviewDocumentListener());
+    this.function.addActionListener(changed);
+    this.font_function.addActionListener(changed);
+    this.rotation_function.addActionListener(changed);
+    this.fonts.addActionListener(changed);
+    this.spread_function.addActionListener(changed);
+    this.random_source.addActionListener(changed);
+    this.compact.addActionListener(changed);
+    this.outlines.addActionListener(changed);
+    this.spread.addPropertyChangeListener("value", e -> this.previews.changed());
+    this.seed.addPropertyChangeListener("value", e -> this.onSeedChanged());
+    return live;
   }
 
-  private static Iterable<String> getFontList()
+  private void onSeedChanged()
   {
-    final GraphicsEnvironment ge =
-      GraphicsEnvironment.getLocalGraphicsEnvironment();
+    if (!this.seed_updating) {
+      this.previews.changed();
+    }
+  }
+
+  private JButton newSweepButton(
+    final JTextField input)
+  {
+    final JButton sweep = new JButton("Sweep...");
+    sweep.setToolTipText(
+      "Save a contact sheet of variants of the intent across seeds, spreads, and functions");
+    sweep.addActionListener(e -> this.onWantSweep(input.getText()));
+    return sweep;
+  }
 
-    final String[] fontnames = ge.getAvailableFontFamilyNames();
-    final Collection<String> rs = new ArrayList<>();
+  private static <T> List<T> itemsOf(
+    final JComboBox<T> box)
+  {
+    final List<T> items = new ArrayList<>(box.getItemCount());
+    for (int index = 0; index < box.getItemCount(); ++index) {
+      items.add(box.getItemAt(index));
+    }
+    return items;
+  }
 
-    for (final String name : fontnames) {
-      assert name != null;
+  /**
+   * Ask for a file, and then save a contact sheet of a sweep around the
+   * current settings to it in the background.
+   */
 
-      if (name.contains("'")) {
-        continue;
+  private void onWantSweep(
+    final String text)
+  {
+    final SigilSweepPlan plan;
+    final Path target;
+    try {
+      final JFileChooser dialog = new JFileChooser();
+      dialog.setMultiSelectionEnabled(false);
+      dialog.setFileFilter(
+        new SaveFileFilter("SVG or PNG images (*.svg, *.png)", ".svg", ".png"));
+      if (dialog.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+        return;
       }
+      target = dialog.getSelectedFile().toPath();
+      plan = SigilSweepPlan.around(
+        this.request(text, false),
+        itemsOf(this.rotation_function),
+        itemsOf(this.spread_function),
+        itemsOf(this.font_function));
+    } catch (final HeadlessException | IllegalArgumentException x) {
+      SigilErrorBox.showError(LOG, x);
+      return;
+    }
+
+    this.status.setText("Generating sweep...");
+    this.progress.setVisible(true);
+    this.executor.execute(() -> this.sweepInBackground(plan, target));
+  }
+
+  private void sweepInBackground(
+    final SigilSweepPlan plan,
+    final Path target)
+  {
+    try {
+      final SigilAtlas atlas =
+        SigilAtlas.generate(
+          this.generator,
+          plan.variants(),
+          SigilAtlas.DEFAULT_CELL_SIZE,
+          this.executor);
+      atlas.write(target);
+      SwingUtilities.invokeLater(() -> {
+        this.progress.setVisible(false);
+        this.status.setText(
+          String.format(
+            "Saved a sheet of %d variants to %s",
+            Integer.valueOf(atlas.variantCount()),
+            target.getFileName()));
+      });
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (final IOException | RuntimeException e) {
+      SwingUtilities.invokeLater(() -> {
+        this.progress.setVisible(false);
+        this.status.setText("Sweep failed");
+        SigilErrorBox.showError(LOG, e);
+      });
+    }
+  }
 
-      rs.add(name);
+  /**
+   * Check whether the installed fonts have changed since the font list was
+   * saved and, if they have (or if there was no saved list), enumerate the
+   * fonts and replace the contents of the font selector. This runs in the
+   * background so that the window can appear without waiting for font
+   * enumeration.
+   */
+
+  private void refreshFonts(
+    final Optional<SigilFontList> saved)
+  {
+    final long start = System.nanoTime();
+    final String fingerprint = SigilFontListCache.fingerprint();
+    if (saved.isPresent() && saved.get().fingerprint().equals(fingerprint)) {
+      LOG.debug(
+        "font list unchanged ({} families, checked in {} ms)",
+        Integer.valueOf(saved.get().families().size()),
+        Long.valueOf(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+      return;
     }
 
-    return rs;
+    final SigilFontList list =
+      new SigilFontList(fingerprint, SigilFonts.availableFamilies());
+    SigilFontListCache.save(SigilFontListCache.defaultFile(), list);
+    LOG.info(
+      "enumerated {} font families in {} ms",
+      Integer.valueOf(list.families().size()),
+      Long.valueOf(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    SwingUtilities.invokeLater(() -> this.setFontFamilies(list.families()));
+  }
+
+  private void setFontFamilies(
+    final List<String> families)
+  {
+    final Object selected = this.fonts.getSelectedItem();
+    this.font_families = families;
+    this.fonts.setModel(new DefaultComboBoxModel<>(families.toArray(new String[0])));
+    if (selected != null && families.contains(selected)) {
+      this.fonts.setSelectedItem(selected);
+    }
+  }
+
+  @Override
+  public void dispose()
+  {
+    this.statistics_strip.stop();
+    this.statistics.unregister();
+    this.executor.shutdownNow();
+    if (this.disk_cache.isPresent()) {
+      try {
+        this.disk_cache.get().close();
+      } catch (final IOException e) {
+        LOG.warn("could not close the sigil cache: {}", e.getMessage());
+      }
+    }
+    super.dispose();
   }
 
-  private static JComboBox<SigilFontFunctionType> newFontFunctionSelector(
-    final JComboBox<String> fonts)
+  private static JSVGCanvas newCanvas(
+    final Runnable on_build_abandoned)
+  {
+    final JSVGCanvas c = new JSVGCanvas();
+    c.setPreferredSize(new Dimension(640, 480));
+    c.setBorder(BorderFactory.createLineBorder(Color.BLACK, 1));
+    c.addGVTTreeBuilderListener(new CanvasBuildRecorder(on_build_abandoned));
+    return c;
+  }
+
+  private static JProgressBar newProgressBar()
+  {
+    final JProgressBar p = new JProgressBar();
+    p.setIndeterminate(true);
+    p.setVisible(false);
+    return p;
+  }
+
+  private static JComboBox<SigilFontFunctionType> newFontFunctionSelector()
   {
     final JComboBox<SigilFontFunctionType> ff =
       new JComboBox<>();
-    ff.addItem(new SigilFontFunctionSelected(fonts));
+    ff.addItem(new SigilFontFunctionSelected());
+    ff.addItem(new SigilFontFunctionRandomCovering());
     final SigilFontFunctionType default_item =
-      new SigilFontFunctionRandom(fonts);
+      new SigilFontFunctionRandom();
     ff.addItem(default_item);
     ff.setSelectedItem(default_item);
     ff
@@ -191,10 +439,35 @@ final class SigiltronMainWindow extends JFrame
     return ff;
   }
 
-  private static JComboBox<String> newFontSelector()
+  private static JCheckBox newSeedFixedSelector()
+  {
+    final JCheckBox f = new JCheckBox("Fixed");
+    f.setToolTipText(
+      "Reuse the given seed instead of picking a new seed for each sigil");
+    return f;
+  }
+
+  private static JCheckBox newCompactSelector()
+  {
+    final JCheckBox f = new JCheckBox("Compact");
+    f.setToolTipText(
+      "Draw the sigil as one merged outline per font, which is much faster for very long intents");
+    return f;
+  }
+
+  private static JCheckBox newOutlinesSelector()
+  {
+    final JCheckBox f = new JCheckBox("Outlines");
+    f.setToolTipText(
+      "Draw each glyph as an outline, so that saved sigils do not depend on the fonts installed where they are viewed");
+    return f;
+  }
+
+  private static JComboBox<String> newFontSelector(
+    final List<String> families)
   {
     final JComboBox<String> f = new JComboBox<>();
-    for (final String name : getFontList()) {
+    for (final String name : families) {
       f.addItem(name);
     }
     f
@@ -224,11 +497,14 @@ final class SigiltronMainWindow extends JFrame
   {
     final JComboBox<SigilSpreadFunctionType> sf =
       new JComboBox<>();
-    sf.addItem(new SigilSpreadFunctionExact());
-    final SigilSpreadFunctionType default_item =
-      new SigilSpreadFunctionRandom();
-    sf.addItem(default_item);
-    sf.setSelectedItem(default_item);
+    for (final String name : SigilFunctions.spreadFunctionNames()) {
+      final SigilSpreadFunctionType item =
+        SigilFunctions.spreadFunction(name).orElseThrow();
+      sf.addItem(item);
+      if ("random".equals(name)) {
+        sf.setSelectedItem(item);
+      }
+    }
     sf.setToolTipText("A function applied to the spread value");
     return sf;
   }
@@ -243,17 +519,26 @@ final class SigiltronMainWindow extends JFrame
     return s;
   }
 
-  private static JComboBox<SigilTextFunctionType> newTextFunctionSelector()
+  private static JComboBox<SigilRandomSourceType> newRandomSourceSelector()
   {
-    final JComboBox<SigilTextFunctionType> f =
+    final JComboBox<SigilRandomSourceType> rs =
       new JComboBox<>();
-    f.addItem(new SigilTextFunctionRemoveDuplicates());
-    final SigilTextFunctionType default_item =
-      new SigilTextFunctionIdentity();
-    f.addItem(default_item);
-    f.setSelectedItem(default_item);
-    f.setToolTipText("A function applied to the given intent");
-    return f;
+    final SigilRandomSourceType default_item =
+      new SigilRandomSourceSplittable();
+    rs.addItem(default_item);
+    rs.addItem(new SigilRandomSourceL64X128());
+    rs.setSelectedItem(default_item);
+    rs.setToolTipText("The source of random numbers used by the functions");
+    return rs;
+  }
+
+  private static JFormattedTextField newSeedSelector()
+  {
+    final JFormattedTextField s = new JFormattedTextField();
+    s.setValue(Long.valueOf(SigilSeeds.fresh()));
+    s.setToolTipText(
+      "The seed used for the random choices; the same seed and settings always produce the same sigil");
+    return s;
   }
 
   private void onWantSave(
@@ -262,93 +547,511 @@ final class SigiltronMainWindow extends JFrame
     try {
       final JFileChooser dialog = new JFileChooser();
       dialog.setMultiSelectionEnabled(false);
-      dialog.setFileFilter(new SaveFileFilter());
+      dialog.setFileFilter(new SaveFileFilter("SVG files (*.svg)", ".svg"));
 
       final int r = dialog.showSaveDialog(c);
       if (r == JFileChooser.APPROVE_OPTION) {
         final File f = dialog.getSelectedFile();
-
-        final SVGDocument d = this.canvas.getSVGDocument();
-        try (OutputStream stream = Files.newOutputStream(f.toPath())) {
-          try (OutputStreamWriter writer =
-                 new OutputStreamWriter(stream, StandardCharsets.UTF_8)) {
-            final Package p = this.getClass().getPackage();
-            writer.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
-            final String p_impl = p.getImplementationTitle();
-            final String p_vers = p.getImplementationVersion();
-            writer.append(String.format("<!-- %s %s -->", p_impl, p_vers));
-            writer.append(System.lineSeparator());
-            DOMUtilities.writeDocument(d, writer);
-            writer.flush();
-          }
-        }
+        this.saveTo(f.toPath());
       }
     } catch (final HeadlessException | IOException x) {
       SigilErrorBox.showError(LOG, x);
     }
   }
 
+  /**
+   * Save the displayed sigil, copying it from the sigil cache if it has
+   * been saved before, and adding it to the cache otherwise. Saved sigils
+   * are passed through the {@link SigilSVGOptimizer} first.
+   */
+
+  private void saveTo(
+    final Path target)
+    throws IOException
+  {
+    if (this.disk_cache.isPresent() && this.displayed.isPresent()) {
+      final SigilDiskCache disk = this.disk_cache.get();
+      final byte[] key = SigilDiskCache.keyOf(
+        this.displayed.get(), this.displayed_renderer + "-optimized");
+      final Optional<Path> cached = disk.find(key);
+      if (cached.isPresent()) {
+        Files.copy(cached.get(), target, StandardCopyOption.REPLACE_EXISTING);
+        return;
+      }
+      this.writeDisplayed(target);
+      disk.store(key, target);
+      return;
+    }
+
+    this.writeDisplayed(target);
+  }
+
+  private void writeDisplayed(
+    final Path target)
+    throws IOException
+  {
+    final SVGDocument d;
+    if (this.displayed_quality == SigilPreviewScheduler.Quality.FAST
+      && this.displayed.isPresent()) {
+      d = this.document(this.displayed.get(), this.displayed_renderer);
+    } else {
+      d = this.canvas.getSVGDocument();
+    }
+    try (OutputStream stream = Files.newOutputStream(target)) {
+      final SigilSVGOptimization result =
+        SigilDocuments.writeOptimized(d, this.optimizer, stream);
+      this.status.setText(
+        String.format(
+          "Saved %d bytes (%d bytes before optimization, %.1f%%)",
+          Long.valueOf(result.sizeAfter()),
+          Long.valueOf(result.sizeBefore()),
+          Double.valueOf(result.percentage())));
+    }
+  }
+
+  /**
+   * Take a snapshot of the current state of the user interface, so that
+   * generation does not need to touch any Swing components. A fresh seed is
+   * picked first if requested and the seed is not fixed.
+   */
+
+  private SigilGeneratorRequest request(
+    final String text,
+    final boolean fresh_seed)
+  {
+    final SigilTextFunctionType f = this.function.textFunction();
+    final SigilFontFunctionType ff =
+      (SigilFontFunctionType) this.font_function.getSelectedItem();
+    final SigilRotationFunctionType rf =
+      (SigilRotationFunctionType) this.rotation_function.getSelectedItem();
+    final SigilSpreadFunctionType sf =
+      (SigilSpreadFunctionType) this.spread_function.getSelectedItem();
+    final SigilRandomSourceType rs =
+      (SigilRandomSourceType) this.random_source.getSelectedItem();
+
+    if (fresh_seed && !this.seed_fixed.isSelected()) {
+      this.seed_updating = true;
+      try {
+        this.seed.setValue(Long.valueOf(SigilSeeds.fresh()));
+      } finally {
+        this.seed_updating = false;
+      }
+    }
+
+    assert f != null;
+    assert ff != null;
+    assert rf != null;
+    assert sf != null;
+    assert rs != null;
+
+    return new SigilGeneratorRequest(
+      text,
+      new SigilFontSet(
+        this.font_families,
+        Math.max(0, this.fonts.getSelectedIndex())),
+      f,
+      ff,
+      rf,
+      sf,
+      ((Integer) this.spread.getValue()).intValue(),
+      rs,
+      ((Number) this.seed.getValue()).longValue(),
+      this.canvas.getWidth(),
+      this.canvas.getHeight());
+  }
+
+  private void onWantGenerate(
+    final String text)
+  {
+    this.previews.abandoned();
+    this.preview_id = 0L;
+    this.status.setText("Generating...");
+    this.progress.setVisible(true);
+    this.generateImage(
+      this.request(text, true), SigilPreviewScheduler.Quality.FULL);
+  }
+
+  /**
+   * Start a live preview. Previews keep the current seed, so that editing
+   * the intent leaves the glyphs before the first changed character where
+   * they were, and they do not touch the progress indicator, which would
+   * otherwise flicker on every keystroke.
+   */
+
+  private void preview(
+    final String text,
+    final SigilPreviewScheduler.Quality quality)
+  {
+    this.preview_started = System.nanoTime();
+    this.generateImage(this.request(text, false), quality);
+    this.preview_id = this.generation;
+  }
+
+  /**
+   * Start generating a sigil on a background thread, cancelling any
+   * generation that is still in progress. Each generation is numbered, and
+   * the result of a generation is only displayed if no newer generation has
+   * been started in the meantime.
+   */
+
   private void generateImage(
-    final Iterable<Character> cs,
-    final SigilFontFunctionType ff,
-    final SigilRotationFunctionType rf,
-    final SigilSpreadFunctionType sf)
+    final SigilGeneratorRequest request,
+    final SigilPreviewScheduler.Quality quality)
+  {
+    this.pending.cancel(true);
+    ++this.generation;
+
+    final long id = this.generation;
+    final String renderer = this.rendererName();
+    this.pending = this.executor.submit(
+      () -> this.generateInBackground(id, request, quality, renderer));
+  }
+
+  /**
+   * @return The name of the renderer selected in the user interface. Merged
+   * paths are outlines already, so the compact setting takes precedence.
+   */
+
+  private String rendererName()
   {
-    final DOMImplementation impl =
-      SVGDOMImplementation.getDOMImplementation();
-    final String svg_ns = SVGDOMImplementation.SVG_NAMESPACE_URI;
-    final SVGDocument doc =
-      (SVGDocument) impl.createDocument(svg_ns, "svg", null);
+    if (this.compact.isSelected()) {
+      return "batik-paths";
+    }
+    return this.outlines.isSelected() ? "batik-outlines" : "batik";
+  }
+
+  /**
+   * Generate a sigil as a document for the canvas. The renderer is named as
+   * it is in the keys of the sigil cache.
+   */
+
+  private SVGDocument document(
+    final SigilGeneratorRequest request,
+    final String renderer)
+  {
+    return switch (renderer) {
+      case "batik-paths" ->
+        this.generator.generatePaths(request, this.layouts, this.glyphs);
+      case "batik-outlines" ->
+        this.generator.generateOutlines(request, this.layouts, this.glyphs);
+      default -> this.generator.generate(request, this.layouts);
+    };
+  }
+
+  private void generateInBackground(
+    final long id,
+    final SigilGeneratorRequest request,
+    final SigilPreviewScheduler.Quality quality,
+    final String renderer)
+  {
+    final long time_then = System.nanoTime();
+    try {
+      final SVGDocument document = this.document(request, renderer);
+      if (quality == SigilPreviewScheduler.Quality.FAST) {
+        final Element root = document.getDocumentElement();
+        root.setAttributeNS(null, "text-rendering", "optimizeSpeed");
+        root.setAttributeNS(null, "shape-rendering", "optimizeSpeed");
+      }
+      final long time_now = System.nanoTime();
+      final int elements = document.getElementsByTagName("*").getLength();
+      SwingUtilities.invokeLater(() -> {
+        this.statistics.setDocumentElements(elements);
+        this.onGenerated(
+          id, request, quality, renderer, document, time_now - time_then);
+      });
+    } catch (final CancellationException e) {
+      LOG.debug("generation {} cancelled: {}", Long.valueOf(id), e.getMessage());
+    } catch (final RuntimeException e) {
+      SwingUtilities.invokeLater(() -> this.onGenerationFailed(id, e));
+    }
+  }
 
-    final SVGGraphics2D g = new SVGGraphics2D(doc);
+  private void onGenerated(
+    final long id,
+    final SigilGeneratorRequest request,
+    final SigilPreviewScheduler.Quality quality,
+    final String renderer,
+    final SVGDocument document,
+    final long nanos)
+  {
+    if (id != this.generation) {
+      return;
+    }
 
-    final int center_x = this.canvas.getWidth() / 2;
-    final int center_y = this.canvas.getHeight() / 2;
+    this.display_started = System.nanoTime();
+    this.canvas.setSVGDocument(document);
+    this.displayed = Optional.of(request);
+    this.displayed_quality = quality;
+    this.displayed_renderer = renderer;
+    this.displayed_id = id;
+    this.progress.setVisible(false);
+    this.save.setEnabled(true);
 
-    g.transform(new AffineTransform());
-    g.translate(center_x, center_y);
+    final Double millis = Double.valueOf((double) nanos / 1.0e6);
+    if (id != this.preview_id) {
+      this.status.setText(String.format("Generated in %.1f ms", millis));
+    } else if (quality == SigilPreviewScheduler.Quality.FAST) {
+      this.status.setText(
+        String.format("Previewed in %.1f ms (fast, over the frame budget)", millis));
+    } else {
+      this.status.setText(String.format("Previewed in %.1f ms", millis));
+    }
+  }
 
-    for (final Character c : cs) {
-      assert c != null;
+  private void onGenerationFailed(
+    final long id,
+    final RuntimeException e)
+  {
+    if (id == this.preview_id) {
+      this.previews.abandoned();
+      this.preview_id = 0L;
+    }
+    if (id != this.generation) {
+      return;
+    }
 
-      final int font_size = this.random.nextInt(100) + 100;
-      final String font_name = ff.getFont(c, font_size);
+    this.progress.setVisible(false);
+    this.status.setText("Generation failed");
+    SigilErrorBox.showError(LOG, e);
+  }
 
-      final Font font =
-        this.font_cache.computeIfAbsent(font_name, Font::decode);
+  private void onRendered()
+  {
+    if (this.display_started != 0L) {
+      this.statistics.recordRender(System.nanoTime() - this.display_started);
+      this.display_started = 0L;
+    }
 
-      this.font_cache.put(font_name, font);
+    final BufferedImage image = this.canvas.getOffScreen();
+    if (image != null) {
+      final DataBuffer data = image.getRaster().getDataBuffer();
+      this.statistics.setCanvasImageBytes(
+        (long) data.getSize()
+          * (long) data.getNumBanks()
+          * (long) (DataBuffer.getDataTypeSize(data.getDataType()) / 8));
+    }
 
-      g.setFont(font);
-      g.rotate(rf.getRotation(c).doubleValue());
-      g.drawString("" + c, 0,
-                   sf.getSpread(((Integer) this.spread.getValue()).intValue()).intValue());
+    if (this.preview_id != 0L && this.preview_id == this.displayed_id) {
+      this.previews.completed(System.nanoTime() - this.preview_started);
+      this.preview_id = 0L;
     }
+  }
 
-    final Element root = doc.getDocumentElement();
-    g.getRoot(root);
+  /**
+   * The canvas gave up building or rendering the displayed document, so a
+   * preview in flight will never complete.
+   */
 
-    this.canvas.setSVGDocument(doc);
+  private void onRenderAbandoned()
+  {
+    if (this.preview_id != 0L && this.preview_id == this.displayed_id) {
+      this.previews.abandoned();
+      this.preview_id = 0L;
+    }
   }
 
-  private static final class SaveFileFilter extends FileFilter
+  /**
+   * Record the time from handing a document to the canvas until the canvas
+   * has finished rendering it. Batik delivers these notifications on the
+   * event dispatch thread.
+   */
+
+  private final class CanvasRenderRecorder extends GVTTreeRendererAdapter
+  {
+    CanvasRenderRecorder()
+    {
+
+    }
+
+    @Override
+    public void gvtRenderingCompleted(
+      final GVTTreeRendererEvent e)
+    {
+      SigiltronMainWindow.this.onRendered();
+    }
+
+    @Override
+    public void gvtRenderingCancelled(
+      final GVTTreeRendererEvent e)
+    {
+      SigiltronMainWindow.this.onRenderAbandoned();
+    }
+
+    @Override
+    public void gvtRenderingFailed(
+      final GVTTreeRendererEvent e)
+    {
+      SigiltronMainWindow.this.onRenderAbandoned();
+    }
+  }
+
+  /**
+   * Report every edit of the intent to the preview scheduler.
+   */
+
+  private final class PreviewDocumentListener implements DocumentListener
+  {
+    PreviewDocumentListener()
+    {
+
+    }
+
+    @Override
+    public void insertUpdate(
+      final DocumentEvent e)
+    {
+      SigiltronMainWindow.this.previews.changed();
+    }
+
+    @Override
+    public void removeUpdate(
+      final DocumentEvent e)
+    {
+      SigiltronMainWindow.this.previews.changed();
+    }
+
+    @Override
+    public void changedUpdate(
+      final DocumentEvent e)
+    {
+      SigiltronMainWindow.this.previews.changed();
+    }
+  }
+
+  /**
+   * A set of checkboxes that select the text stages. The stages are always
+   * applied in declaration order, which is the order that gives the most
+   * useful results (whitespace and case are normalized before duplicates
+   * are removed).
+   */
+
+  private static final class TextStageSelector extends JPanel
+  {
+    private final List<JCheckBox> boxes;
+
+    TextStageSelector()
+    {
+      this.boxes = new ArrayList<>(SigilTextStage.values().length);
+      this.setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
+      this.setToolTipText("Functions applied to the given intent");
+      for (final SigilTextStage stage : SigilTextStage.values()) {
+        final JCheckBox box = new JCheckBox(stage.label());
+        this.boxes.add(box);
+        this.add(box);
+      }
+    }
+
+    void addActionListener(
+      final ActionListener listener)
+    {
+      for (final JCheckBox box : this.boxes) {
+        box.addActionListener(listener);
+      }
+    }
+
+    SigilTextFunctionType textFunction()
+    {
+      final List<SigilTextStage> stages = new ArrayList<>(this.boxes.size());
+      final SigilTextStage[] all = SigilTextStage.values();
+      for (int index = 0; index < all.length; ++index) {
+        if (this.boxes.get(index).isSelected()) {
+          stages.add(all[index]);
+        }
+      }
+      if (stages.isEmpty()) {
+        return new SigilTextFunctionIdentity();
+      }
+      return new SigilTextFunctionPipeline(stages);
+    }
+  }
+
+  /**
+   * Record the time the canvas spends building GVT trees as flight recorder
+   * events, and report trees that were never built. Batik delivers these
+   * notifications on the event dispatch thread.
+   */
+
+  private static final class CanvasBuildRecorder extends GVTTreeBuilderAdapter
   {
-    SaveFileFilter()
+    private final Runnable on_abandoned;
+    private SigilEventCanvasBuild event;
+
+    CanvasBuildRecorder(
+      final Runnable in_on_abandoned)
+    {
+      this.on_abandoned =
+        Objects.requireNonNull(in_on_abandoned, "On abandoned");
+    }
+
+    @Override
+    public void gvtBuildStarted(
+      final GVTTreeBuilderEvent e)
+    {
+      this.event = new SigilEventCanvasBuild();
+      this.event.begin();
+    }
+
+    @Override
+    public void gvtBuildCompleted(
+      final GVTTreeBuilderEvent e)
+    {
+      this.finish("completed");
+    }
+
+    @Override
+    public void gvtBuildCancelled(
+      final GVTTreeBuilderEvent e)
+    {
+      this.finish("cancelled");
+      this.on_abandoned.run();
+    }
+
+    @Override
+    public void gvtBuildFailed(
+      final GVTTreeBuilderEvent e)
     {
+      this.finish("failed");
+      this.on_abandoned.run();
+    }
+
+    private void finish(
+      final String outcome)
+    {
+      if (this.event != null) {
+        this.event.finish(outcome);
+        this.event = null;
+      }
+    }
+  }
 
+  private static final class SaveFileFilter extends FileFilter
+  {
+    private final String description;
+    private final List<String> suffixes;
+
+    SaveFileFilter(
+      final String in_description,
+      final String... in_suffixes)
+    {
+      this.description = Objects.requireNonNull(in_description, "Description");
+      this.suffixes = List.of(in_suffixes);
     }
 
     @Override
     public boolean accept(final File f)
     {
       final File fn = Objects.requireNonNull(f, "File");
-      return fn.isDirectory() || fn.getName().endsWith(".svg");
+      if (fn.isDirectory()) {
+        return true;
+      }
+      final String name = fn.getName();
+      return this.suffixes.stream().anyMatch(name::endsWith);
     }
 
     @Override
     public String getDescription()
     {
-      return "SVG files (*.svg)";
+      return this.description;
     }
   }
 }
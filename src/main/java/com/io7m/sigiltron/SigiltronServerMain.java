@@ -0,0 +1,160 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * HTTP sigil server program.
+ */
+
+public final class SigiltronServerMain
+{
+  private static final Logger LOG;
+  private static final Set<String> OPTIONS;
+
+  static {
+    LOG = LoggerFactory.getLogger(SigiltronServerMain.class);
+    OPTIONS = Set.of(
+      "--address",
+      "--port",
+      "--cache-size",
+      "--cache"
+    );
+  }
+
+  private SigiltronServerMain()
+  {
+
+  }
+
+  private static Map<String, String> parseOptions(
+    final List<String> args)
+  {
+    final Map<String, String> options = new HashMap<>(args.size());
+    for (int index = 0; index < args.size(); index += 2) {
+      final String name = args.get(index);
+      if (!OPTIONS.contains(name)) {
+        throw new IllegalArgumentException(
+          String.format("Unrecognized option: %s", name));
+      }
+      if (index + 1 >= args.size()) {
+        throw new IllegalArgumentException(
+          String.format("Option %s requires a value", name));
+      }
+      options.put(name, args.get(index + 1));
+    }
+    return options;
+  }
+
+  private static long number(
+    final Map<String, String> options,
+    final String name,
+    final long default_value)
+  {
+    final String value = options.get(name);
+    if (value == null) {
+      return default_value;
+    }
+
+    try {
+      return Long.parseLong(value);
+    } catch (final NumberFormatException e) {
+      throw new IllegalArgumentException(
+        String.format("Option %s requires an integer value: %s", name, value),
+        e);
+    }
+  }
+
+  private static Optional<Path> cache(
+    final Map<String, String> options)
+  {
+    final String value = options.get("--cache");
+    if (value == null) {
+      return Optional.of(SigilDiskCache.defaultDirectory());
+    }
+    if ("none".equals(value)) {
+      return Optional.empty();
+    }
+    return Optional.of(Path.of(value));
+  }
+
+  static SigilServerConfiguration parse(
+    final List<String> args)
+  {
+    final Map<String, String> options = parseOptions(args);
+    return new SigilServerConfiguration(
+      options.getOrDefault("--address", "127.0.0.1"),
+      Math.toIntExact(number(options, "--port", 8080L)),
+      number(options, "--cache-size", 64L * 1024L * 1024L),
+      cache(options)
+    );
+  }
+
+  private static void showUsage()
+  {
+    LOG.info("usage: sigiltron server [options]");
+    LOG.info("  --address ADDRESS         The address on which to listen (default 127.0.0.1)");
+    LOG.info("  --port N                  The port on which to listen (default 8080)");
+    LOG.info("  --cache-size BYTES        The size of the response cache (default 64MiB)");
+    LOG.info("  --cache DIRECTORY|none    The persistent sigil cache (default {})",
+             SigilDiskCache.defaultDirectory());
+  }
+
+  /**
+   * Main function.
+   *
+   * @param args Command line arguments.
+   */
+
+  public static void main(
+    final String[] args)
+  {
+    System.setProperty("java.awt.headless", "true");
+
+    final SigilServerConfiguration configuration;
+    try {
+      configuration = parse(List.of(args));
+    } catch (final IllegalArgumentException | ArithmeticException e) {
+      LOG.error("{}", e.getMessage());
+      showUsage();
+      System.exit(1);
+      return;
+    }
+
+    try {
+      final SigilServer server = SigilServer.start(configuration);
+      Runtime.getRuntime().addShutdownHook(
+        Thread.ofPlatform().unstarted(server::close));
+      LOG.info("listening on http://{}:{}/sigil",
+               server.address().getHostString(),
+               Integer.valueOf(server.address().getPort()));
+    } catch (final IOException e) {
+      LOG.error("server failed: ", e);
+      System.exit(1);
+    }
+  }
+}
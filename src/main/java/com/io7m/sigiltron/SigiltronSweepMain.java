@@ -0,0 +1,345 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Parameter sweep program: generates every combination of the given seeds,
+ * spread values, and functions for a single intent, and writes them to one
+ * contact sheet.
+ */
+
+public final class SigiltronSweepMain
+{
+  private static final Logger LOG;
+  private static final Set<String> OPTIONS;
+
+  static {
+    LOG = LoggerFactory.getLogger(SigiltronSweepMain.class);
+    OPTIONS = Set.of(
+      "--text",
+      "--output",
+      "--workers",
+      "--cell-size",
+      "--text-function",
+      "--font",
+      "--random-source",
+      "--seed",
+      "--seeds",
+      "--seed-count",
+      "--spreads",
+      "--rotation-functions",
+      "--spread-functions",
+      "--font-functions"
+    );
+  }
+
+  private SigiltronSweepMain()
+  {
+
+  }
+
+  private static Map<String, String> parseOptions(
+    final List<String> args)
+  {
+    final Map<String, String> options = new HashMap<>(args.size());
+    for (int index = 0; index < args.size(); index += 2) {
+      final String name = args.get(index);
+      if (!OPTIONS.contains(name)) {
+        throw new IllegalArgumentException(
+          String.format("Unrecognized option: %s", name));
+      }
+      if (index + 1 >= args.size()) {
+        throw new IllegalArgumentException(
+          String.format("Option %s requires a value", name));
+      }
+      options.put(name, args.get(index + 1));
+    }
+    return options;
+  }
+
+  private static String required(
+    final Map<String, String> options,
+    final String name)
+  {
+    final String value = options.get(name);
+    if (value == null) {
+      throw new IllegalArgumentException(
+        String.format("Option %s is required", name));
+    }
+    return value;
+  }
+
+  private static long number(
+    final String name,
+    final String value)
+  {
+    try {
+      return Long.parseLong(value.trim());
+    } catch (final NumberFormatException e) {
+      throw new IllegalArgumentException(
+        String.format("Option %s requires integer values: %s", name, value),
+        e);
+    }
+  }
+
+  private static int integer(
+    final Map<String, String> options,
+    final String name,
+    final int default_value)
+  {
+    final String value = options.get(name);
+    if (value == null) {
+      return default_value;
+    }
+    return Math.toIntExact(number(name, value));
+  }
+
+  /**
+   * Parse a comma-separated list of values.
+   */
+
+  private static <T> List<T> list(
+    final Map<String, String> options,
+    final String name,
+    final String default_value,
+    final Function<String, Optional<T>> parser)
+  {
+    final String value = options.getOrDefault(name, default_value);
+    final List<T> results = new ArrayList<>(8);
+    for (final String element : value.split(",", -1)) {
+      final Optional<T> result = parser.apply(element.trim());
+      if (result.isEmpty()) {
+        throw new IllegalArgumentException(
+          String.format("Unrecognized value for %s: %s", name, element));
+      }
+      results.add(result.get());
+    }
+    return results;
+  }
+
+  /**
+   * Parse a comma-separated list of integers.
+   */
+
+  private static List<Long> numbers(
+    final String name,
+    final String value)
+  {
+    final List<Long> results = new ArrayList<>(8);
+    for (final String element : value.split(",", -1)) {
+      results.add(Long.valueOf(number(name, element)));
+    }
+    return results;
+  }
+
+  private static List<Integer> spreads(
+    final Map<String, String> options)
+  {
+    final List<Integer> spreads = new ArrayList<>(8);
+    for (final Long spread : numbers("--spreads", options.getOrDefault("--spreads", "250"))) {
+      spreads.add(Integer.valueOf(Math.toIntExact(spread.longValue())));
+    }
+    return spreads;
+  }
+
+  /**
+   * The seeds are either listed explicitly, or derived from a base seed
+   * (which is random if not specified) in the same way that the seeds of
+   * the lines of a batch run are derived.
+   */
+
+  private static List<Long> seeds(
+    final Map<String, String> options)
+  {
+    final String listed = options.get("--seeds");
+    if (listed != null) {
+      if (options.containsKey("--seed-count")) {
+        throw new IllegalArgumentException(
+          String.format("Options --seeds %s and --seed-count cannot be combined", listed));
+      }
+      return numbers("--seeds", listed);
+    }
+
+    final String base_value = options.get("--seed");
+    final long base =
+      base_value == null ? SigilSeeds.fresh() : number("--seed", base_value);
+    final int count = integer(options, "--seed-count", 4);
+    if (count < 1) {
+      throw new IllegalArgumentException(
+        String.format("Seed count %d must be positive", Integer.valueOf(count)));
+    }
+
+    final List<Long> seeds = new ArrayList<>(count);
+    for (int index = 0; index < count; ++index) {
+      seeds.add(Long.valueOf(SigilSeeds.derive(base, index)));
+    }
+    return seeds;
+  }
+
+  static SigilSweepPlan parse(
+    final Map<String, String> options,
+    final List<String> families)
+  {
+    final String text_function =
+      options.getOrDefault("--text-function", "identity");
+    final String random_source =
+      options.getOrDefault("--random-source", "splittable");
+
+    final SigilGeneratorRequest base =
+      new SigilGeneratorRequest(
+        required(options, "--text"),
+        SigilFontSet.selecting(families, Optional.ofNullable(options.get("--font"))),
+        SigilFunctions.textFunction(text_function)
+          .orElseThrow(() -> new IllegalArgumentException(
+            String.format("Unrecognized value for --text-function: %s", text_function))),
+        new SigilFontFunctionRandom(),
+        new SigilRotationFunctionRandom45(),
+        new SigilSpreadFunctionRandom(),
+        250,
+        SigilFunctions.randomSource(random_source)
+          .orElseThrow(() -> new IllegalArgumentException(
+            String.format("Unrecognized value for --random-source: %s", random_source))),
+        0L,
+        640,
+        480);
+
+    return new SigilSweepPlan(
+      base,
+      seeds(options),
+      spreads(options),
+      list(
+        options,
+        "--rotation-functions",
+        "random45",
+        SigilFunctions::rotationFunction),
+      list(
+        options,
+        "--spread-functions",
+        "random",
+        SigilFunctions::spreadFunction),
+      list(
+        options,
+        "--font-functions",
+        "random",
+        SigilFunctions::fontFunction)
+    );
+  }
+
+  private static void showUsage()
+  {
+    LOG.info("usage: sigiltron sweep --text INTENT --output FILE.svg|FILE.png [options]");
+    LOG.info("  --workers N                  The number of worker threads");
+    LOG.info("  --cell-size N                The size of the largest sigil on the sheet (default {})",
+             Integer.valueOf(SigilAtlas.DEFAULT_CELL_SIZE));
+    LOG.info("  --text-function NAMES        A comma-separated list of {}",
+             SigilFunctions.textFunctionNames());
+    LOG.info("  --font FAMILY                The font used by the 'selected' font function");
+    LOG.info("  --random-source NAME         One of {}",
+             SigilFunctions.randomSourceNames());
+    LOG.info("  --seeds N,...                The seeds");
+    LOG.info("  --seed-count N               The number of seeds derived from --seed (default 4)");
+    LOG.info("  --seed N                     The seed from which seeds are derived (random if not specified)");
+    LOG.info("  --spreads N,...              The spread values (default 250)");
+    LOG.info("  --rotation-functions NAMES   A comma-separated list of {}",
+             SigilFunctions.rotationFunctionNames());
+    LOG.info("  --spread-functions NAMES     A comma-separated list of {}",
+             SigilFunctions.spreadFunctionNames());
+    LOG.info("  --font-functions NAMES       A comma-separated list of {}",
+             SigilFunctions.fontFunctionNames());
+    LOG.info("At most {} variants may be generated.",
+             Integer.valueOf(SigilAtlas.MAXIMUM_VARIANTS));
+  }
+
+  /**
+   * Main function.
+   *
+   * @param args Command line arguments.
+   */
+
+  public static void main(
+    final String[] args)
+  {
+    System.setProperty("java.awt.headless", "true");
+
+    final SigilSweepPlan plan;
+    final Path output;
+    final int workers;
+    final int cell_size;
+    try {
+      final Map<String, String> options = parseOptions(List.of(args));
+      output = Path.of(required(options, "--output"));
+      workers = integer(
+        options, "--workers", Runtime.getRuntime().availableProcessors());
+      cell_size = integer(options, "--cell-size", SigilAtlas.DEFAULT_CELL_SIZE);
+      if (workers < 1) {
+        throw new IllegalArgumentException(
+          String.format("Worker count %d must be positive", Integer.valueOf(workers)));
+      }
+      plan = parse(options, SigilFonts.availableFamilies());
+    } catch (final IllegalArgumentException | ArithmeticException e) {
+      LOG.error("{}", e.getMessage());
+      showUsage();
+      System.exit(1);
+      return;
+    }
+
+    final ExecutorService executor = Executors.newFixedThreadPool(workers);
+    try {
+      final long time_then = System.nanoTime();
+      final SigilAtlas atlas =
+        SigilAtlas.generate(
+          new SigilGenerator(),
+          plan.variants(),
+          cell_size,
+          executor);
+      atlas.write(output);
+      final long time_now = System.nanoTime();
+
+      LOG.info(
+        "wrote {} variants ({} distinct glyphs) to a {}x{} sheet in {} seconds",
+        Integer.valueOf(atlas.variantCount()),
+        Integer.valueOf(atlas.symbolCount()),
+        Integer.valueOf(atlas.width()),
+        Integer.valueOf(atlas.height()),
+        String.format("%.3f", Double.valueOf((double) (time_now - time_then) / 1.0e9)));
+    } catch (final IOException | IllegalArgumentException e) {
+      LOG.error("sweep failed: ", e);
+      System.exit(1);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOG.error("sweep interrupted");
+      System.exit(1);
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
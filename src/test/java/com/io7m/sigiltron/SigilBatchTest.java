@@ -0,0 +1,188 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for sharded batch runs and their journals.
+ */
+
+public final class SigilBatchTest
+{
+  private static final int LINES = 24;
+  private static final long SEED = 0x5eedL;
+
+  private static SigilBatchConfiguration configuration(
+    final Path input,
+    final Path output,
+    final SigilShard shard)
+  {
+    return new SigilBatchConfiguration(
+      input,
+      output,
+      2,
+      "identity",
+      "random",
+      Optional.empty(),
+      "random45",
+      "random",
+      250,
+      "splittable",
+      SEED,
+      "stream",
+      320,
+      240,
+      Optional.empty(),
+      shard,
+      OptionalInt.empty(),
+      0.0);
+  }
+
+  private static Path input(
+    final Path directory)
+    throws IOException
+  {
+    final List<String> lines = new ArrayList<>(LINES);
+    for (int index = 0; index < LINES; ++index) {
+      lines.add(index == 7 ? "" : "intent number " + index);
+    }
+    final Path file = directory.resolve("input.txt");
+    Files.write(file, lines, StandardCharsets.UTF_8);
+    return file;
+  }
+
+  private static SortedMap<String, byte[]> sigils(
+    final Path directory)
+    throws IOException
+  {
+    final SortedMap<String, byte[]> files = new TreeMap<>();
+    try (Stream<Path> stream = Files.list(directory)) {
+      for (final Path file : (Iterable<Path>) stream::iterator) {
+        final String name = file.getFileName().toString();
+        if (name.endsWith(".svg")) {
+          files.put(name, Files.readAllBytes(file));
+        }
+      }
+    }
+    return files;
+  }
+
+  /**
+   * The union of the outputs of the shards of a run is identical to the
+   * output of the same run as a single shard.
+   *
+   * @param directory A temporary directory
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testShardsMatchSingleRun(
+    final @TempDir Path directory)
+    throws Exception
+  {
+    final Path input = input(directory);
+    final Path single = directory.resolve("single");
+    final Path sharded = directory.resolve("sharded");
+
+    final SigilBatchResult result =
+      new SigilBatch(configuration(input, single, new SigilShard(1, 1))).run();
+    assertEquals((long) LINES - 1L, result.generated());
+    assertEquals(0L, result.failed());
+
+    long generated = 0L;
+    for (int index = 1; index <= 3; ++index) {
+      final SigilShard shard = new SigilShard(index, 3);
+      generated += new SigilBatch(configuration(input, sharded, shard))
+        .run()
+        .generated();
+    }
+    assertEquals(result.generated(), generated);
+
+    final SortedMap<String, byte[]> expected = sigils(single);
+    final SortedMap<String, byte[]> received = sigils(sharded);
+    assertEquals((long) LINES - 1L, (long) expected.size());
+    assertEquals(expected.keySet(), received.keySet());
+    for (final String name : expected.keySet()) {
+      assertArrayEquals(expected.get(name), received.get(name), name);
+    }
+  }
+
+  /**
+   * A torn final entry is discarded when a journal is resumed, and is not
+   * joined to the next entry appended.
+   *
+   * @param directory A temporary directory
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Test
+  public void testJournalTornEntry(
+    final @TempDir Path directory)
+    throws IOException
+  {
+    final Path file = directory.resolve("journal");
+
+    try (SigilBatchJournal journal = SigilBatchJournal.open(file, "c")) {
+      assertEquals(0, journal.resumed());
+      journal.complete(3);
+      journal.complete(1);
+    }
+
+    Files.writeString(file, "2", StandardOpenOption.APPEND);
+
+    try (SigilBatchJournal journal = SigilBatchJournal.open(file, "c")) {
+      assertEquals(2, journal.resumed());
+      assertTrue(journal.isComplete(1));
+      assertTrue(journal.isComplete(3));
+      assertFalse(journal.isComplete(2));
+      journal.complete(5);
+    }
+
+    try (SigilBatchJournal journal = SigilBatchJournal.open(file, "c")) {
+      assertEquals(3, journal.resumed());
+      assertTrue(journal.isComplete(5));
+      assertFalse(journal.isComplete(2));
+      assertFalse(journal.isComplete(25));
+    }
+
+    try (SigilBatchJournal journal = SigilBatchJournal.open(file, "d")) {
+      assertEquals(0, journal.resumed());
+    }
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the on-disk format of {@link SigilDiskCache}.
+ */
+
+public final class SigilDiskCacheTest
+{
+  /*
+   * Enough entries to grow the initial 4096-slot index at least once.
+   */
+
+  private static final int ENTRIES = 5000;
+
+  private static byte[] key(
+    final int index)
+  {
+    try {
+      return MessageDigest.getInstance("SHA-256")
+        .digest(("key-" + index).getBytes(StandardCharsets.UTF_8));
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static byte[] content(
+    final int index)
+  {
+    return ("<svg>" + index + "</svg>").getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static void storeAll(
+    final SigilDiskCache cache,
+    final int from,
+    final int to)
+    throws IOException
+  {
+    for (int index = from; index < to; ++index) {
+      cache.store(key(index), content(index));
+    }
+  }
+
+  private static void assertAllFound(
+    final SigilDiskCache cache,
+    final int from,
+    final int to)
+    throws IOException
+  {
+    for (int index = from; index < to; ++index) {
+      final Path file = cache.find(key(index)).orElseThrow();
+      assertArrayEquals(content(index), Files.readAllBytes(file));
+    }
+  }
+
+  /**
+   * Entries survive the index growing, and reopening the cache.
+   *
+   * @param directory A temporary directory
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Test
+  public void testGrow(
+    final @TempDir Path directory)
+    throws IOException
+  {
+    try (SigilDiskCache cache = SigilDiskCache.open(directory)) {
+      storeAll(cache, 0, ENTRIES);
+      assertAllFound(cache, 0, ENTRIES);
+      assertTrue(cache.find(key(ENTRIES)).isEmpty());
+    }
+
+    try (SigilDiskCache cache = SigilDiskCache.open(directory)) {
+      assertAllFound(cache, 0, ENTRIES);
+      assertEquals(0L, cache.misses());
+    }
+  }
+
+  /**
+   * A missing index is rebuilt from the objects directory.
+   *
+   * @param directory A temporary directory
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Test
+  public void testRebuildMissing(
+    final @TempDir Path directory)
+    throws IOException
+  {
+    try (SigilDiskCache cache = SigilDiskCache.open(directory)) {
+      storeAll(cache, 0, 100);
+    }
+
+    Files.delete(directory.resolve("index"));
+
+    try (SigilDiskCache cache = SigilDiskCache.open(directory)) {
+      assertAllFound(cache, 0, 100);
+    }
+  }
+
+  /**
+   * An index with a damaged header is rebuilt from the objects directory.
+   *
+   * @param directory A temporary directory
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Test
+  public void testRebuildDamagedHeader(
+    final @TempDir Path directory)
+    throws IOException
+  {
+    try (SigilDiskCache cache = SigilDiskCache.open(directory)) {
+      storeAll(cache, 0, 100);
+    }
+
+    try (FileChannel channel = FileChannel.open(
+      directory.resolve("index"), StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.wrap(new byte[]{0x7f, 0x7f, 0x7f}), 0L);
+    }
+
+    try (SigilDiskCache cache = SigilDiskCache.open(directory)) {
+      assertAllFound(cache, 0, 100);
+    }
+  }
+
+  /**
+   * An index with an impossible slot count is rebuilt from the objects
+   * directory.
+   *
+   * @param directory A temporary directory
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Test
+  public void testRebuildDamagedSlots(
+    final @TempDir Path directory)
+    throws IOException
+  {
+    try (SigilDiskCache cache = SigilDiskCache.open(directory)) {
+      storeAll(cache, 0, 100);
+    }
+
+    try (FileChannel channel = FileChannel.open(
+      directory.resolve("index"), StandardOpenOption.WRITE)) {
+      channel.write(ByteBuffer.allocate(4).putInt(0, 3000), 8L);
+    }
+
+    try (SigilDiskCache cache = SigilDiskCache.open(directory)) {
+      assertAllFound(cache, 0, 100);
+    }
+  }
+
+  /**
+   * A cache sees entries inserted by another cache that shares the
+   * directory, even after the other cache grew the index.
+   *
+   * @param directory A temporary directory
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Test
+  public void testSharedGrow(
+    final @TempDir Path directory)
+    throws IOException
+  {
+    try (SigilDiskCache first = SigilDiskCache.open(directory);
+         SigilDiskCache second = SigilDiskCache.open(directory)) {
+      storeAll(first, 0, 10);
+      assertAllFound(second, 0, 10);
+
+      storeAll(first, 10, ENTRIES);
+      assertAllFound(second, 0, ENTRIES);
+
+      storeAll(second, ENTRIES, ENTRIES + 100);
+      assertAllFound(first, 0, ENTRIES + 100);
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2014 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.sigiltron;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for the layout of sigils.
+ */
+
+public final class SigilGeneratorTest
+{
+  private static final int GLYPHS =
+    SigilGenerator.BLOCK_SIZE * SigilGenerator.PARALLEL_BLOCKS + 100;
+
+  private static String text(
+    final int length)
+  {
+    final StringBuilder text = new StringBuilder(length);
+    for (int index = 0; index < length; ++index) {
+      text.append((char) ('a' + index % 26));
+    }
+    return text.toString();
+  }
+
+  private static SigilGeneratorRequest request(
+    final String text)
+  {
+    return new SigilGeneratorRequest(
+      text,
+      new SigilFontSet(List.of("SansSerif", "Serif", "Monospaced"), 0),
+      new SigilTextFunctionIdentity(),
+      new SigilFontFunctionRandom(),
+      new SigilRotationFunctionRandom(),
+      new SigilSpreadFunctionRandom(),
+      64,
+      new SigilRandomSourceSplittable(),
+      0x5eedL,
+      512,
+      512);
+  }
+
+  /**
+   * A layout that is computed in parallel is identical to the same layout
+   * computed on a single thread.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testParallelMatchesSingleThread()
+    throws Exception
+  {
+    final SigilGenerator generator = new SigilGenerator();
+    final SigilGeneratorRequest request = request(text(GLYPHS));
+
+    final SigilLayout parallel = generator.layout(request);
+    final ForkJoinPool pool = new ForkJoinPool(1);
+    try {
+      final SigilLayout single =
+        pool.submit(() -> generator.layout(request)).get();
+      assertEquals(GLYPHS, single.count());
+      assertEquals(single, parallel);
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * A layout that reuses part of a cached layout is identical to a fresh
+   * layout, whether the intent was extended, edited, or left unchanged.
+   */
+
+  @Test
+  public void testCacheHitMatchesFreshLayout()
+  {
+    final SigilGenerator generator = new SigilGenerator();
+    final SigilLayoutCache cache = SigilLayoutCache.create();
+    final String full = text(GLYPHS);
+    final char[] edited = full.toCharArray();
+    edited[SigilGenerator.BLOCK_SIZE + 10] = '#';
+
+    final List<String> texts = List.of(
+      full.substring(0, 600),
+      full,
+      full,
+      new String(edited),
+      full.substring(0, SigilGenerator.BLOCK_SIZE * 3 + 1));
+
+    for (final String text : texts) {
+      final SigilGeneratorRequest request = request(text);
+      final SigilLayout cached = generator.layout(request, cache);
+      final SigilLayout fresh = generator.layout(request);
+      assertEquals(text.length(), cached.count());
+      assertEquals(fresh, cached);
+    }
+  }
+}